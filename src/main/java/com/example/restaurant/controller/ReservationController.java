@@ -1,33 +1,179 @@
 package com.example.restaurant.controller;
 
+import com.example.restaurant.model.AdmissionStats;
+import com.example.restaurant.model.AvailabilityCacheStats;
+import com.example.restaurant.model.AvailabilityFeedStats;
+import com.example.restaurant.model.AvailabilityGrid;
+import com.example.restaurant.model.BatchAssignment;
+import com.example.restaurant.model.BatchAssignmentRequest;
+import com.example.restaurant.model.LayoutImportResult;
+import com.example.restaurant.model.MealPoolStats;
+import com.example.restaurant.model.NextAvailability;
+import com.example.restaurant.model.OccupancyForecast;
+import com.example.restaurant.model.Reservation;
+import com.example.restaurant.model.ReservationRequest;
+import com.example.restaurant.model.SearchRequest;
 import com.example.restaurant.model.SearchResponse;
 import com.example.restaurant.model.TableInfo;
 import com.example.restaurant.model.TableLayoutUpdate;
+import com.example.restaurant.model.TableRecommendation;
+import com.example.restaurant.model.WaitlistEntry;
+import com.example.restaurant.model.WaitlistRequest;
 import com.example.restaurant.model.Zone;
+import com.example.restaurant.service.AdmissionControl;
+import com.example.restaurant.service.AvailabilityCache;
+import com.example.restaurant.service.AvailabilityFeed;
+import com.example.restaurant.service.BatchAssignmentService;
+import com.example.restaurant.service.BinaryWireFormat;
+import com.example.restaurant.service.LayoutImportService;
+import com.example.restaurant.service.MealSuggestionService;
 import com.example.restaurant.service.RecommendationService;
+import com.example.restaurant.service.VenueCatalog;
+import com.example.restaurant.service.WaitlistService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/api")
 public class ReservationController {
 
+    private static final String NDJSON = "application/x-ndjson";
+
     private final RecommendationService recommendationService;
+    private final AvailabilityCache availabilityCache;
+    private final AdmissionControl admissionControl;
+    private final MealSuggestionService mealSuggestionService;
+    private final BatchAssignmentService batchAssignmentService;
+    private final AvailabilityFeed availabilityFeed;
+    private final LayoutImportService layoutImportService;
+    private final WaitlistService waitlistService;
+    private final BinaryWireFormat binaryWireFormat;
+    private final ObjectWriter rowWriter;
 
-    public ReservationController(RecommendationService recommendationService) {
+    public ReservationController(RecommendationService recommendationService,
+                                 AvailabilityCache availabilityCache,
+                                 AdmissionControl admissionControl,
+                                 MealSuggestionService mealSuggestionService,
+                                 BatchAssignmentService batchAssignmentService,
+                                 AvailabilityFeed availabilityFeed,
+                                 LayoutImportService layoutImportService,
+                                 WaitlistService waitlistService,
+                                 BinaryWireFormat binaryWireFormat,
+                                 ObjectMapper objectMapper) {
         this.recommendationService = recommendationService;
+        this.availabilityCache = availabilityCache;
+        this.admissionControl = admissionControl;
+        this.mealSuggestionService = mealSuggestionService;
+        this.batchAssignmentService = batchAssignmentService;
+        this.availabilityFeed = availabilityFeed;
+        this.layoutImportService = layoutImportService;
+        this.waitlistService = waitlistService;
+        this.binaryWireFormat = binaryWireFormat;
+        this.rowWriter = objectMapper.writerFor(TableRecommendation.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
     }
 
-    @GetMapping("/availability")
+    @GetMapping({"/availability", "/venues/{venueId}/availability"})
     public SearchResponse availability(
+            @PathVariable(required = false) String venueId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime dateTime,
+            @RequestParam(defaultValue = "2") int partySize,
+            @RequestParam(required = false) Zone zone,
+            @RequestParam(defaultValue = "false") boolean privacy,
+            @RequestParam(defaultValue = "false") boolean window,
+            @RequestParam(defaultValue = "false") boolean accessibility,
+            @RequestParam(defaultValue = "false") boolean kidsArea,
+            HttpServletRequest httpRequest
+    ) {
+        String venue = venue(venueId);
+        try (AdmissionControl.Permit permit = admissionControl.admit(venue, httpRequest.getRemoteAddr())) {
+            return availabilityCache.recommend(venue, dateTime, partySize, zone, privacy, window, accessibility,
+                    kidsArea, permit.degraded());
+        }
+    }
+
+    /**
+     * The same answer in {@link BinaryWireFormat}, for clients that ask for it with {@code Accept}.
+     */
+    @GetMapping(value = {"/availability", "/venues/{venueId}/availability"}, produces = BinaryWireFormat.MEDIA_TYPE)
+    public byte[] availabilityBinary(
+            @PathVariable(required = false) String venueId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime dateTime,
+            @RequestParam(defaultValue = "2") int partySize,
+            @RequestParam(required = false) Zone zone,
+            @RequestParam(defaultValue = "false") boolean privacy,
+            @RequestParam(defaultValue = "false") boolean window,
+            @RequestParam(defaultValue = "false") boolean accessibility,
+            @RequestParam(defaultValue = "false") boolean kidsArea,
+            HttpServletRequest httpRequest
+    ) {
+        SearchResponse response = availability(venueId, dateTime, partySize, zone, privacy, window, accessibility,
+                kidsArea, httpRequest);
+        return binaryWireFormat.availability(venue(venueId), response);
+    }
+
+    /**
+     * Newline-delimited JSON: one ranked table (or merged option) per line, written as it is produced.
+     */
+    @GetMapping(value = {"/availability/stream", "/venues/{venueId}/availability/stream"}, produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> availabilityStream(
+            @PathVariable(required = false) String venueId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime dateTime,
+            @RequestParam(defaultValue = "2") int partySize,
+            @RequestParam(required = false) Zone zone,
+            @RequestParam(defaultValue = "false") boolean privacy,
+            @RequestParam(defaultValue = "false") boolean window,
+            @RequestParam(defaultValue = "false") boolean accessibility,
+            @RequestParam(defaultValue = "false") boolean kidsArea,
+            @RequestParam(defaultValue = "" + Integer.MAX_VALUE) int limit,
+            HttpServletRequest httpRequest
+    ) {
+        String venue = venue(venueId);
+        // The ranking is done here; writing the lines afterwards only formats it, so needs no permit.
+        RecommendationService.RankedRecommendations ranked = admitted(venue, httpRequest, () ->
+                recommendationService.recommendTop(venue, dateTime, partySize, zone, privacy, window,
+                        accessibility, kidsArea, limit));
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(NDJSON))
+                .body(out -> writeLines(ranked, out));
+    }
+
+    /**
+     * Server-Sent Events: a snapshot of the same answer as {@code /availability}, then only deltas (tables
+     * moved, tables occupied or freed, recommended table changed).
+     */
+    @GetMapping(value = {"/availability/events", "/venues/{venueId}/availability/events"},
+            produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter availabilityEvents(
+            @PathVariable(required = false) String venueId,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime dateTime,
             @RequestParam(defaultValue = "2") int partySize,
             @RequestParam(required = false) Zone zone,
@@ -36,16 +182,218 @@ public class ReservationController {
             @RequestParam(defaultValue = "false") boolean accessibility,
             @RequestParam(defaultValue = "false") boolean kidsArea
     ) {
-        return recommendationService.recommend(dateTime, partySize, zone, privacy, window, accessibility, kidsArea);
+        return availabilityFeed.subscribe(venue(venueId),
+                new SearchRequest(dateTime, partySize, zone, privacy, window, accessibility, kidsArea));
+    }
+
+    @GetMapping({"/availability/merged", "/venues/{venueId}/availability/merged"})
+    public List<TableRecommendation> mergedAlternatives(
+            @PathVariable(required = false) String venueId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime dateTime,
+            @RequestParam(defaultValue = "2") int partySize,
+            @RequestParam(required = false) Zone zone,
+            @RequestParam(defaultValue = "false") boolean privacy,
+            @RequestParam(defaultValue = "false") boolean window,
+            @RequestParam(defaultValue = "false") boolean accessibility,
+            @RequestParam(defaultValue = "false") boolean kidsArea,
+            @RequestParam(defaultValue = "3") int limit,
+            HttpServletRequest httpRequest
+    ) {
+        String venue = venue(venueId);
+        return admitted(venue, httpRequest, () -> recommendationService.mergedAlternatives(venue, dateTime,
+                partySize, zone, privacy, window, accessibility, kidsArea, limit));
+    }
+
+    @GetMapping({"/availability/next", "/venues/{venueId}/availability/next"})
+    public NextAvailability nextAvailable(
+            @PathVariable(required = false) String venueId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime dateTime,
+            @RequestParam(defaultValue = "72") int horizonHours,
+            @RequestParam(defaultValue = "2") int partySize,
+            @RequestParam(required = false) Zone zone,
+            @RequestParam(defaultValue = "false") boolean privacy,
+            @RequestParam(defaultValue = "false") boolean window,
+            @RequestParam(defaultValue = "false") boolean accessibility,
+            @RequestParam(defaultValue = "false") boolean kidsArea,
+            @RequestParam(defaultValue = "5") int limit,
+            HttpServletRequest httpRequest
+    ) {
+        String venue = venue(venueId);
+        return admitted(venue, httpRequest, () -> recommendationService.nextAvailable(venue, dateTime,
+                horizonHours, partySize, zone, privacy, window, accessibility, kidsArea, limit));
+    }
+
+    @GetMapping({"/forecast", "/venues/{venueId}/forecast"})
+    public OccupancyForecast forecast(
+            @PathVariable(required = false) String venueId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime dateTime
+    ) {
+        return recommendationService.forecast(venue(venueId), dateTime);
+    }
+
+    @GetMapping({"/availability/grid", "/venues/{venueId}/availability/grid"})
+    public AvailabilityGrid availabilityGrid(
+            @PathVariable(required = false) String venueId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "15") int step,
+            @RequestParam(defaultValue = "2") int partySize,
+            @RequestParam(required = false) Zone zone,
+            @RequestParam(defaultValue = "false") boolean privacy,
+            @RequestParam(defaultValue = "false") boolean window,
+            @RequestParam(defaultValue = "false") boolean accessibility,
+            @RequestParam(defaultValue = "false") boolean kidsArea,
+            HttpServletRequest httpRequest
+    ) {
+        String venue = venue(venueId);
+        return admitted(venue, httpRequest, () -> recommendationService.availabilityGrid(venue, from, to,
+                step, partySize, zone, privacy, window, accessibility, kidsArea));
+    }
+
+    @PostMapping({"/reservations", "/venues/{venueId}/reservations"})
+    @ResponseStatus(HttpStatus.CREATED)
+    public Reservation createReservation(@PathVariable(required = false) String venueId,
+                                         @RequestBody ReservationRequest request) {
+        return recommendationService.createReservation(venue(venueId), request);
+    }
+
+    @GetMapping({"/reservations/{id}", "/venues/{venueId}/reservations/{id}"})
+    public Reservation getReservation(@PathVariable(required = false) String venueId, @PathVariable long id) {
+        return recommendationService.findReservation(venue(venueId), id)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Broneeringut " + id + " ei leitud"));
+    }
+
+    @DeleteMapping({"/reservations/{id}", "/venues/{venueId}/reservations/{id}"})
+    public Reservation cancelReservation(@PathVariable(required = false) String venueId, @PathVariable long id) {
+        return recommendationService.cancelReservation(venue(venueId), id);
+    }
+
+    @PostMapping({"/waitlist", "/venues/{venueId}/waitlist"})
+    @ResponseStatus(HttpStatus.CREATED)
+    public WaitlistEntry joinWaitlist(@PathVariable(required = false) String venueId,
+                                      @RequestBody WaitlistRequest request) {
+        return waitlistService.join(venue(venueId), request);
+    }
+
+    @GetMapping({"/waitlist", "/venues/{venueId}/waitlist"})
+    public List<WaitlistEntry> waitlist(@PathVariable(required = false) String venueId) {
+        return waitlistService.entries(venue(venueId));
+    }
+
+    @GetMapping({"/waitlist/{id}", "/venues/{venueId}/waitlist/{id}"})
+    public WaitlistEntry waitlistEntry(@PathVariable(required = false) String venueId, @PathVariable long id) {
+        return waitlistService.find(venue(venueId), id);
+    }
+
+    @DeleteMapping({"/waitlist/{id}", "/venues/{venueId}/waitlist/{id}"})
+    public WaitlistEntry leaveWaitlist(@PathVariable(required = false) String venueId, @PathVariable long id) {
+        return waitlistService.leave(venue(venueId), id);
+    }
+
+    @GetMapping({"/admin/layout", "/venues/{venueId}/admin/layout"})
+    public List<TableInfo> getLayout(@PathVariable(required = false) String venueId) {
+        return recommendationService.currentTables(venue(venueId));
+    }
+
+    @GetMapping(value = {"/admin/layout", "/venues/{venueId}/admin/layout"}, produces = BinaryWireFormat.MEDIA_TYPE)
+    public byte[] getLayoutBinary(@PathVariable(required = false) String venueId) {
+        return binaryWireFormat.layout(venue(venueId));
+    }
+
+    @PutMapping({"/admin/layout", "/venues/{venueId}/admin/layout"})
+    public List<TableInfo> updateLayout(@PathVariable(required = false) String venueId,
+                                        @RequestBody List<TableLayoutUpdate> updates) {
+        return recommendationService.updateLayout(venue(venueId), updates);
+    }
+
+    @PutMapping(value = {"/admin/layout/import", "/venues/{venueId}/admin/layout/import"},
+            consumes = MediaType.APPLICATION_JSON_VALUE)
+    public LayoutImportResult importLayoutJson(@PathVariable(required = false) String venueId, InputStream body) {
+        return layoutImportService.importJson(venue(venueId), body);
+    }
+
+    @PutMapping(value = {"/admin/layout/import", "/venues/{venueId}/admin/layout/import"}, consumes = "text/csv")
+    public LayoutImportResult importLayoutCsv(@PathVariable(required = false) String venueId, InputStream body) {
+        return layoutImportService.importCsv(venue(venueId), body);
+    }
+
+    @GetMapping({"/admin/tables/near", "/venues/{venueId}/admin/tables/near"})
+    public List<TableInfo> tablesNear(@PathVariable(required = false) String venueId,
+                                      @RequestParam double x,
+                                      @RequestParam double y,
+                                      @RequestParam(defaultValue = "190") double radius) {
+        return recommendationService.tablesNear(venue(venueId), x, y, radius);
+    }
+
+    @GetMapping({"/admin/tables/nearest-free", "/venues/{venueId}/admin/tables/nearest-free"})
+    public TableInfo nearestFreeTable(
+            @PathVariable(required = false) String venueId,
+            @RequestParam double x,
+            @RequestParam double y,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime dateTime,
+            @RequestParam(defaultValue = "2") int partySize
+    ) {
+        return recommendationService.nearestFreeTable(venue(venueId), x, y, dateTime, partySize);
+    }
+
+    /**
+     * Plans a batch of party requests with time windows; nothing is booked.
+     */
+    @PostMapping({"/admin/batch-assignment", "/venues/{venueId}/admin/batch-assignment"})
+    public BatchAssignment batchAssignment(@PathVariable(required = false) String venueId,
+                                           @RequestBody BatchAssignmentRequest request) {
+        return batchAssignmentService.assign(venue(venueId), request);
+    }
+
+    @GetMapping("/admin/availability-cache")
+    public AvailabilityCacheStats availabilityCacheStats() {
+        return availabilityCache.stats();
+    }
+
+    @GetMapping("/admin/admission")
+    public AdmissionStats admissionStats() {
+        return admissionControl.stats();
+    }
+
+    @GetMapping("/admin/availability-feed")
+    public AvailabilityFeedStats availabilityFeedStats() {
+        return availabilityFeed.stats();
+    }
+
+    @GetMapping("/admin/meal-pool")
+    public MealPoolStats mealPoolStats() {
+        return mealSuggestionService.stats();
+    }
+
+    private void writeLines(RecommendationService.RankedRecommendations ranked, OutputStream out) throws IOException {
+        try (JsonGenerator generator = rowWriter.createGenerator(out).setRootValueSeparator(null)) {
+            ranked.forEach(row -> {
+                try {
+                    rowWriter.writeValue(generator, row);
+                    generator.writeRaw('\n');
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
     }
 
-    @GetMapping("/admin/layout")
-    public List<TableInfo> getLayout() {
-        return recommendationService.currentTables();
+    /**
+     * Runs a search that does not have a degraded form under an admission permit, so it is rate limited and
+     * counted against the concurrency limit like {@code /availability}.
+     */
+    private <T> T admitted(String venue, HttpServletRequest httpRequest, Supplier<T> search) {
+        AdmissionControl.Permit permit = admissionControl.admit(venue, httpRequest.getRemoteAddr());
+        try {
+            return search.get();
+        } finally {
+            permit.close();
+        }
     }
 
-    @PutMapping("/admin/layout")
-    public List<TableInfo> updateLayout(@RequestBody List<TableLayoutUpdate> updates) {
-        return recommendationService.updateLayout(updates);
+    private static String venue(String venueId) {
+        return venueId == null ? VenueCatalog.DEFAULT_VENUE : venueId;
     }
 }
@@ -0,0 +1,13 @@
+package com.example.restaurant.model;
+
+public record AdmissionStats(
+        int inFlight,
+        int queued,
+        long admitted,
+        long rateLimited,
+        long overloaded,
+        long degradedRequests,
+        boolean degraded,
+        double degradedSeconds
+) {
+}
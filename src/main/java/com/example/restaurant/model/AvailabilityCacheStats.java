@@ -0,0 +1,12 @@
+package com.example.restaurant.model;
+
+public record AvailabilityCacheStats(
+        long size,
+        long hits,
+        long misses,
+        double hitRatio,
+        long evictions,
+        double averageComputeMillis,
+        long latencySavedMillis
+) {
+}
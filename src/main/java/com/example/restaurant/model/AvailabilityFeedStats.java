@@ -0,0 +1,9 @@
+package com.example.restaurant.model;
+
+public record AvailabilityFeedStats(
+        int subscribers,
+        int queries,
+        long recomputations,
+        long eventsSent
+) {
+}
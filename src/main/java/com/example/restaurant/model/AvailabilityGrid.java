@@ -0,0 +1,10 @@
+package com.example.restaurant.model;
+
+import java.util.List;
+
+public record AvailabilityGrid(
+        SearchRequest request,
+        int stepMinutes,
+        List<AvailabilitySlot> slots
+) {
+}
@@ -0,0 +1,15 @@
+package com.example.restaurant.model;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public record AvailabilitySlot(
+        LocalDateTime dateTime,
+        boolean available,
+        int freeTables,
+        String bestTableId,
+        double bestScore,
+        List<String> mergedTableIds,
+        double mergedScore
+) {
+}
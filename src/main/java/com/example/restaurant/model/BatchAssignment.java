@@ -0,0 +1,12 @@
+package com.example.restaurant.model;
+
+import java.util.List;
+
+public record BatchAssignment(
+        List<BatchPartyAssignment> assignments,
+        List<String> unassigned,
+        int seatedCovers,
+        int wastedSeats,
+        long elapsedMillis
+) {
+}
@@ -0,0 +1,9 @@
+package com.example.restaurant.model;
+
+import java.util.List;
+
+public record BatchAssignmentRequest(
+        List<BatchPartyRequest> parties,
+        Integer timeBudgetMillis
+) {
+}
@@ -0,0 +1,14 @@
+package com.example.restaurant.model;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public record BatchPartyAssignment(
+        String reference,
+        int partySize,
+        List<String> tableIds,
+        int seats,
+        LocalDateTime start,
+        LocalDateTime end
+) {
+}
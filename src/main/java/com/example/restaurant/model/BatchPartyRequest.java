@@ -0,0 +1,13 @@
+package com.example.restaurant.model;
+
+import java.time.LocalDateTime;
+
+public record BatchPartyRequest(
+        String reference,
+        int partySize,
+        LocalDateTime earliest,
+        LocalDateTime latest,
+        Integer durationMinutes,
+        Zone zone
+) {
+}
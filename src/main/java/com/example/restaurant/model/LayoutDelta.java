@@ -0,0 +1,9 @@
+package com.example.restaurant.model;
+
+import java.util.List;
+
+public record LayoutDelta(
+        long layoutVersion,
+        List<TableInfo> moved
+) {
+}
@@ -0,0 +1,11 @@
+package com.example.restaurant.model;
+
+public record LayoutImportResult(
+        long layoutVersion,
+        int tables,
+        int added,
+        int removed,
+        int changed,
+        long elapsedMillis
+) {
+}
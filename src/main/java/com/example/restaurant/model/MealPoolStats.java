@@ -0,0 +1,14 @@
+package com.example.restaurant.model;
+
+public record MealPoolStats(
+        int pooled,
+        int capacity,
+        long hits,
+        long misses,
+        long refreshes,
+        long refreshFailures,
+        long lastRefreshMillis,
+        long averageRefreshMillis,
+        long currentBackoffMillis
+) {
+}
@@ -0,0 +1,10 @@
+package com.example.restaurant.model;
+
+import java.util.List;
+
+public record NextAvailability(
+        SearchRequest request,
+        int visitMinutes,
+        List<AvailabilitySlot> slots
+) {
+}
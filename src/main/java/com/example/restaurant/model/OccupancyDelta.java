@@ -0,0 +1,9 @@
+package com.example.restaurant.model;
+
+import java.util.List;
+
+public record OccupancyDelta(
+        List<String> occupied,
+        List<String> freed
+) {
+}
@@ -0,0 +1,11 @@
+package com.example.restaurant.model;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public record OccupancyForecast(
+        LocalDateTime dateTime,
+        double learnedShare,
+        List<TableForecast> tables
+) {
+}
@@ -0,0 +1,6 @@
+package com.example.restaurant.model;
+
+public record RecommendationDelta(
+        TableRecommendation recommended
+) {
+}
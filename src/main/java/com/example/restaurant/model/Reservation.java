@@ -0,0 +1,14 @@
+package com.example.restaurant.model;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public record Reservation(
+        long id,
+        List<String> tableIds,
+        LocalDateTime start,
+        LocalDateTime end,
+        int partySize,
+        String customerName
+) {
+}
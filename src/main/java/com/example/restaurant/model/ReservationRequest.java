@@ -0,0 +1,13 @@
+package com.example.restaurant.model;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public record ReservationRequest(
+        List<String> tableIds,
+        LocalDateTime dateTime,
+        int partySize,
+        String customerName,
+        Integer durationMinutes
+) {
+}
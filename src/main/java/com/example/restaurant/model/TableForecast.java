@@ -0,0 +1,8 @@
+package com.example.restaurant.model;
+
+public record TableForecast(
+        String tableId,
+        double occupancyRate,
+        boolean held
+) {
+}
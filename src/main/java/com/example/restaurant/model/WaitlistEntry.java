@@ -0,0 +1,9 @@
+package com.example.restaurant.model;
+
+public record WaitlistEntry(
+        long id,
+        String venueId,
+        WaitlistRequest request,
+        AvailabilitySlot offer
+) {
+}
@@ -0,0 +1,17 @@
+package com.example.restaurant.model;
+
+import java.time.LocalDateTime;
+
+public record WaitlistRequest(
+        String customerName,
+        int partySize,
+        LocalDateTime earliest,
+        LocalDateTime latest,
+        Zone zone,
+        boolean privacy,
+        boolean window,
+        boolean accessibility,
+        boolean kidsArea,
+        Integer priority
+) {
+}
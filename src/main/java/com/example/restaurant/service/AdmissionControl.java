@@ -0,0 +1,276 @@
+package com.example.restaurant.service;
+
+import com.example.restaurant.model.AdmissionStats;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Admission control for availability searches. Each client gets a token bucket per venue, so one client
+ * hammering the endpoint is turned away without touching anyone else; then a bounded number of searches
+ * may run at once, a bounded number may wait briefly for a slot, and everything beyond that is refused
+ * immediately with 429 instead of piling up. While the service is busy, admitted searches are marked
+ * degraded so they skip the expensive parts.
+ */
+@Service
+public class AdmissionControl {
+
+    private static final String BUSY = "Liiga palju päringuid, proovi hetke pärast uuesti";
+
+    private final long emissionNanos;
+    private final long burstToleranceNanos;
+    private final Cache<BucketKey, TokenBucket> buckets;
+    private final Semaphore slots;
+    private final int maxQueue;
+    private final long queueTimeoutNanos;
+    private final int degradeAbove;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder degradedRequests = new LongAdder();
+    private final DegradedTime degradedTime = new DegradedTime();
+    private final Counter rateLimited;
+    private final Counter overloaded;
+
+    /**
+     * @param rate         searches per second per client and venue; 0 = no rate limit
+     * @param burst        searches a client may make at once after being idle
+     * @param maxConcurrent searches running at once; 0 = no limit (and no degraded mode)
+     * @param maxQueue     searches that may wait for a running one to finish
+     * @param degradeAt    share of {@code maxConcurrent} in flight above which searches are degraded
+     */
+    public AdmissionControl(MeterRegistry registry,
+                            @Value("${restaurant.admission.rate:20}") double rate,
+                            @Value("${restaurant.admission.burst:40}") int burst,
+                            @Value("${restaurant.admission.max-clients:100000}") long maxClients,
+                            @Value("${restaurant.admission.max-concurrent:64}") int maxConcurrent,
+                            @Value("${restaurant.admission.max-queue:256}") int maxQueue,
+                            @Value("${restaurant.admission.queue-timeout:200ms}") Duration queueTimeout,
+                            @Value("${restaurant.admission.degrade-at:0.75}") double degradeAt) {
+        if (rate < 0 || burst < 1 || maxConcurrent < 0 || maxQueue < 0 || !(degradeAt >= 0 && degradeAt <= 1)) {
+            throw new IllegalArgumentException("Invalid restaurant.admission settings");
+        }
+        this.emissionNanos = rate == 0 ? 0 : Math.max(1, Math.round(TimeUnit.SECONDS.toNanos(1) / rate));
+        this.burstToleranceNanos = emissionNanos * (burst - 1);
+        // An idle bucket is full again after this long, so forgetting it changes nothing.
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxClients)
+                .expireAfterAccess(Duration.ofNanos(Math.max(emissionNanos * burst, TimeUnit.SECONDS.toNanos(1))))
+                .build();
+        this.slots = maxConcurrent == 0 ? null : new Semaphore(maxConcurrent);
+        this.maxQueue = maxQueue;
+        this.queueTimeoutNanos = queueTimeout.toNanos();
+        this.degradeAbove = maxConcurrent == 0 ? Integer.MAX_VALUE : (int) Math.floor(maxConcurrent * degradeAt);
+
+        Gauge.builder("restaurant.admission.queue", queued, AtomicInteger::get)
+                .description("Availability searches waiting for a free slot")
+                .register(registry);
+        Gauge.builder("restaurant.admission.in_flight", inFlight, AtomicInteger::get)
+                .description("Availability searches running")
+                .register(registry);
+        this.rateLimited = Counter.builder("restaurant.admission.rejected")
+                .description("Availability searches refused with 429")
+                .tag("reason", "rate_limit")
+                .register(registry);
+        this.overloaded = Counter.builder("restaurant.admission.rejected")
+                .description("Availability searches refused with 429")
+                .tag("reason", "overload")
+                .register(registry);
+        FunctionCounter.builder("restaurant.admission.degraded.time", degradedTime, DegradedTime::seconds)
+                .description("Time spent in degraded mode (no merge search, no meal suggestion)")
+                .baseUnit("seconds")
+                .register(registry);
+        FunctionCounter.builder("restaurant.admission.degraded.requests", degradedRequests, LongAdder::sum)
+                .description("Availability searches answered in degraded mode")
+                .register(registry);
+    }
+
+    /**
+     * Admits one search by {@code client} for {@code venueId} or throws 429. The permit must be closed
+     * when the search is done.
+     */
+    public Permit admit(String venueId, String client) {
+        if (emissionNanos > 0) {
+            long waitNanos = buckets.get(new BucketKey(venueId, client), ignored -> new TokenBucket())
+                    .tryAcquire(System.nanoTime(), emissionNanos, burstToleranceNanos);
+            if (waitNanos > 0) {
+                rateLimited.increment();
+                throw new TooManyRequests(waitNanos);
+            }
+        }
+        if (slots != null && !slots.tryAcquire() && !awaitSlot()) {
+            overloaded.increment();
+            throw new TooManyRequests(queueTimeoutNanos);
+        }
+        admitted.increment();
+        boolean degraded = inFlight.incrementAndGet() > degradeAbove || queued.get() > 0;
+        if (degraded) {
+            degradedRequests.increment();
+        }
+        updateDegradedMode();
+        return new Permit(degraded);
+    }
+
+    private boolean awaitSlot() {
+        if (queued.incrementAndGet() > maxQueue) {
+            queued.decrementAndGet();
+            return false;
+        }
+        try {
+            return slots.tryAcquire(queueTimeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            queued.decrementAndGet();
+        }
+    }
+
+    private void release() {
+        inFlight.decrementAndGet();
+        if (slots != null) {
+            slots.release();
+        }
+        updateDegradedMode();
+    }
+
+    private void updateDegradedMode() {
+        degradedTime.update(inFlight.get() > degradeAbove || queued.get() > 0);
+    }
+
+    public AdmissionStats stats() {
+        return new AdmissionStats(
+                inFlight.get(),
+                queued.get(),
+                admitted.sum(),
+                (long) rateLimited.count(),
+                (long) overloaded.count(),
+                degradedRequests.sum(),
+                degradedTime.active(),
+                degradedTime.seconds()
+        );
+    }
+
+    /**
+     * One admitted search. {@link #degraded()} tells it to skip the merge search and the meal suggestion.
+     */
+    public final class Permit implements AutoCloseable {
+
+        private final boolean degraded;
+        private boolean closed;
+
+        private Permit(boolean degraded) {
+            this.degraded = degraded;
+        }
+
+        public boolean degraded() {
+            return degraded;
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                release();
+            }
+        }
+    }
+
+    /**
+     * Generic cell rate algorithm: the bucket is a single timestamp, the time at which it would be full
+     * again, advanced by one emission interval per admitted search with a CAS.
+     */
+    static final class TokenBucket {
+
+        private final AtomicLong fullAt = new AtomicLong(System.nanoTime());
+
+        /**
+         * Takes a token and returns 0, or returns how long until one is available.
+         */
+        long tryAcquire(long now, long emissionNanos, long burstToleranceNanos) {
+            while (true) {
+                long current = fullAt.get();
+                long start = current - now > 0 ? current : now;
+                long waitNanos = start - now - burstToleranceNanos;
+                if (waitNanos > 0) {
+                    return waitNanos;
+                }
+                if (fullAt.compareAndSet(current, start + emissionNanos)) {
+                    return 0;
+                }
+            }
+        }
+    }
+
+    private record BucketKey(String venueId, String client) {
+    }
+
+    /**
+     * Time spent in degraded mode, kept apart from the rest so its meter can be registered in the
+     * constructor without handing out the half-built service.
+     */
+    private static final class DegradedTime {
+
+        private final AtomicLong since = new AtomicLong();
+        private final LongAdder closedNanos = new LongAdder();
+
+        /**
+         * Opens or closes the current degraded period; only the thread whose CAS succeeds records it.
+         */
+        void update(boolean busy) {
+            long openedAt = since.get();
+            if (busy && openedAt == 0) {
+                since.compareAndSet(0, System.nanoTime() | 1);
+            } else if (!busy && openedAt != 0 && since.compareAndSet(openedAt, 0)) {
+                closedNanos.add(System.nanoTime() - openedAt);
+            }
+        }
+
+        boolean active() {
+            return since.get() != 0;
+        }
+
+        double seconds() {
+            long openedAt = since.get();
+            long open = openedAt == 0 ? 0 : Math.max(0, System.nanoTime() - openedAt);
+            return (closedNanos.sum() + open) / (double) TimeUnit.SECONDS.toNanos(1);
+        }
+    }
+
+    /**
+     * 429 with a Retry-After hint in whole seconds.
+     */
+    private static final class TooManyRequests extends ResponseStatusException {
+
+        private static final long serialVersionUID = 1L;
+
+        private final long retryAfterSeconds;
+
+        TooManyRequests(long waitNanos) {
+            super(HttpStatus.TOO_MANY_REQUESTS, BUSY);
+            this.retryAfterSeconds = Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            HttpHeaders headers = new HttpHeaders();
+            headers.set(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+            return headers;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.restaurant.service;
+
+import com.example.restaurant.model.AvailabilityCacheStats;
+import com.example.restaurant.model.SearchRequest;
+import com.example.restaurant.model.SearchResponse;
+import com.example.restaurant.model.Zone;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache in front of {@link RecommendationService#recommend}. Entries are keyed by the venue,
+ * the normalized request, the venue's layout version and the occupancy epoch of the requested hour, so
+ * a layout change or a booking in that hour makes old entries unreachable; they then age out by size/TTL.
+ */
+@Service
+public class AvailabilityCache {
+
+    private final RecommendationService recommendationService;
+    private final Cache<Key, SearchResponse> cache;
+    private final LongAdder computeNanos = new LongAdder();
+
+    public AvailabilityCache(RecommendationService recommendationService, long maximumSize, Duration ttl) {
+        this(new SimpleMeterRegistry(), recommendationService, maximumSize, ttl);
+    }
+
+    /**
+     * Hits, misses, evictions and size go to {@code registry} as the {@code cache.*} meters tagged
+     * {@code cache=availability}.
+     */
+    @Autowired
+    public AvailabilityCache(MeterRegistry registry,
+                             RecommendationService recommendationService,
+                             @Value("${restaurant.availability-cache.maximum-size:10000}") long maximumSize,
+                             @Value("${restaurant.availability-cache.ttl:30s}") Duration ttl) {
+        this.recommendationService = recommendationService;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, cache, "availability");
+    }
+
+    public SearchResponse recommend(String venueId, LocalDateTime dateTime, int partySize, Zone zone,
+                                    boolean privacy, boolean window, boolean accessibility, boolean kidsArea) {
+        return recommend(venueId, dateTime, partySize, zone, privacy, window, accessibility, kidsArea, false);
+    }
+
+    /**
+     * A degraded request is still answered in full when the full answer is cached; otherwise the degraded
+     * answer is computed and cached under its own key, so it never replaces a full one.
+     */
+    public SearchResponse recommend(String venueId, LocalDateTime dateTime, int partySize, Zone zone,
+                                    boolean privacy, boolean window, boolean accessibility, boolean kidsArea,
+                                    boolean degraded) {
+        LocalDateTime normalized = dateTime.truncatedTo(ChronoUnit.MINUTES);
+        Key key = new Key(
+                venueId,
+                new SearchRequest(normalized, partySize, zone, privacy, window, accessibility, kidsArea),
+                recommendationService.layoutVersion(venueId),
+                recommendationService.occupancyEpoch(venueId, normalized),
+                false
+        );
+        if (degraded) {
+            SearchResponse full = cache.getIfPresent(key);
+            if (full != null) {
+                return full;
+            }
+            key = new Key(key.venueId(), key.request(), key.layoutVersion(), key.occupancyEpoch(), true);
+        }
+        return cache.get(key, ignored -> {
+            long started = System.nanoTime();
+            SearchResponse response = recommendationService.recommend(venueId, normalized, partySize, zone,
+                    privacy, window, accessibility, kidsArea, degraded);
+            computeNanos.add(System.nanoTime() - started);
+            return response;
+        });
+    }
+
+    public AvailabilityCacheStats stats() {
+        CacheStats stats = cache.stats();
+        double averageComputeNanos = stats.missCount() == 0 ? 0 : (double) computeNanos.sum() / stats.missCount();
+        return new AvailabilityCacheStats(
+                cache.estimatedSize(),
+                stats.hitCount(),
+                stats.missCount(),
+                stats.hitRate(),
+                stats.evictionCount(),
+                averageComputeNanos / TimeUnit.MILLISECONDS.toNanos(1),
+                Math.round(averageComputeNanos * stats.hitCount() / TimeUnit.MILLISECONDS.toNanos(1))
+        );
+    }
+
+    private record Key(String venueId, SearchRequest request, long layoutVersion, long occupancyEpoch, boolean degraded) {
+    }
+}
@@ -0,0 +1,481 @@
+package com.example.restaurant.service;
+
+import com.example.restaurant.model.AvailabilityFeedStats;
+import com.example.restaurant.model.LayoutDelta;
+import com.example.restaurant.model.OccupancyDelta;
+import com.example.restaurant.model.RecommendationDelta;
+import com.example.restaurant.model.SearchRequest;
+import com.example.restaurant.model.SearchResponse;
+import com.example.restaurant.model.TableInfo;
+import com.example.restaurant.model.TableRecommendation;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Server-Sent Events feed of availability changes. Subscribers of the same query share one topic: after
+ * a layout change, booking or cancellation the topic is recomputed once (through {@link AvailabilityCache})
+ * and only if the change touched it, then each delta is serialized once and written to every subscriber.
+ * <p>
+ * All topic state lives on a single dispatcher thread, so deltas reach every subscriber in order and a
+ * new subscriber's snapshot is always the state the following deltas apply to. Changes that arrive while
+ * a venue is waiting to be refreshed are coalesced into one pass.
+ * <p>
+ * The dispatcher never writes to a connection itself: it queues each event for each subscriber, and every
+ * subscriber has its own virtual thread doing the blocking writes. A stalled client therefore holds up
+ * only itself, and one that falls {@code queueSize} events behind is dropped; it can resubscribe for a
+ * fresh snapshot.
+ */
+@Service
+public class AvailabilityFeed {
+
+    public static final String SNAPSHOT = "snapshot";
+    public static final String TABLES_MOVED = "tables-moved";
+    public static final String OCCUPANCY_CHANGED = "occupancy-changed";
+    public static final String RECOMMENDATION_CHANGED = "recommendation-changed";
+
+    static final int DEFAULT_QUEUE_SIZE = 64;
+
+    private final RecommendationService recommendationService;
+    private final AvailabilityCache availabilityCache;
+    private final ObjectMapper objectMapper;
+    private final Duration timeout;
+    private final int maxSubscribers;
+    private final int queueSize;
+    private final ExecutorService dispatcher =
+            Executors.newSingleThreadExecutor(Thread.ofVirtual().name("availability-feed").factory());
+    private final ExecutorService writers =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("availability-feed-writer-", 0).factory());
+    private final Set<String> pendingVenues = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger subscribers = new AtomicInteger();
+    private final AtomicInteger topics = new AtomicInteger();
+    private final LongAdder recomputations = new LongAdder();
+    private final LongAdder eventsSent = new LongAdder();
+
+    /**
+     * Touched by the dispatcher thread only.
+     */
+    private final Map<String, VenueTopics> venues = new HashMap<>();
+
+    public AvailabilityFeed(RecommendationService recommendationService,
+                            AvailabilityCache availabilityCache,
+                            ObjectMapper objectMapper,
+                            Duration timeout,
+                            int maxSubscribers) {
+        this(recommendationService, availabilityCache, objectMapper, timeout, maxSubscribers, DEFAULT_QUEUE_SIZE);
+    }
+
+    /**
+     * @param queueSize events a subscriber may fall behind before it is dropped
+     */
+    @Autowired
+    public AvailabilityFeed(RecommendationService recommendationService,
+                            AvailabilityCache availabilityCache,
+                            ObjectMapper objectMapper,
+                            @Value("${restaurant.feed.timeout:30m}") Duration timeout,
+                            @Value("${restaurant.feed.max-subscribers:10000}") int maxSubscribers,
+                            @Value("${restaurant.feed.queue-size:" + DEFAULT_QUEUE_SIZE + "}") int queueSize) {
+        this.recommendationService = recommendationService;
+        this.availabilityCache = availabilityCache;
+        this.objectMapper = objectMapper;
+        this.timeout = timeout;
+        this.maxSubscribers = maxSubscribers;
+        this.queueSize = queueSize;
+    }
+
+    @PostConstruct
+    public void start() {
+        recommendationService.addChangeListener(this::venueChanged);
+    }
+
+    @PreDestroy
+    public void stop() {
+        dispatcher.shutdownNow();
+        writers.shutdownNow();
+    }
+
+    public SseEmitter subscribe(String venueId, SearchRequest request) {
+        return subscribe(venueId, request, new SseEmitter(timeout.toMillis()));
+    }
+
+    /**
+     * Subscribes {@code emitter} to changes of {@code request} at the venue. The first event is a
+     * {@link #SNAPSHOT} with the full answer; after that only deltas are sent.
+     */
+    public SseEmitter subscribe(String venueId, SearchRequest request, SseEmitter emitter) {
+        if (request.dateTime() == null || request.partySize() < 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Aeg ja positiivne seltskonna suurus on kohustuslikud");
+        }
+        recommendationService.layoutVersion(venueId);
+        if (subscribers.incrementAndGet() > maxSubscribers) {
+            subscribers.decrementAndGet();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Liiga palju samaaegseid tellijaid");
+        }
+        SearchRequest normalized = new SearchRequest(request.dateTime().truncatedTo(ChronoUnit.MINUTES),
+                request.partySize(), request.zone(), request.privacy(), request.window(), request.accessibility(),
+                request.kidsArea());
+        Runnable detach = () -> dispatch(() -> detach(venueId, normalized, emitter));
+        emitter.onCompletion(detach);
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(error -> detach.run());
+        if (!dispatch(() -> attach(venueId, normalized, emitter))) {
+            subscribers.decrementAndGet();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Teavitused ei ole saadaval");
+        }
+        return emitter;
+    }
+
+    public AvailabilityFeedStats stats() {
+        return new AvailabilityFeedStats(subscribers.get(), topics.get(), recomputations.sum(), eventsSent.sum());
+    }
+
+    private void venueChanged(String venueId) {
+        if (subscribers.get() > 0 && pendingVenues.add(venueId)) {
+            dispatch(() -> {
+                pendingVenues.remove(venueId);
+                VenueTopics venue = venues.get(venueId);
+                if (venue != null) {
+                    refresh(venue);
+                }
+            });
+        }
+    }
+
+    private boolean dispatch(Runnable task) {
+        try {
+            dispatcher.execute(() -> {
+                try {
+                    task.run();
+                } catch (RuntimeException ex) {
+                    // a failing venue must not stop the feed for the others; its next change retries
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException ex) {
+            return false;
+        }
+    }
+
+    private void attach(String venueId, SearchRequest request, SseEmitter emitter) {
+        VenueTopics venue = venues.computeIfAbsent(venueId, VenueTopics::new);
+        Topic topic;
+        try {
+            refresh(venue);
+            topic = venue.topics.get(request);
+            if (topic == null) {
+                topic = new Topic(request);
+                update(venue, topic);
+                venue.topics.put(request, topic);
+                topics.incrementAndGet();
+            }
+        } catch (RuntimeException ex) {
+            if (venue.topics.isEmpty()) {
+                venues.remove(venueId);
+            }
+            subscribers.decrementAndGet();
+            emitter.completeWithError(ex);
+            return;
+        }
+        Outbox outbox = new Outbox(venueId, emitter);
+        topic.subscribers.put(emitter, outbox);
+        send(venue, List.of(outbox), event(SNAPSHOT, topic.response));
+        purge(venue);
+    }
+
+    private void detach(String venueId, SearchRequest request, SseEmitter emitter) {
+        VenueTopics venue = venues.get(venueId);
+        Topic topic = venue == null ? null : venue.topics.get(request);
+        if (topic != null && topic.subscribers.remove(emitter) != null) {
+            subscribers.decrementAndGet();
+            removeIfIdle(venue, topic);
+        }
+    }
+
+    /**
+     * Drops the subscribers whose last send failed.
+     */
+    private void purge(VenueTopics venue) {
+        if (venue.failed.isEmpty()) {
+            return;
+        }
+        for (Topic topic : List.copyOf(venue.topics.values())) {
+            for (SseEmitter emitter : venue.failed) {
+                if (topic.subscribers.remove(emitter) != null) {
+                    subscribers.decrementAndGet();
+                }
+            }
+            removeIfIdle(venue, topic);
+        }
+        venue.failed.clear();
+    }
+
+    private void removeIfIdle(VenueTopics venue, Topic topic) {
+        if (topic.subscribers.isEmpty() && venue.topics.remove(topic.request) != null) {
+            topics.decrementAndGet();
+            if (venue.topics.isEmpty()) {
+                venues.remove(venue.venueId);
+            }
+        }
+    }
+
+    /**
+     * Sends moved tables to every subscriber of the venue, then brings each topic up to date.
+     */
+    private void refresh(VenueTopics venue) {
+        long version = recommendationService.layoutVersion(venue.venueId);
+        if (version != venue.layoutVersion) {
+            List<TableInfo> tables = recommendationService.currentTables(venue.venueId);
+            List<TableInfo> moved = new ArrayList<>();
+            for (TableInfo table : tables) {
+                TableInfo previous = venue.tables.get(table.id());
+                if (previous != null && (previous.x() != table.x() || previous.y() != table.y())) {
+                    moved.add(table);
+                }
+                venue.tables.put(table.id(), table);
+            }
+            venue.layoutVersion = version;
+            if (!moved.isEmpty()) {
+                List<Outbox> everyone = new ArrayList<>();
+                venue.topics.values().forEach(topic -> everyone.addAll(topic.subscribers.values()));
+                send(venue, everyone, event(TABLES_MOVED, new LayoutDelta(version, moved)));
+            }
+        }
+        for (Topic topic : venue.topics.values()) {
+            update(venue, topic);
+        }
+        purge(venue);
+    }
+
+    /**
+     * Recomputes the topic if its layout version or booking epoch moved and sends what changed.
+     */
+    private void update(VenueTopics venue, Topic topic) {
+        SearchRequest request = topic.request;
+        long epoch = recommendationService.occupancyEpoch(venue.venueId, request.dateTime());
+        if (topic.response != null && topic.layoutVersion == venue.layoutVersion && topic.occupancyEpoch == epoch) {
+            return;
+        }
+        SearchResponse response = availabilityCache.recommend(venue.venueId, request.dateTime(), request.partySize(),
+                request.zone(), request.privacy(), request.window(), request.accessibility(), request.kidsArea());
+        recomputations.increment();
+        Map<String, Boolean> occupancy = new HashMap<>();
+        TableRecommendation recommended = null;
+        for (TableRecommendation row : response.tables()) {
+            if (!row.merged()) {
+                occupancy.put(row.table().id(), row.occupied());
+            }
+            if (row.recommended() && recommended == null) {
+                recommended = row;
+            }
+        }
+
+        if (topic.response != null) {
+            List<String> occupied = new ArrayList<>();
+            List<String> freed = new ArrayList<>();
+            occupancy.forEach((tableId, busy) -> {
+                Boolean before = topic.occupancy.get(tableId);
+                if (before != null && before != busy.booleanValue()) {
+                    (busy ? occupied : freed).add(tableId);
+                }
+            });
+            if (!occupied.isEmpty() || !freed.isEmpty()) {
+                occupied.sort(null);
+                freed.sort(null);
+                send(venue, topic.subscribers.values(), event(OCCUPANCY_CHANGED, new OccupancyDelta(occupied, freed)));
+            }
+            if (!Objects.equals(recommendedTables(topic.recommended), recommendedTables(recommended))) {
+                send(venue, topic.subscribers.values(), event(RECOMMENDATION_CHANGED, new RecommendationDelta(recommended)));
+            }
+        }
+        topic.response = response;
+        topic.occupancy = occupancy;
+        topic.recommended = recommended;
+        topic.layoutVersion = venue.layoutVersion;
+        topic.occupancyEpoch = epoch;
+    }
+
+    private static List<String> recommendedTables(TableRecommendation recommendation) {
+        if (recommendation == null) {
+            return null;
+        }
+        return recommendation.merged() ? recommendation.mergedTableIds() : List.of(recommendation.table().id());
+    }
+
+    /**
+     * Queues one prebuilt event for each subscriber. Subscribers too far behind are closed and queued for
+     * {@link #purge}.
+     */
+    private void send(VenueTopics venue, Collection<Outbox> outboxes, Set<ResponseBodyEmitter.DataWithMediaType> event) {
+        for (Outbox outbox : outboxes) {
+            if (!outbox.offer(event)) {
+                venue.failed.add(outbox.emitter);
+            }
+        }
+    }
+
+    /**
+     * Forgets a subscriber whose writer failed; runs on the dispatcher.
+     */
+    private void writeFailed(String venueId, SseEmitter emitter) {
+        VenueTopics venue = venues.get(venueId);
+        if (venue != null) {
+            venue.failed.add(emitter);
+            purge(venue);
+        }
+    }
+
+    private Set<ResponseBodyEmitter.DataWithMediaType> event(String name, Object payload) {
+        try {
+            return SseEmitter.event()
+                    .name(name)
+                    .data(objectMapper.writeValueAsString(payload), MediaType.APPLICATION_JSON)
+                    .build();
+        } catch (JsonProcessingException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static final class VenueTopics {
+        private final String venueId;
+        private final Map<SearchRequest, Topic> topics = new HashMap<>();
+        private final Map<String, TableInfo> tables = new HashMap<>();
+        private final Set<SseEmitter> failed = new LinkedHashSet<>();
+        private long layoutVersion = -1;
+
+        private VenueTopics(String venueId) {
+            this.venueId = venueId;
+        }
+    }
+
+    private static final class Topic {
+        private final SearchRequest request;
+        private final Map<SseEmitter, Outbox> subscribers = new LinkedHashMap<>();
+        private SearchResponse response;
+        private Map<String, Boolean> occupancy = Map.of();
+        private TableRecommendation recommended;
+        private long layoutVersion;
+        private long occupancyEpoch;
+
+        private Topic(SearchRequest request) {
+            this.request = request;
+        }
+    }
+
+    /**
+     * Events on their way to one subscriber. The dispatcher only queues them; the writer, started when the
+     * queue stops being empty, sends them on its own virtual thread until the queue is drained.
+     */
+    private final class Outbox {
+        private final String venueId;
+        private final SseEmitter emitter;
+        // Guarded by this.
+        private final ArrayDeque<Set<ResponseBodyEmitter.DataWithMediaType>> queue = new ArrayDeque<>();
+        private boolean writing;
+        private boolean closed;
+
+        private Outbox(String venueId, SseEmitter emitter) {
+            this.venueId = venueId;
+            this.emitter = emitter;
+        }
+
+        /**
+         * Queues the event, or closes the subscriber and returns false if it is {@link #queueSize} behind.
+         */
+        boolean offer(Set<ResponseBodyEmitter.DataWithMediaType> event) {
+            synchronized (this) {
+                if (closed) {
+                    return false;
+                }
+                if (queue.size() < queueSize) {
+                    queue.add(event);
+                    if (!writing) {
+                        writing = true;
+                        start(this::write);
+                    }
+                    return true;
+                }
+                closed = true;
+                queue.clear();
+            }
+            // complete() waits for a send in progress, so it must not run on the dispatcher.
+            start(() -> close(null));
+            return false;
+        }
+
+        private void write() {
+            while (true) {
+                Set<ResponseBodyEmitter.DataWithMediaType> event;
+                synchronized (this) {
+                    event = closed ? null : queue.poll();
+                    if (event == null) {
+                        writing = false;
+                        return;
+                    }
+                }
+                try {
+                    emitter.send(event);
+                    eventsSent.increment();
+                } catch (IOException | IllegalStateException ex) {
+                    synchronized (this) {
+                        closed = true;
+                        writing = false;
+                        queue.clear();
+                    }
+                    close(ex);
+                    dispatch(() -> writeFailed(venueId, emitter));
+                    return;
+                }
+            }
+        }
+
+        private void close(Exception error) {
+            try {
+                if (error == null) {
+                    emitter.complete();
+                } else {
+                    emitter.completeWithError(error);
+                }
+            } catch (IllegalStateException ignored) {
+                // already completed
+            }
+        }
+
+        private void start(Runnable task) {
+            try {
+                writers.execute(task);
+            } catch (RejectedExecutionException ex) {
+                // shutting down
+            }
+        }
+    }
+}
@@ -0,0 +1,335 @@
+package com.example.restaurant.service;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Assigns a batch of parties to tables and start times so that as many guests as possible are seated
+ * and, among equally many, as few seats as possible are wasted. Time is counted in ticks of
+ * {@link #TICK_MINUTES} and every table's schedule is a bitset over the ticks of the batch horizon.
+ * <p>
+ * A greedy pass (largest parties first, least waste first) builds the starting plan. Independent
+ * ruin-and-recreate chains then run in parallel on the fork-join pool until the deadline: each step
+ * removes a few parties seated around one random moment, reinserts them together with unseated
+ * parties that wanted that moment, and keeps the result unless it is worse.
+ */
+final class BatchAssignmentOptimizer {
+
+    static final int TICK_MINUTES = 5;
+    static final int START_STEP_TICKS = 3;
+
+    private static final int MAX_REMOVED = 8;
+    private static final int STALE_STEPS_PER_PARTY = 20;
+    private static final int MIN_STALE_STEPS = 2_000;
+
+    private final int ticks;
+    private final long[][] busy;
+    private final Party[] parties;
+
+    /**
+     * @param busy    per table, the ticks already taken by existing bookings; copied, not modified
+     * @param parties parties to seat, each with its candidate options ordered from least to most waste
+     */
+    BatchAssignmentOptimizer(int ticks, long[][] busy, Party[] parties) {
+        this.ticks = ticks;
+        this.busy = busy;
+        this.parties = parties;
+    }
+
+    /**
+     * Best plan found by {@code chains} parallel searches before {@code deadlineNanos}.
+     */
+    Plan solve(long deadlineNanos, int chains, long seed) {
+        Plan greedy = new Plan();
+        Integer[] order = new Integer[parties.length];
+        Arrays.setAll(order, i -> i);
+        Arrays.sort(order, (a, b) -> parties[a].size != parties[b].size
+                ? Integer.compare(parties[b].size, parties[a].size)
+                : Integer.compare(parties[a].latest - parties[a].earliest, parties[b].latest - parties[b].earliest));
+        for (int party : order) {
+            greedy.insert(party);
+        }
+        if (greedy.isPerfect() || parties.length < 2) {
+            return greedy;
+        }
+        return IntStream.range(0, Math.max(1, chains))
+                .parallel()
+                .mapToObj(chain -> improve(greedy.copy(), new SplittableRandom(seed + chain), deadlineNanos))
+                .reduce(greedy, (best, candidate) -> candidate.isBetterThan(best) ? candidate : best);
+    }
+
+    private Plan improve(Plan plan, SplittableRandom random, long deadlineNanos) {
+        int[] removed = new int[MAX_REMOVED];
+        int[] pool = new int[MAX_REMOVED * 3];
+        int[] previousOption = new int[pool.length];
+        int[] previousStart = new int[pool.length];
+        int[] insertion = new int[pool.length];
+        int staleLimit = Math.max(MIN_STALE_STEPS, STALE_STEPS_PER_PARTY * parties.length);
+        int stale = 0;
+        while (stale < staleLimit && !plan.isPerfect() && System.nanoTime() < deadlineNanos) {
+            int moment = random.nextInt(ticks);
+            int removedCount = plan.sampleSeatedAt(moment, removed, 1 + random.nextInt(MAX_REMOVED), random);
+            int poolSize = 0;
+            for (int i = 0; i < removedCount; i++) {
+                pool[poolSize++] = removed[i];
+            }
+            poolSize = plan.sampleUnseatedAround(moment, pool, poolSize, removedCount + 2, random);
+            if (poolSize == 0) {
+                stale++;
+                continue;
+            }
+
+            int coversBefore = plan.covers;
+            int wasteBefore = plan.waste;
+            for (int i = 0; i < poolSize; i++) {
+                previousOption[i] = plan.option[pool[i]];
+                previousStart[i] = plan.start[pool[i]];
+            }
+            for (int i = 0; i < removedCount; i++) {
+                plan.remove(removed[i]);
+            }
+            System.arraycopy(pool, 0, insertion, 0, poolSize);
+            shuffleBySize(insertion, poolSize, random);
+            for (int i = 0; i < poolSize; i++) {
+                plan.insert(insertion[i]);
+            }
+
+            if (plan.covers < coversBefore || (plan.covers == coversBefore && plan.waste > wasteBefore)) {
+                for (int i = 0; i < poolSize; i++) {
+                    if (plan.option[pool[i]] >= 0) {
+                        plan.remove(pool[i]);
+                    }
+                }
+                for (int i = 0; i < poolSize; i++) {
+                    if (previousOption[i] >= 0) {
+                        plan.place(pool[i], previousOption[i], previousStart[i]);
+                    }
+                }
+                stale++;
+            } else if (plan.covers > coversBefore || plan.waste < wasteBefore) {
+                stale = 0;
+            } else {
+                stale++;
+            }
+        }
+        return plan;
+    }
+
+    /**
+     * Larger parties first, in random order among equals, so reinsertion explores different packings.
+     */
+    private void shuffleBySize(int[] pool, int size, SplittableRandom random) {
+        for (int i = size - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = pool[i];
+            pool[i] = pool[j];
+            pool[j] = swap;
+        }
+        for (int i = 1; i < size; i++) {
+            int party = pool[i];
+            int position = i;
+            while (position > 0 && parties[pool[position - 1]].size < parties[party].size) {
+                pool[position] = pool[position - 1];
+                position--;
+            }
+            pool[position] = party;
+        }
+    }
+
+    /**
+     * @param earliest first allowed start tick
+     * @param latest   last allowed start tick
+     * @param duration ticks the party keeps its tables
+     * @param options  table sets that seat the party, least waste first
+     */
+    record Party(int size, int earliest, int latest, int duration, Option[] options) {
+    }
+
+    /**
+     * Tables (by layout index) that can seat a party together, with their total seats.
+     */
+    record Option(int[] tables, int seats) {
+    }
+
+    /**
+     * One assignment of every party: {@code option[p]} indexes the party's options, or is -1 when the
+     * party is not seated.
+     */
+    final class Plan {
+        final int[] option;
+        final int[] start;
+        private final long[][] schedule;
+        int covers;
+        int waste;
+        private int seated;
+
+        private Plan() {
+            this.option = new int[parties.length];
+            this.start = new int[parties.length];
+            Arrays.fill(option, -1);
+            this.schedule = new long[busy.length][];
+            for (int table = 0; table < busy.length; table++) {
+                schedule[table] = busy[table].clone();
+            }
+        }
+
+        private Plan(Plan source) {
+            this.option = source.option.clone();
+            this.start = source.start.clone();
+            this.schedule = new long[source.schedule.length][];
+            for (int table = 0; table < schedule.length; table++) {
+                schedule[table] = source.schedule[table].clone();
+            }
+            this.covers = source.covers;
+            this.waste = source.waste;
+            this.seated = source.seated;
+        }
+
+        private Plan copy() {
+            return new Plan(this);
+        }
+
+        boolean isBetterThan(Plan other) {
+            return covers > other.covers || (covers == other.covers && waste < other.waste);
+        }
+
+        private boolean isPerfect() {
+            return seated == parties.length && waste == 0;
+        }
+
+        /**
+         * Seats the party with the least wasteful option that is free at some allowed start, earliest
+         * start first; leaves it unseated when nothing fits.
+         */
+        private void insert(int party) {
+            Party request = parties[party];
+            for (int candidate = 0; candidate < request.options.length; candidate++) {
+                int[] tables = request.options[candidate].tables;
+                for (int begin = request.earliest; begin <= request.latest; begin = nextStart(begin, request.latest)) {
+                    if (isFree(tables, begin, begin + request.duration)) {
+                        place(party, candidate, begin);
+                        return;
+                    }
+                }
+            }
+        }
+
+        private void place(int party, int candidate, int begin) {
+            Party request = parties[party];
+            Option chosen = request.options[candidate];
+            for (int table : chosen.tables) {
+                setRange(schedule[table], begin, begin + request.duration, true);
+            }
+            option[party] = candidate;
+            start[party] = begin;
+            covers += request.size;
+            waste += chosen.seats - request.size;
+            seated++;
+        }
+
+        private void remove(int party) {
+            Party request = parties[party];
+            Option chosen = request.options[option[party]];
+            for (int table : chosen.tables) {
+                setRange(schedule[table], start[party], start[party] + request.duration, false);
+            }
+            option[party] = -1;
+            covers -= request.size;
+            waste -= chosen.seats - request.size;
+            seated--;
+        }
+
+        private boolean isFree(int[] tables, int from, int to) {
+            for (int table : tables) {
+                if (intersects(schedule[table], from, to)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Reservoir-samples up to {@code wanted} seated parties whose visit covers {@code moment}.
+         */
+        private int sampleSeatedAt(int moment, int[] into, int wanted, SplittableRandom random) {
+            int found = 0;
+            int seen = 0;
+            for (int party = 0; party < parties.length; party++) {
+                if (option[party] < 0 || start[party] > moment || start[party] + parties[party].duration <= moment) {
+                    continue;
+                }
+                seen++;
+                if (found < wanted) {
+                    into[found++] = party;
+                } else {
+                    int slot = random.nextInt(seen);
+                    if (slot < wanted) {
+                        into[slot] = party;
+                    }
+                }
+            }
+            return found;
+        }
+
+        /**
+         * Appends up to {@code wanted} unseated parties that could be at the table at {@code moment}.
+         */
+        private int sampleUnseatedAround(int moment, int[] into, int size, int wanted, SplittableRandom random) {
+            int first = size;
+            int seen = 0;
+            int limit = Math.min(into.length, size + wanted);
+            for (int party = 0; party < parties.length; party++) {
+                Party request = parties[party];
+                if (option[party] >= 0 || request.options.length == 0
+                        || request.earliest > moment || request.latest + request.duration <= moment) {
+                    continue;
+                }
+                seen++;
+                if (size < limit) {
+                    into[size++] = party;
+                } else {
+                    int slot = random.nextInt(seen);
+                    if (slot < limit - first) {
+                        into[first + slot] = party;
+                    }
+                }
+            }
+            return size;
+        }
+    }
+
+    private static int nextStart(int begin, int latest) {
+        return begin < latest ? Math.min(begin + START_STEP_TICKS, latest) : latest + 1;
+    }
+
+    static void setRange(long[] bits, int from, int to, boolean value) {
+        for (int tick = from; tick < to; ) {
+            int word = tick >>> 6;
+            int end = Math.min(to, (word + 1) << 6);
+            long mask = rangeMask(tick, end);
+            bits[word] = value ? bits[word] | mask : bits[word] & ~mask;
+            tick = end;
+        }
+    }
+
+    private static boolean intersects(long[] bits, int from, int to) {
+        for (int tick = from; tick < to; ) {
+            int word = tick >>> 6;
+            int end = Math.min(to, (word + 1) << 6);
+            if ((bits[word] & rangeMask(tick, end)) != 0) {
+                return true;
+            }
+            tick = end;
+        }
+        return false;
+    }
+
+    /**
+     * Bits {@code from..to-1} of the word holding {@code from}; {@code to} is at most the next word start.
+     */
+    private static long rangeMask(int from, int to) {
+        long high = (to & 63) == 0 ? -1L : (1L << (to & 63)) - 1;
+        return high & (-1L << (from & 63));
+    }
+}
@@ -0,0 +1,210 @@
+package com.example.restaurant.service;
+
+import com.example.restaurant.model.BatchAssignment;
+import com.example.restaurant.model.BatchAssignmentRequest;
+import com.example.restaurant.model.BatchPartyAssignment;
+import com.example.restaurant.model.BatchPartyRequest;
+import com.example.restaurant.model.SearchRequest;
+import com.example.restaurant.model.TableInfo;
+import com.example.restaurant.model.Zone;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Plans a whole evening of booking requests at once instead of greedily one party at a time. The plan
+ * respects bookings already in the venue's book but does not create any; it maximises seated guests
+ * first and minimises empty seats second. Nothing here depends on simulated occupancy.
+ */
+@Service
+public class BatchAssignmentService {
+
+    static final int MAX_PARTIES = 5_000;
+    static final Duration MAX_HORIZON = Duration.ofHours(48);
+
+    private static final int SINGLE_OPTIONS = 32;
+    private static final int MERGED_OPTIONS = 8;
+    private static final long SEED = 0x5EA7ED;
+
+    private final VenueRegistry venues;
+    private final int maxGroupSize;
+    private final int visitMinutes;
+    private final Duration timeBudget;
+    private final Duration maxTimeBudget;
+
+    public BatchAssignmentService(VenueRegistry venues,
+                                  @Value("${restaurant.merge.max-group-size:" + RecommendationService.DEFAULT_MAX_GROUP_SIZE + "}") int maxGroupSize,
+                                  @Value("${restaurant.reservation.visit-minutes:" + RecommendationService.DEFAULT_VISIT_MINUTES + "}") int visitMinutes,
+                                  @Value("${restaurant.batch.time-budget:1s}") Duration timeBudget,
+                                  @Value("${restaurant.batch.max-time-budget:10s}") Duration maxTimeBudget) {
+        this.venues = venues;
+        this.maxGroupSize = maxGroupSize;
+        this.visitMinutes = visitMinutes;
+        this.timeBudget = timeBudget;
+        this.maxTimeBudget = maxTimeBudget;
+    }
+
+    public BatchAssignment assign(String venueId, BatchAssignmentRequest request) {
+        long started = System.nanoTime();
+        List<BatchPartyRequest> requests = request.parties();
+        if (requests == null || requests.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Broneerimissoovide nimekiri on tühi");
+        }
+        if (requests.size() > MAX_PARTIES) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Liiga palju broneerimissoove (" + requests.size() + "), maksimum on " + MAX_PARTIES);
+        }
+        Duration budget = request.timeBudgetMillis() == null ? timeBudget : Duration.ofMillis(request.timeBudgetMillis());
+        if (budget.isNegative() || budget.isZero() || budget.compareTo(maxTimeBudget) > 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Ajaeelarve peab olema 1 kuni " + maxTimeBudget.toMillis() + " ms");
+        }
+
+        LocalDateTime origin = null;
+        LocalDateTime horizonEnd = null;
+        for (BatchPartyRequest party : requests) {
+            validate(party);
+            origin = origin == null || party.earliest().isBefore(origin) ? party.earliest() : origin;
+            LocalDateTime end = party.latest().plusMinutes(duration(party));
+            horizonEnd = horizonEnd == null || end.isAfter(horizonEnd) ? end : horizonEnd;
+        }
+        if (Duration.between(origin, horizonEnd).compareTo(MAX_HORIZON) > 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Soovide ajavahemik on liiga pikk, maksimum on " + MAX_HORIZON.toHours() + " tundi");
+        }
+
+        VenueShard shard = venues.shard(venueId);
+        LayoutSnapshot snapshot = shard.layout().get();
+        int ticks = ticksCeil(origin, horizonEnd) + 1;
+        long[][] busy = existingBookings(shard.reservationBook(), snapshot, origin, horizonEnd, ticks);
+
+        Map<OptionsKey, BatchAssignmentOptimizer.Option[]> optionsByKey = new HashMap<>();
+        BatchAssignmentOptimizer.Party[] parties = new BatchAssignmentOptimizer.Party[requests.size()];
+        for (int i = 0; i < parties.length; i++) {
+            BatchPartyRequest party = requests.get(i);
+            BatchAssignmentOptimizer.Option[] options = optionsByKey.computeIfAbsent(
+                    new OptionsKey(party.partySize(), party.zone()), key -> options(snapshot, key));
+            parties[i] = new BatchAssignmentOptimizer.Party(party.partySize(), ticksCeil(origin, party.earliest()),
+                    ticksFloor(origin, party.latest()), Math.ceilDiv(duration(party), BatchAssignmentOptimizer.TICK_MINUTES),
+                    options);
+        }
+
+        BatchAssignmentOptimizer.Plan plan = new BatchAssignmentOptimizer(ticks, busy, parties)
+                .solve(started + budget.toNanos(), Runtime.getRuntime().availableProcessors(), SEED);
+
+        List<BatchPartyAssignment> assignments = new ArrayList<>();
+        List<String> unassigned = new ArrayList<>();
+        for (int i = 0; i < parties.length; i++) {
+            BatchPartyRequest party = requests.get(i);
+            String reference = party.reference() == null ? String.valueOf(i + 1) : party.reference();
+            if (plan.option[i] < 0) {
+                unassigned.add(reference);
+                continue;
+            }
+            BatchAssignmentOptimizer.Option option = parties[i].options()[plan.option[i]];
+            List<String> tableIds = new ArrayList<>(option.tables().length);
+            for (int table : option.tables()) {
+                tableIds.add(snapshot.id(table));
+            }
+            LocalDateTime start = origin.plusMinutes((long) plan.start[i] * BatchAssignmentOptimizer.TICK_MINUTES);
+            assignments.add(new BatchPartyAssignment(reference, party.partySize(), tableIds, option.seats(),
+                    start, start.plusMinutes(duration(party))));
+        }
+        assignments.sort(Comparator.comparing(BatchPartyAssignment::start)
+                .thenComparing(BatchPartyAssignment::reference));
+        return new BatchAssignment(assignments, unassigned, plan.covers, plan.waste,
+                Duration.ofNanos(System.nanoTime() - started).toMillis());
+    }
+
+    private void validate(BatchPartyRequest party) {
+        if (party == null || party.earliest() == null || party.latest() == null
+                || party.latest().isBefore(party.earliest())) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Broneerimissoovil peab olema kehtiv ajavahemik");
+        }
+        if (party.partySize() < 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Seltskonna suurus peab olema positiivne");
+        }
+        if (duration(party) <= 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Broneeringu kestus peab olema positiivne");
+        }
+    }
+
+    private int duration(BatchPartyRequest party) {
+        return party.durationMinutes() == null ? visitMinutes : party.durationMinutes();
+    }
+
+    /**
+     * Single tables and merged groups that seat the party, least waste first and fewer tables among equals.
+     */
+    private BatchAssignmentOptimizer.Option[] options(LayoutSnapshot snapshot, OptionsKey key) {
+        List<BatchAssignmentOptimizer.Option> options = new ArrayList<>();
+        for (int index : snapshot.tablesIn(key.zone())) {
+            int seats = snapshot.seats(index);
+            if (seats >= key.partySize()) {
+                options.add(new BatchAssignmentOptimizer.Option(new int[]{index}, seats));
+            }
+        }
+        options.sort(Comparator.comparingInt(BatchAssignmentOptimizer.Option::seats));
+        if (options.size() > SINGLE_OPTIONS) {
+            options = new ArrayList<>(options.subList(0, SINGLE_OPTIONS));
+        }
+
+        if (key.partySize() > 1) {
+            long[] allowed = new long[snapshot.adjacency().words()];
+            for (int index : snapshot.tablesIn(key.zone())) {
+                allowed[index >>> 6] |= 1L << index;
+            }
+            int requestMask = ScoringKernel.requestMask(
+                    new SearchRequest(null, key.partySize(), key.zone(), false, false, false, false));
+            for (MergeGroupSearch.Group group : new MergeGroupSearch(snapshot, requestMask, key.partySize(),
+                    maxGroupSize, MERGED_OPTIONS).run(allowed)) {
+                int seats = 0;
+                for (int member : group.members()) {
+                    seats += snapshot.seats(member);
+                }
+                options.add(new BatchAssignmentOptimizer.Option(group.members(), seats));
+            }
+        }
+        options.sort(Comparator.comparingInt(BatchAssignmentOptimizer.Option::seats)
+                .thenComparingInt(option -> option.tables().length));
+        return options.toArray(BatchAssignmentOptimizer.Option[]::new);
+    }
+
+    private static long[][] existingBookings(ReservationBook book, LayoutSnapshot snapshot, LocalDateTime origin,
+                                             LocalDateTime horizonEnd, int ticks) {
+        int words = Math.ceilDiv(ticks, 64);
+        long[][] busy = new long[snapshot.size()][words];
+        if (book.isEmpty()) {
+            return busy;
+        }
+        for (int table = 0; table < snapshot.size(); table++) {
+            long[] schedule = busy[table];
+            book.forEachOverlapping(snapshot.id(table), origin, horizonEnd, reservation -> {
+                int from = reservation.start().isBefore(origin) ? 0 : ticksFloor(origin, reservation.start());
+                int to = Math.min(ticks, ticksCeil(origin, reservation.end()));
+                BatchAssignmentOptimizer.setRange(schedule, from, to, true);
+            });
+        }
+        return busy;
+    }
+
+    private static int ticksFloor(LocalDateTime origin, LocalDateTime time) {
+        return (int) Math.floorDiv(Duration.between(origin, time).toMinutes(), BatchAssignmentOptimizer.TICK_MINUTES);
+    }
+
+    private static int ticksCeil(LocalDateTime origin, LocalDateTime time) {
+        return (int) Math.ceilDiv(Duration.between(origin, time).toMinutes(), BatchAssignmentOptimizer.TICK_MINUTES);
+    }
+
+    private record OptionsKey(int partySize, Zone zone) {
+    }
+}
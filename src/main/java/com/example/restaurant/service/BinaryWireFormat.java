@@ -0,0 +1,279 @@
+package com.example.restaurant.service;
+
+import com.example.restaurant.model.MealSuggestion;
+import com.example.restaurant.model.SearchRequest;
+import com.example.restaurant.model.SearchResponse;
+import com.example.restaurant.model.TableInfo;
+import com.example.restaurant.model.TableRecommendation;
+import com.example.restaurant.model.Zone;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary alternative to the JSON layout and availability responses, for clients of large venues.
+ * Everything is big-endian and strings are encoded as in {@link StorageCodec}.
+ * <p>
+ * A layout is {@code int magic 'RSL1', long layout version, int n}, then column by column: {@code n} ids,
+ * {@code n} int seats, {@code n} int x, {@code n} int y and {@code n} feature bytes (bit 0 privacy, 1 window,
+ * 2 accessibility, 3 kids area, bits 5-7 zone ordinal).
+ * <p>
+ * An availability answer is {@code int magic 'RSA1', long layout version}, the request (time, int party
+ * size, byte zone ordinal or -1, preference byte), the algorithm info, a meal suggestion flag and fields,
+ * a dictionary of distinct reasons, then per row a flag byte (1 occupied, 2 recommended, 4 merged),
+ * a double score, an int reason index and the table as its int index in the layout of that version, or
+ * for a merged row a short member count and the member indexes. Table details are not repeated: the
+ * client keeps the layout and fetches it again when the version changes.
+ */
+@Service
+public class BinaryWireFormat {
+
+    public static final String MEDIA_TYPE = "application/x-restaurant-binary";
+
+    private static final int LAYOUT_MAGIC = 0x52534C31;
+    private static final int AVAILABILITY_MAGIC = 0x52534131;
+    private static final int OCCUPIED = 1;
+    private static final int RECOMMENDED = 2;
+    private static final int MERGED = 4;
+    private static final Zone[] ZONES = Zone.values();
+
+    private final VenueRegistry venues;
+
+    public BinaryWireFormat(VenueRegistry venues) {
+        this.venues = venues;
+    }
+
+    public byte[] layout(String venueId) {
+        return writeLayout(venues.shard(venueId).layout().get());
+    }
+
+    /**
+     * Encodes an availability answer against the venue's current layout. If that layout no longer has a
+     * table of the answer the search raced with a layout change, and the client is told to ask again.
+     */
+    public byte[] availability(String venueId, SearchResponse response) {
+        LayoutSnapshot snapshot = venues.shard(venueId).layout().get();
+        return write(out -> {
+            out.writeInt(AVAILABILITY_MAGIC);
+            out.writeLong(snapshot.version());
+            SearchRequest request = response.request();
+            StorageCodec.writeTime(out, request.dateTime());
+            out.writeInt(request.partySize());
+            out.writeByte(request.zone() == null ? -1 : request.zone().ordinal());
+            out.writeByte((request.privacy() ? ScoringKernel.PRIVACY : 0)
+                    | (request.window() ? ScoringKernel.WINDOW : 0)
+                    | (request.accessibility() ? ScoringKernel.ACCESSIBILITY : 0)
+                    | (request.kidsArea() ? ScoringKernel.KIDS_AREA : 0));
+            StorageCodec.writeString(out, response.algorithmInfo());
+            MealSuggestion meal = response.mealSuggestion();
+            out.writeBoolean(meal != null);
+            if (meal != null) {
+                StorageCodec.writeString(out, meal.name());
+                StorageCodec.writeString(out, meal.category());
+                StorageCodec.writeString(out, meal.thumbnail());
+                StorageCodec.writeString(out, meal.sourceUrl());
+                out.writeBoolean(meal.fallback());
+            }
+
+            Map<String, Integer> reasons = new HashMap<>();
+            List<String> dictionary = new ArrayList<>();
+            for (TableRecommendation row : response.tables()) {
+                if (reasons.putIfAbsent(row.reason(), dictionary.size()) == null) {
+                    dictionary.add(row.reason());
+                }
+            }
+            out.writeInt(dictionary.size());
+            for (String reason : dictionary) {
+                StorageCodec.writeString(out, reason);
+            }
+            out.writeInt(response.tables().size());
+            for (TableRecommendation row : response.tables()) {
+                out.writeByte((row.occupied() ? OCCUPIED : 0)
+                        | (row.recommended() ? RECOMMENDED : 0)
+                        | (row.merged() ? MERGED : 0));
+                out.writeDouble(row.score());
+                out.writeInt(reasons.get(row.reason()));
+                if (row.merged()) {
+                    out.writeShort(row.mergedTableIds().size());
+                    for (String tableId : row.mergedTableIds()) {
+                        out.writeInt(index(snapshot, tableId));
+                    }
+                } else {
+                    out.writeInt(index(snapshot, row.table().id()));
+                }
+            }
+        });
+    }
+
+    /**
+     * Sized up front and written into one buffer: a layout is thousands of small fields.
+     */
+    static byte[] writeLayout(LayoutSnapshot snapshot) {
+        LayoutColumns columns = snapshot.columns();
+        int size = columns.size();
+        byte[][] ids = new byte[size][];
+        int length = Integer.BYTES + Long.BYTES + Integer.BYTES + size * (4 * Integer.BYTES + 1);
+        for (int i = 0; i < size; i++) {
+            ids[i] = columns.id(i).getBytes(StandardCharsets.UTF_8);
+            length += ids[i].length;
+        }
+        ByteBuffer out = ByteBuffer.allocate(length);
+        out.putInt(LAYOUT_MAGIC).putLong(snapshot.version()).putInt(size);
+        for (byte[] id : ids) {
+            out.putInt(id.length).put(id);
+        }
+        for (int i = 0; i < size; i++) {
+            out.putInt(columns.seats(i));
+        }
+        for (int i = 0; i < size; i++) {
+            out.putInt(columns.x(i));
+        }
+        for (int i = 0; i < size; i++) {
+            out.putInt(columns.y(i));
+        }
+        for (int i = 0; i < size; i++) {
+            out.put((byte) columns.features(i));
+        }
+        return out.array();
+    }
+
+    /**
+     * Layout version of an encoded layout or availability answer.
+     */
+    public static long layoutVersion(byte[] message) {
+        return ByteBuffer.wrap(message).getLong(Integer.BYTES);
+    }
+
+    public static List<TableInfo> readLayout(byte[] message) {
+        return readLayoutColumns(message).tables();
+    }
+
+    static LayoutColumns readLayoutColumns(byte[] message) {
+        ByteBuffer in = open(message, LAYOUT_MAGIC);
+        try {
+            int size = in.getInt();
+            String[] ids = new String[size];
+            int[] seats = new int[size];
+            int[] xs = new int[size];
+            int[] ys = new int[size];
+            int[] features = new int[size];
+            for (int i = 0; i < size; i++) {
+                ids[i] = StorageCodec.readString(in);
+            }
+            for (int i = 0; i < size; i++) {
+                seats[i] = in.getInt();
+            }
+            for (int i = 0; i < size; i++) {
+                xs[i] = in.getInt();
+            }
+            for (int i = 0; i < size; i++) {
+                ys[i] = in.getInt();
+            }
+            for (int i = 0; i < size; i++) {
+                features[i] = in.get() & 0xFF;
+            }
+            if (in.hasRemaining()) {
+                throw new IllegalArgumentException(in.remaining() + " bytes after the layout");
+            }
+            return new LayoutColumns(ids, seats, xs, ys, features);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated layout", e);
+        }
+    }
+
+    /**
+     * Decodes an availability answer; {@code layout} must be the layout of the answer's version.
+     */
+    public static SearchResponse readAvailability(byte[] message, List<TableInfo> layout) {
+        ByteBuffer in = open(message, AVAILABILITY_MAGIC);
+        LayoutColumns columns = LayoutColumns.of(layout);
+        try {
+            LocalDateTime dateTime = StorageCodec.readTime(in);
+            int partySize = in.getInt();
+            byte zone = in.get();
+            byte preferences = in.get();
+            SearchRequest request = new SearchRequest(dateTime, partySize, zone < 0 ? null : ZONES[zone],
+                    (preferences & ScoringKernel.PRIVACY) != 0,
+                    (preferences & ScoringKernel.WINDOW) != 0,
+                    (preferences & ScoringKernel.ACCESSIBILITY) != 0,
+                    (preferences & ScoringKernel.KIDS_AREA) != 0);
+            String algorithmInfo = StorageCodec.readString(in);
+            MealSuggestion meal = in.get() == 0 ? null : new MealSuggestion(StorageCodec.readString(in),
+                    StorageCodec.readString(in), StorageCodec.readString(in), StorageCodec.readString(in),
+                    in.get() != 0);
+
+            String[] reasons = new String[in.getInt()];
+            for (int i = 0; i < reasons.length; i++) {
+                reasons[i] = StorageCodec.readString(in);
+            }
+            int rows = in.getInt();
+            List<TableRecommendation> tables = new ArrayList<>(rows);
+            for (int i = 0; i < rows; i++) {
+                int flags = in.get();
+                double score = in.getDouble();
+                String reason = reasons[in.getInt()];
+                if ((flags & MERGED) != 0) {
+                    int[] members = new int[in.getShort()];
+                    List<String> ids = new ArrayList<>(members.length);
+                    for (int m = 0; m < members.length; m++) {
+                        members[m] = in.getInt();
+                        ids.add(columns.id(members[m]));
+                    }
+                    tables.add(new TableRecommendation(columns.merged(members), (flags & OCCUPIED) != 0,
+                            (flags & RECOMMENDED) != 0, score, reason, true, ids));
+                } else {
+                    tables.add(new TableRecommendation(layout.get(in.getInt()), (flags & OCCUPIED) != 0,
+                            (flags & RECOMMENDED) != 0, score, reason, false, List.of()));
+                }
+            }
+            return new SearchResponse(request, tables, algorithmInfo, meal);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated availability answer", e);
+        }
+    }
+
+    private static int index(LayoutSnapshot snapshot, String tableId) {
+        int index = snapshot.indexOf(tableId);
+        if (index < 0) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Saali paigutus muutus, proovi uuesti");
+        }
+        return index;
+    }
+
+    private static ByteBuffer open(byte[] message, int magic) {
+        ByteBuffer in = ByteBuffer.wrap(message);
+        if (message.length < Integer.BYTES + Long.BYTES || in.getInt() != magic) {
+            throw new IllegalArgumentException("Not a " + (magic == LAYOUT_MAGIC ? "layout" : "availability") + " message");
+        }
+        in.getLong();
+        return in;
+    }
+
+    private static byte[] write(Writer writer) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(4096);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            writer.write(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    @FunctionalInterface
+    private interface Writer {
+        void write(DataOutputStream out) throws IOException;
+    }
+}
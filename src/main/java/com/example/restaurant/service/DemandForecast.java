@@ -0,0 +1,286 @@
+package com.example.restaurant.service;
+
+import com.example.restaurant.model.Reservation;
+
+import java.time.Clock;
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Learns how busy every table is per weekday and {@link OccupancySimulator#SLOT_MINUTES}-minute slot from
+ * the bookings of one venue, as it goes. Each table has one counter per slot of the week; a booking adds
+ * its week's weight to the counters of the slots it covers and a cancellation takes it away again, so an
+ * update touches only those counters. Weights double every {@link #HALF_LIFE_WEEKS} weeks, which makes
+ * older weeks count exponentially less without ever decaying the counters themselves (forward decay);
+ * the occasional rescale keeps the numbers small. A booking weighs as of the week of its visit, but never
+ * later than the week it was made in, so a booking far ahead neither outweighs the history nor counts
+ * the weeks up to its visit as seen.
+ * <p>
+ * The occupancy rate of a slot is its counter divided by the weight of all weeks seen, blended with the
+ * fixed lunch and dinner {@link #prior} worth {@link #PRIOR_WEEKS} weeks, so a venue without history
+ * behaves exactly as before.
+ * <p>
+ * Bookings only queue their change, so concurrent bookings do not wait on the forecast; the queue is
+ * folded into the counters when a model is built or once {@link #MAX_PENDING} changes have piled up.
+ */
+final class DemandForecast {
+
+    static final int SLOTS_PER_WEEK = 7 * OccupancySimulator.SLOTS_PER_DAY;
+    static final int HALF_LIFE_WEEKS = 8;
+    static final double PRIOR_WEEKS = 4;
+
+    /**
+     * A booking longer than a week would only hit the same counters again.
+     */
+    private static final int MAX_SLOTS_PER_BOOKING = SLOTS_PER_WEEK;
+    private static final long RESCALE_AFTER_WEEKS = 8L * HALF_LIFE_WEEKS;
+    private static final double GROWTH = Math.pow(2, 1.0 / HALF_LIFE_WEEKS);
+    private static final int MAX_PENDING = 4096;
+
+    private final Clock clock;
+    private final Queue<Change> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final AtomicLong version = new AtomicLong();
+    private final ReentrantLock lock = new ReentrantLock();
+    // Counters and weeks below are only touched while holding lock.
+    private final Map<String, float[]> counters = new HashMap<>();
+    /**
+     * Week each booking of a later visit was made in, so its cancellation takes away the same weight.
+     */
+    private final Map<Long, Long> madeInWeek = new HashMap<>();
+    private long landmarkWeek;
+    private long firstWeek = Long.MAX_VALUE;
+    private long lastWeek = Long.MIN_VALUE;
+    private volatile Model model;
+
+    DemandForecast() {
+        this(Clock.systemDefaultZone());
+    }
+
+    DemandForecast(Clock clock) {
+        this.clock = clock;
+    }
+
+    void booked(Reservation reservation) {
+        enqueue(new Change(reservation, 1, currentWeek()));
+    }
+
+    void cancelled(Reservation reservation) {
+        enqueue(new Change(reservation, -1, currentWeek()));
+    }
+
+    private long currentWeek() {
+        return week(Math.floorDiv(epochMinute(LocalDateTime.now(clock)), OccupancySimulator.SLOT_MINUTES));
+    }
+
+    private void enqueue(Change change) {
+        pending.add(change);
+        version.incrementAndGet();
+        if (pendingCount.incrementAndGet() >= MAX_PENDING && lock.tryLock()) {
+            try {
+                drain();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Folds in the changes queued so far. Changes queued meanwhile wait for the next drain, so a drainer
+     * never chases faster bookers.
+     */
+    private void drain() {
+        for (int left = pendingCount.get(); left > 0; left--) {
+            Change change = pending.poll();
+            if (change == null) {
+                return;
+            }
+            pendingCount.decrementAndGet();
+            record(change);
+        }
+    }
+
+    private void record(Change change) {
+        Reservation reservation = change.reservation();
+        int sign = change.sign();
+        long madeWeek = change.week();
+        if (sign < 0) {
+            madeWeek = madeInWeek.getOrDefault(reservation.id(), madeWeek);
+            madeInWeek.remove(reservation.id());
+        }
+        long firstSlot = Math.floorDiv(epochMinute(reservation.start()), OccupancySimulator.SLOT_MINUTES);
+        long endSlot = Math.min(firstSlot + MAX_SLOTS_PER_BOOKING,
+                -Math.floorDiv(-epochMinute(reservation.end()), OccupancySimulator.SLOT_MINUTES));
+        if (endSlot <= firstSlot) {
+            return;
+        }
+        if (sign > 0) {
+            if (week(endSlot - 1) > madeWeek) {
+                madeInWeek.put(reservation.id(), madeWeek);
+            }
+            observe(Math.min(week(firstSlot), madeWeek));
+            observe(Math.min(week(endSlot - 1), madeWeek));
+        }
+        for (long slot = firstSlot; slot < endSlot; slot++) {
+            float weight = (float) (sign * weight(Math.min(week(slot), madeWeek)));
+            int weekSlot = weekSlot(slot);
+            for (String tableId : reservation.tableIds()) {
+                counters.computeIfAbsent(tableId, ignored -> new float[SLOTS_PER_WEEK])[weekSlot] += weight;
+            }
+        }
+    }
+
+    private void observe(long week) {
+        if (firstWeek == Long.MAX_VALUE) {
+            landmarkWeek = week;
+        }
+        firstWeek = Math.min(firstWeek, week);
+        lastWeek = Math.max(lastWeek, week);
+        if (lastWeek - landmarkWeek > RESCALE_AFTER_WEEKS) {
+            float scale = (float) Math.pow(GROWTH, landmarkWeek - lastWeek);
+            for (float[] row : counters.values()) {
+                for (int i = 0; i < row.length; i++) {
+                    row[i] *= scale;
+                }
+            }
+            landmarkWeek = lastWeek;
+        }
+    }
+
+    private double weight(long week) {
+        return Math.pow(GROWTH, week - landmarkWeek);
+    }
+
+    /**
+     * Immutable copy of the forecast. The copy is reused until something changed and it is older than
+     * {@code maxAgeNanos}, so readers see rates that stay put for a while instead of moving with every booking.
+     */
+    Model model(long maxAgeNanos) {
+        Model current = model;
+        if (current != null && (current.version == version.get() || System.nanoTime() - current.builtAt < maxAgeNanos)) {
+            return current;
+        }
+        lock.lock();
+        try {
+            current = model;
+            long now = System.nanoTime();
+            if (current != null && (current.version == version.get() || now - current.builtAt < maxAgeNanos)) {
+                return current;
+            }
+            long seenVersion = version.get();
+            drain();
+            model = build(seenVersion, now);
+            return model;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Model build(long seenVersion, long now) {
+        double priorWeight = 0;
+        double scale = 0;
+        Map<String, float[]> rows = new HashMap<>(counters.size() * 2);
+        if (firstWeek != Long.MAX_VALUE) {
+            double seen = weight(firstWeek) * (Math.pow(GROWTH, lastWeek - firstWeek + 1) - 1) / (GROWTH - 1);
+            priorWeight = PRIOR_WEEKS * weight(lastWeek);
+            scale = 1 / (seen + priorWeight);
+            priorWeight *= scale;
+            counters.forEach((tableId, row) -> rows.put(tableId, row.clone()));
+        }
+        return new Model(seenVersion, now, firstWeek == Long.MAX_VALUE ? 1 : priorWeight, scale, rows);
+    }
+
+    /**
+     * Slot of the week, Monday 00:00 being 0.
+     */
+    private static int weekSlot(long epochSlot) {
+        // The epoch day was a Thursday, three days after a Monday.
+        return Math.floorMod(epochSlot + 3L * OccupancySimulator.SLOTS_PER_DAY, SLOTS_PER_WEEK);
+    }
+
+    private static long week(long epochSlot) {
+        return Math.floorDiv(epochSlot + 3L * OccupancySimulator.SLOTS_PER_DAY, SLOTS_PER_WEEK);
+    }
+
+    private static long epochMinute(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC) / 60;
+    }
+
+    /**
+     * The fixed load model used before any history: busier at lunch and dinner and on Friday and Saturday.
+     */
+    static double prior(DayOfWeek dayOfWeek, int slotOfDay) {
+        int hour = slotOfDay * OccupancySimulator.SLOT_MINUTES / 60;
+        double load = (hour >= 12 && hour <= 14) || (hour >= 18 && hour <= 21) ? 0.55 : 0.3;
+        if (dayOfWeek == DayOfWeek.FRIDAY || dayOfWeek == DayOfWeek.SATURDAY) {
+            load += 0.1;
+        }
+        return load;
+    }
+
+    /**
+     * @param week week the change was made in
+     */
+    private record Change(Reservation reservation, int sign, long week) {
+    }
+
+    /**
+     * Occupancy rates at one point in time.
+     */
+    static final class Model {
+
+        private final long version;
+        private final long builtAt;
+        private final double priorWeight;
+        private final double scale;
+        private final Map<String, float[]> rows;
+
+        private Model(long version, long builtAt, double priorWeight, double scale, Map<String, float[]> rows) {
+            this.version = version;
+            this.builtAt = builtAt;
+            this.priorWeight = priorWeight;
+            this.scale = scale;
+            this.rows = rows;
+        }
+
+        long version() {
+            return version;
+        }
+
+        /**
+         * Share of every rate that comes from booking history rather than from the prior.
+         */
+        double learnedShare() {
+            return 1 - priorWeight;
+        }
+
+        /**
+         * Counters of one table for {@link #rate(float[], DayOfWeek, int)}; null for a table never booked.
+         */
+        float[] row(String tableId) {
+            return rows.get(tableId);
+        }
+
+        double rate(float[] row, DayOfWeek dayOfWeek, int slotOfDay) {
+            double prior = priorWeight * prior(dayOfWeek, slotOfDay);
+            if (row == null) {
+                return prior;
+            }
+            int weekSlot = (dayOfWeek.getValue() - 1) * OccupancySimulator.SLOTS_PER_DAY + slotOfDay;
+            return Math.max(0, Math.min(1, row[weekSlot] * scale + prior));
+        }
+
+        double rate(String tableId, LocalDateTime dateTime) {
+            return rate(row(tableId), dateTime.getDayOfWeek(),
+                    (dateTime.getHour() * 60 + dateTime.getMinute()) / OccupancySimulator.SLOT_MINUTES);
+        }
+    }
+}
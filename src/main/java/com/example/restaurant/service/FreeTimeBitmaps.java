@@ -0,0 +1,196 @@
+package com.example.restaurant.service;
+
+import com.example.restaurant.model.Reservation;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Free time of a venue's tables over a horizon, one bit per {@link OccupancySimulator#SLOT_MINUTES}-minute
+ * slot. Bit {@code i} of a table's bitmap is set when a whole visit starting at slot {@code i} fits on that
+ * table, so "can any of these tables take the party" is an OR of bitmaps and "can this merged group take
+ * it" an AND, a word at a time.
+ */
+final class FreeTimeBitmaps {
+
+    private final LocalDateTime start;
+    private final int slots;
+    private final int words;
+    private final long[][] free;
+
+    private FreeTimeBitmaps(LocalDateTime start, int slots, long[][] free) {
+        this.start = start;
+        this.slots = slots;
+        this.words = TableAdjacencyIndex.wordsFor(slots);
+        this.free = free;
+    }
+
+    /**
+     * Bitmaps of {@code tables} for visits of {@code visitSlots} slots starting in the {@code slots} slots
+     * from {@code start}, which must lie on a slot boundary. Tables are taken by real bookings, by
+     * {@code held} (tentative bookings not in the book) and, when {@code season} is given, by simulated
+     * load; the season must cover the horizon and the visit that may run past it.
+     */
+    static FreeTimeBitmaps build(LayoutSnapshot snapshot, ReservationBook book, OccupancySimulator.Season season,
+                                 Collection<Reservation> held, int[] tables, LocalDateTime start, int slots,
+                                 int visitSlots) {
+        int span = slots + visitSlots - 1;
+        LocalDateTime end = start.plusMinutes((long) span * OccupancySimulator.SLOT_MINUTES);
+        long firstSlot = start.toLocalDate().toEpochDay() * OccupancySimulator.SLOTS_PER_DAY
+                + (start.getHour() * 60 + start.getMinute()) / OccupancySimulator.SLOT_MINUTES;
+        long[][] free = new long[snapshot.size()][];
+        for (int table : tables) {
+            long[] occupied = new long[TableAdjacencyIndex.wordsFor(span)];
+            if (season != null) {
+                season.orOccupied(table, firstSlot, span, occupied);
+            }
+            String tableId = snapshot.id(table);
+            book.forEachOverlapping(tableId, start, end, reservation -> markTaken(occupied, start, span, reservation));
+            for (Reservation reservation : held) {
+                if (reservation.tableIds().contains(tableId) && reservation.start().isBefore(end)
+                        && reservation.end().isAfter(start)) {
+                    markTaken(occupied, start, span, reservation);
+                }
+            }
+            for (int w = 0; w < occupied.length; w++) {
+                occupied[w] = ~occupied[w];
+            }
+            clearFrom(occupied, span);
+            long[] visits = runStarts(occupied, visitSlots);
+            clearFrom(visits, slots);
+            free[table] = Arrays.copyOf(visits, TableAdjacencyIndex.wordsFor(slots));
+        }
+        return new FreeTimeBitmaps(start, slots, free);
+    }
+
+    private static void markTaken(long[] occupied, LocalDateTime start, int span, Reservation reservation) {
+        long from = Math.floorDiv(ChronoUnit.MINUTES.between(start, reservation.start()), OccupancySimulator.SLOT_MINUTES);
+        long to = -Math.floorDiv(-ChronoUnit.MINUTES.between(start, reservation.end()), OccupancySimulator.SLOT_MINUTES);
+        setRange(occupied, (int) Math.max(0, from), (int) Math.min(span, to));
+    }
+
+    LocalDateTime slotStart(int slot) {
+        return start.plusMinutes((long) slot * OccupancySimulator.SLOT_MINUTES);
+    }
+
+    int slots() {
+        return slots;
+    }
+
+    boolean isFree(int table, int slot) {
+        return (free[table][slot >>> 6] & (1L << slot)) != 0;
+    }
+
+    /**
+     * Slots at which at least one of {@code tables} is free.
+     */
+    long[] anyFree(int[] tables) {
+        long[] any = new long[words];
+        for (int table : tables) {
+            long[] bits = free[table];
+            for (int w = 0; w < words; w++) {
+                any[w] |= bits[w];
+            }
+        }
+        return any;
+    }
+
+    /**
+     * Slots at which every one of {@code tables} is free.
+     */
+    long[] allFree(int[] tables) {
+        long[] all = new long[words];
+        Arrays.fill(all, -1L);
+        for (int table : tables) {
+            long[] bits = free[table];
+            for (int w = 0; w < words; w++) {
+                all[w] &= bits[w];
+            }
+        }
+        clearFrom(all, slots);
+        return all;
+    }
+
+    /**
+     * Bits that start a run of at least {@code length} set bits. Each round ANDs the runs found so far
+     * with themselves shifted by up to their own length, so it takes log2(length) word passes.
+     */
+    static long[] runStarts(long[] bits, int length) {
+        long[] runs = bits.clone();
+        int covered = 1;
+        while (covered < length) {
+            int step = Math.min(covered, length - covered);
+            long[] shifted = shiftDown(runs, step);
+            for (int w = 0; w < runs.length; w++) {
+                runs[w] &= shifted[w];
+            }
+            covered += step;
+        }
+        return runs;
+    }
+
+    /**
+     * Bit {@code i} of the result is bit {@code i + distance} of {@code bits}.
+     */
+    static long[] shiftDown(long[] bits, int distance) {
+        long[] shifted = new long[bits.length];
+        int wordShift = distance >>> 6;
+        int bitShift = distance & 63;
+        for (int w = 0; w < bits.length; w++) {
+            int source = w + wordShift;
+            long low = source < bits.length ? bits[source] : 0;
+            long high = source + 1 < bits.length ? bits[source + 1] : 0;
+            shifted[w] = bitShift == 0 ? low : (low >>> bitShift) | (high << (64 - bitShift));
+        }
+        return shifted;
+    }
+
+    /**
+     * ORs the low {@code length} bits of {@code value} into {@code target} starting at bit {@code offset},
+     * which may be negative; bits that land outside {@code [0, limit)} are dropped.
+     */
+    static void orBits(long[] target, int offset, long value, int length, int limit) {
+        long bits = length >= 64 ? value : value & ((1L << length) - 1);
+        if (offset < 0) {
+            if (offset <= -64) {
+                return;
+            }
+            bits >>>= -offset;
+            offset = 0;
+        }
+        if (offset >= limit || bits == 0) {
+            return;
+        }
+        if (limit - offset < 64) {
+            bits &= (1L << (limit - offset)) - 1;
+        }
+        int word = offset >>> 6;
+        int shift = offset & 63;
+        target[word] |= bits << shift;
+        if (shift != 0 && word + 1 < target.length) {
+            target[word + 1] |= bits >>> (64 - shift);
+        }
+    }
+
+    static void setRange(long[] bits, int from, int to) {
+        for (int bit = from; bit < to; ) {
+            int word = bit >>> 6;
+            int end = Math.min(to, (word + 1) << 6);
+            long mask = (end - bit == 64 ? -1L : ((1L << (end - bit)) - 1)) << bit;
+            bits[word] |= mask;
+            bit = end;
+        }
+    }
+
+    private static void clearFrom(long[] bits, int from) {
+        if (from >= bits.length << 6) {
+            return;
+        }
+        bits[from >>> 6] &= (1L << from) - 1;
+        for (int w = (from >>> 6) + 1; w < bits.length; w++) {
+            bits[w] = 0;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.restaurant.service;
+
+import com.example.restaurant.model.TableInfo;
+import com.example.restaurant.model.Zone;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * A floor plan stored column by column: the table at index {@code i} is {@code ids[i]}, {@code seats[i]},
+ * {@code xs[i]}, {@code ys[i]} and the {@link ScoringKernel} feature mask {@code features[i]}, which also
+ * carries the zone. Apart from the id strings there is no object per table; {@link TableInfo} records are
+ * only made for the tables a caller actually asks for.
+ */
+final class LayoutColumns {
+
+    private final String[] ids;
+    private final int[] seats;
+    private final int[] xs;
+    private final int[] ys;
+    private final int[] features;
+    private final List<TableInfo> view = new TableView();
+
+    LayoutColumns(String[] ids, int[] seats, int[] xs, int[] ys, int[] features) {
+        this.ids = ids;
+        this.seats = seats;
+        this.xs = xs;
+        this.ys = ys;
+        this.features = features;
+    }
+
+    static LayoutColumns of(List<TableInfo> tables) {
+        int size = tables.size();
+        String[] ids = new String[size];
+        int[] seats = new int[size];
+        int[] xs = new int[size];
+        int[] ys = new int[size];
+        int[] features = new int[size];
+        for (int i = 0; i < size; i++) {
+            TableInfo table = tables.get(i);
+            ids[i] = table.id();
+            seats[i] = table.seats();
+            xs[i] = table.x();
+            ys[i] = table.y();
+            features[i] = ScoringKernel.features(table);
+        }
+        return new LayoutColumns(ids, seats, xs, ys, features);
+    }
+
+    int size() {
+        return ids.length;
+    }
+
+    String id(int index) {
+        return ids[index];
+    }
+
+    int seats(int index) {
+        return seats[index];
+    }
+
+    int x(int index) {
+        return xs[index];
+    }
+
+    int y(int index) {
+        return ys[index];
+    }
+
+    int features(int index) {
+        return features[index];
+    }
+
+    Zone zone(int index) {
+        return ScoringKernel.zone(features[index]);
+    }
+
+    /**
+     * The coordinate columns; shared, must not be modified.
+     */
+    int[] xs() {
+        return xs;
+    }
+
+    int[] ys() {
+        return ys;
+    }
+
+    TableInfo table(int index) {
+        int mask = features[index];
+        return new TableInfo(ids[index], seats[index], ScoringKernel.zone(mask), xs[index], ys[index],
+                (mask & ScoringKernel.PRIVACY) != 0,
+                (mask & ScoringKernel.WINDOW) != 0,
+                (mask & ScoringKernel.ACCESSIBILITY) != 0,
+                (mask & ScoringKernel.KIDS_AREA) != 0);
+    }
+
+    /**
+     * The tables as an unmodifiable list whose elements are made on access.
+     */
+    List<TableInfo> tables() {
+        return view;
+    }
+
+    /**
+     * One table standing for the group {@code members}: seats summed, placed at their mean position, in
+     * the first member's zone, with every feature any member has, and the ids joined with {@code +}.
+     */
+    TableInfo merged(int[] members) {
+        StringBuilder id = new StringBuilder();
+        int totalSeats = 0;
+        long sumX = 0;
+        long sumY = 0;
+        int mask = 0;
+        for (int member : members) {
+            if (!id.isEmpty()) {
+                id.append('+');
+            }
+            id.append(ids[member]);
+            totalSeats += seats[member];
+            sumX += xs[member];
+            sumY += ys[member];
+            mask |= features[member] & ScoringKernel.PREFERENCES;
+        }
+        return new TableInfo(id.toString(), totalSeats, zone(members[0]),
+                (int) Math.round((double) sumX / members.length),
+                (int) Math.round((double) sumY / members.length),
+                (mask & ScoringKernel.PRIVACY) != 0,
+                (mask & ScoringKernel.WINDOW) != 0,
+                (mask & ScoringKernel.ACCESSIBILITY) != 0,
+                (mask & ScoringKernel.KIDS_AREA) != 0);
+    }
+
+    private final class TableView extends AbstractList<TableInfo> implements RandomAccess {
+
+        @Override
+        public TableInfo get(int index) {
+            return table(index);
+        }
+
+        @Override
+        public int size() {
+            return ids.length;
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package com.example.restaurant.service;
+
+import com.example.restaurant.model.LayoutImportResult;
+import com.example.restaurant.model.TableInfo;
+import com.example.restaurant.model.Zone;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Replaces a venue's whole floor plan from a JSON array or CSV file of tables. Input is read one table
+ * at a time, every table is validated, and tables standing closer than the minimum distance are found
+ * with a grid sweep: each table is compared with the tables in the cells around it only, not with every
+ * other table. Nothing is published unless the whole file is valid.
+ */
+@Service
+public class LayoutImportService {
+
+    static final String[] CSV_COLUMNS = {"id", "seats", "zone", "x", "y", "privacy", "window", "accessibility", "kidsArea"};
+    /**
+     * The first five columns must be present in a CSV header.
+     */
+    static final int REQUIRED_CSV_COLUMNS = 5;
+
+    private static final int MAX_SEATS = 100;
+    private static final int MAX_ID_LENGTH = 64;
+    private static final int MAX_REPORTED_ERRORS = 5;
+
+    private final RecommendationService recommendationService;
+    private final ObjectReader tableReader;
+    private final ObjectMapper objectMapper;
+    private final int maxTables;
+    private final double minTableDistance;
+
+    public LayoutImportService(RecommendationService recommendationService,
+                               ObjectMapper objectMapper,
+                               @Value("${restaurant.layout.max-tables:10000}") int maxTables,
+                               @Value("${restaurant.layout.min-table-distance:60}") double minTableDistance) {
+        if (!(minTableDistance > 0)) {
+            throw new IllegalArgumentException("restaurant.layout.min-table-distance must be positive");
+        }
+        this.recommendationService = recommendationService;
+        this.objectMapper = objectMapper;
+        this.tableReader = objectMapper.readerFor(TableInfo.class);
+        this.maxTables = maxTables;
+        this.minTableDistance = minTableDistance;
+    }
+
+    public LayoutImportResult importJson(String venueId, InputStream body) {
+        long started = System.nanoTime();
+        return publish(venueId, readJson(body), started);
+    }
+
+    public LayoutImportResult importCsv(String venueId, InputStream body) {
+        long started = System.nanoTime();
+        return publish(venueId, readCsv(body), started);
+    }
+
+    private LayoutImportResult publish(String venueId, List<TableInfo> tables, long started) {
+        validate(tables);
+        LayoutImportResult result = recommendationService.replaceLayout(venueId, tables);
+        return new LayoutImportResult(result.layoutVersion(), result.tables(), result.added(), result.removed(),
+                result.changed(), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    private List<TableInfo> readJson(InputStream body) {
+        List<TableInfo> tables = new ArrayList<>();
+        try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Paigutus peab olema laudade JSON-massiiv");
+            }
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                checkCount(tables.size() + 1);
+                tables.add(tableReader.readValue(parser));
+            }
+            if (parser.currentToken() != JsonToken.END_ARRAY) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Vigane JSON: massiivi element " + (tables.size() + 1) + " ei ole laud");
+            }
+        } catch (JsonProcessingException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Vigane JSON laua " + (tables.size() + 1) + " juures: " + e.getOriginalMessage());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return tables;
+    }
+
+    /**
+     * Reads a CSV file with a header row naming the columns in any order; id, seats, zone, x and y are
+     * required, missing feature columns are false. Fields are plain comma-separated values without quoting.
+     */
+    private List<TableInfo> readCsv(InputStream body) {
+        List<TableInfo> tables = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            String header = reader.readLine();
+            if (header == null || header.isBlank()) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "CSV päiserida puudub");
+            }
+            int[] columns = csvColumns(header.replace("\uFEFF", ""));
+            int lineNumber = 1;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                checkCount(tables.size() + 1);
+                tables.add(csvTable(line.split(",", -1), columns, lineNumber));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return tables;
+    }
+
+    /**
+     * Position of every {@link #CSV_COLUMNS} entry in the header, or -1 for an absent optional column.
+     */
+    private static int[] csvColumns(String header) {
+        Map<String, Integer> positions = new HashMap<>();
+        String[] names = header.split(",", -1);
+        for (int i = 0; i < names.length; i++) {
+            positions.put(names[i].trim().toLowerCase(Locale.ROOT), i);
+        }
+        int[] columns = new int[CSV_COLUMNS.length];
+        for (int i = 0; i < CSV_COLUMNS.length; i++) {
+            columns[i] = positions.getOrDefault(CSV_COLUMNS[i].toLowerCase(Locale.ROOT), -1);
+            if (columns[i] < 0 && i < REQUIRED_CSV_COLUMNS) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "CSV päisest puudub veerg " + CSV_COLUMNS[i]);
+            }
+        }
+        return columns;
+    }
+
+    private static TableInfo csvTable(String[] fields, int[] columns, int lineNumber) {
+        String[] values = new String[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            if (columns[i] >= 0) {
+                if (columns[i] >= fields.length) {
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "CSV rida " + lineNumber + ": liiga vähe veerge");
+                }
+                values[i] = fields[columns[i]].trim();
+            }
+        }
+        try {
+            return new TableInfo(
+                    values[0],
+                    Integer.parseInt(values[1]),
+                    Zone.valueOf(values[2].toUpperCase(Locale.ROOT)),
+                    Integer.parseInt(values[3]),
+                    Integer.parseInt(values[4]),
+                    flag(values[5]),
+                    flag(values[6]),
+                    flag(values[7]),
+                    flag(values[8])
+            );
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "CSV rida " + lineNumber + ": vigane väärtus");
+        }
+    }
+
+    private static boolean flag(String value) {
+        if (value == null || value.isEmpty() || value.equalsIgnoreCase("false") || value.equals("0")) {
+            return false;
+        }
+        if (value.equalsIgnoreCase("true") || value.equals("1")) {
+            return true;
+        }
+        throw new IllegalArgumentException(value);
+    }
+
+    private void checkCount(int count) {
+        if (count > maxTables) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Liiga palju laudu, maksimum on " + maxTables);
+        }
+    }
+
+    void validate(List<TableInfo> tables) {
+        if (tables.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Paigutuses peab olema vähemalt üks laud");
+        }
+        Set<String> ids = new HashSet<>(tables.size() * 2);
+        for (TableInfo table : tables) {
+            if (table.id() == null || table.id().isBlank() || table.id().length() > MAX_ID_LENGTH) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Laua tunnus peab olema 1 kuni " + MAX_ID_LENGTH + " märki");
+            }
+            if (!ids.add(table.id())) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Laud " + table.id() + " on paigutuses mitu korda");
+            }
+            if (table.seats() < 1 || table.seats() > MAX_SEATS) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Laual " + table.id() + " peab olema 1 kuni " + MAX_SEATS + " kohta");
+            }
+            if (table.zone() == null) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Laual " + table.id() + " puudub tsoon");
+            }
+            if (Math.abs(table.x()) > RecommendationService.MAX_COORDINATE
+                    || Math.abs(table.y()) > RecommendationService.MAX_COORDINATE) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Laua " + table.id() + " koordinaadid peavad jääma vahemikku ±" + RecommendationService.MAX_COORDINATE);
+            }
+        }
+        List<String> collisions = collisions(tables.toArray(TableInfo[]::new));
+        if (!collisions.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Lauad on üksteisele lähemal kui " + (int) minTableDistance + " px: " + String.join("; ", collisions));
+        }
+    }
+
+    /**
+     * Pairs of tables closer than the minimum distance, up to {@link #MAX_REPORTED_ERRORS}. With cells as
+     * wide as that distance, each table only needs the 3x3 cells around it.
+     */
+    private List<String> collisions(TableInfo[] tables) {
+        SpatialGrid grid = SpatialGrid.build(tables, minTableDistance);
+        List<String> collisions = new ArrayList<>();
+        for (int i = 0; i < tables.length && collisions.size() < MAX_REPORTED_ERRORS; i++) {
+            int table = i;
+            grid.forEachWithin(grid.x(table), grid.y(table), minTableDistance, other -> {
+                if (other > table && collisions.size() < MAX_REPORTED_ERRORS
+                        && grid.distance(other, grid.x(table), grid.y(table)) < minTableDistance) {
+                    collisions.add(tables[table].id() + " ja " + tables[other].id());
+                }
+            });
+        }
+        return collisions;
+    }
+}
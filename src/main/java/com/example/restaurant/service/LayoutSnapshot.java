@@ -0,0 +1,200 @@
+package com.example.restaurant.service;
+
+import com.example.restaurant.model.TableInfo;
+import com.example.restaurant.model.Zone;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable, versioned view of the floor plan. Readers grab one snapshot per request and never see a
+ * half-applied layout; writers build a complete new snapshot and publish it atomically. The version
+ * changes on every publish and can key downstream caches. Tables are held as {@link LayoutColumns}.
+ */
+final class LayoutSnapshot {
+
+    static final double ADJACENCY_THRESHOLD = 190;
+
+    private static final int[] NO_TABLES = new int[0];
+
+    private final long version;
+    private final LayoutColumns columns;
+    private final List<String> tableIds;
+    private final Map<String, Integer> indexById;
+    private final Map<Zone, int[]> zoneIndex;
+    private final int[] allIndexes;
+    private final SpatialGrid grid;
+    private final TableAdjacencyIndex adjacency;
+
+    private LayoutSnapshot(long version, LayoutColumns columns, List<String> tableIds, SpatialGrid grid,
+                           TableAdjacencyIndex adjacency) {
+        this.version = version;
+        this.columns = columns;
+        this.tableIds = tableIds;
+        this.grid = grid;
+        this.adjacency = adjacency;
+
+        int size = columns.size();
+        Map<String, Integer> ids = new HashMap<>(size * 2);
+        Map<Zone, int[]> zones = new EnumMap<>(Zone.class);
+        int[] zoneCounts = new int[Zone.values().length];
+        for (int i = 0; i < size; i++) {
+            ids.put(columns.id(i), i);
+            zoneCounts[columns.zone(i).ordinal()]++;
+        }
+        for (Zone zone : Zone.values()) {
+            zones.put(zone, new int[zoneCounts[zone.ordinal()]]);
+        }
+        Arrays.fill(zoneCounts, 0);
+        for (int i = 0; i < size; i++) {
+            Zone zone = columns.zone(i);
+            zones.get(zone)[zoneCounts[zone.ordinal()]++] = i;
+        }
+        this.indexById = Map.copyOf(ids);
+        this.zoneIndex = zones;
+        this.allIndexes = new int[size];
+        Arrays.setAll(allIndexes, i -> i);
+    }
+
+    static LayoutSnapshot initial(List<TableInfo> tables) {
+        return restore(1, tables);
+    }
+
+    static LayoutSnapshot initial(LayoutColumns columns) {
+        return build(1, columns);
+    }
+
+    /**
+     * Rebuilds a snapshot read back from storage under its original version.
+     */
+    static LayoutSnapshot restore(long version, List<TableInfo> tables) {
+        return build(version, LayoutColumns.of(tables));
+    }
+
+    private static LayoutSnapshot build(long version, LayoutColumns columns) {
+        SpatialGrid grid = SpatialGrid.build(columns.xs(), columns.ys(), ADJACENCY_THRESHOLD);
+        List<String> ids = new ArrayList<>(columns.size());
+        for (int i = 0; i < columns.size(); i++) {
+            ids.add(columns.id(i));
+        }
+        return new LayoutSnapshot(version, columns, Collections.unmodifiableList(ids), grid,
+                TableAdjacencyIndex.build(grid, ADJACENCY_THRESHOLD));
+    }
+
+    /**
+     * Builds the successor snapshot. When the same tables keep their order, the grid and adjacency index
+     * are updated for the tables that moved only; any other change rebuilds them.
+     */
+    LayoutSnapshot next(List<TableInfo> tables) {
+        LayoutColumns nextColumns = LayoutColumns.of(tables);
+        int[] moved = movedTables(nextColumns);
+        if (moved == null) {
+            return build(version + 1, nextColumns);
+        }
+        if (moved.length == 0) {
+            return new LayoutSnapshot(version + 1, nextColumns, tableIds, grid, adjacency);
+        }
+        SpatialGrid nextGrid = grid.move(nextColumns.xs(), nextColumns.ys(), moved);
+        return new LayoutSnapshot(version + 1, nextColumns, tableIds, nextGrid,
+                adjacency.moved(nextGrid, moved, ADJACENCY_THRESHOLD));
+    }
+
+    /**
+     * Indexes whose coordinates differ in {@code next}, or null when the table ids or their order changed.
+     */
+    private int[] movedTables(LayoutColumns next) {
+        if (next.size() != columns.size()) {
+            return null;
+        }
+        int[] moved = new int[next.size()];
+        int count = 0;
+        for (int i = 0; i < next.size(); i++) {
+            if (!next.id(i).equals(columns.id(i))) {
+                return null;
+            }
+            if (next.x(i) != columns.x(i) || next.y(i) != columns.y(i)) {
+                moved[count++] = i;
+            }
+        }
+        return Arrays.copyOf(moved, count);
+    }
+
+    long version() {
+        return version;
+    }
+
+    int size() {
+        return columns.size();
+    }
+
+    /**
+     * The table at {@code index} as a record made on each call; loops that need a single attribute should
+     * use {@link #id}, {@link #seats} or {@link #features} instead.
+     */
+    TableInfo table(int index) {
+        return columns.table(index);
+    }
+
+    String id(int index) {
+        return columns.id(index);
+    }
+
+    int seats(int index) {
+        return columns.seats(index);
+    }
+
+    /**
+     * Packed {@link ScoringKernel} feature mask of the table at {@code index}.
+     */
+    int features(int index) {
+        return columns.features(index);
+    }
+
+    List<TableInfo> tables() {
+        return columns.tables();
+    }
+
+    LayoutColumns columns() {
+        return columns;
+    }
+
+    /**
+     * Table ids in index order. Successors that keep the same tables in the same order share this very
+     * list, so an identity check tells whether data keyed by table index still applies.
+     */
+    List<String> tableIds() {
+        return tableIds;
+    }
+
+    int indexOf(String tableId) {
+        Integer index = indexById.get(tableId);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * Table indexes in the given zone, or every table when {@code zone} is null. The returned array is
+     * shared and must not be modified.
+     */
+    int[] tablesIn(Zone zone) {
+        if (zone == null) {
+            return allIndexes;
+        }
+        return zoneIndex.getOrDefault(zone, NO_TABLES);
+    }
+
+    /**
+     * Spatial index over the table coordinates, with cells {@link #ADJACENCY_THRESHOLD} wide.
+     */
+    SpatialGrid grid() {
+        return grid;
+    }
+
+    TableAdjacencyIndex adjacency() {
+        return adjacency;
+    }
+}
@@ -1,40 +1,201 @@
 package com.example.restaurant.service;
 
+import com.example.restaurant.model.MealPoolStats;
 import com.example.restaurant.model.MealSuggestion;
-import org.springframework.boot.web.client.RestTemplateBuilder;
-import org.springframework.http.ResponseEntity;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.web.client.RestClient;
 
+import java.net.http.HttpClient;
 import java.time.Duration;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Serves meal suggestions from a bounded ring of pre-fetched meals. A background task keeps the ring
+ * filled from TheMealDB, so {@link #suggestMeal()} never waits on the network. Outbound calls go
+ * through a JDK {@link HttpClient} running on virtual threads. Pool size, suggestions served from the pool
+ * or as fallback, and refreshes are published as {@code restaurant.meal.*} meters.
+ */
 @Service
 public class MealSuggestionService {
 
-    private static final String RANDOM_MEAL_URL = "https://www.themealdb.com/api/json/v1/1/random.php";
+    static final String RANDOM_MEAL_URL = "https://www.themealdb.com/api/json/v1/1/random.php";
 
-    private final RestTemplate restTemplate;
+    private final ExecutorService httpExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final HttpClient httpClient;
+    private final RestClient restClient;
+    private final String mealUrl;
+    private final Duration refreshInterval;
+    private final Duration maxBackoff;
+    private final AtomicReferenceArray<MealSuggestion> pool;
+    private final AtomicInteger filled = new AtomicInteger();
+    private final AtomicInteger readCursor = new AtomicInteger();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder refreshes = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final AtomicLong lastRefreshNanos = new AtomicLong();
+    private final AtomicLong totalRefreshNanos = new AtomicLong();
+    private final Timer refreshTimer;
+    private final ScheduledExecutorService scheduler =
+            Executors.newSingleThreadScheduledExecutor(Thread.ofVirtual().name("meal-pool-refresh").factory());
 
-    public MealSuggestionService(RestTemplateBuilder builder) {
-        this.restTemplate = builder
-                .setConnectTimeout(Duration.ofSeconds(2))
-                .setReadTimeout(Duration.ofSeconds(2))
+    private int writeCursor;
+    private volatile long backoffMillis;
+
+    public MealSuggestionService(RestClient.Builder builder, String mealUrl, int poolSize, Duration refreshInterval,
+                                 Duration maxBackoff) {
+        this(new SimpleMeterRegistry(), builder, mealUrl, poolSize, refreshInterval, maxBackoff);
+    }
+
+    @Autowired
+    public MealSuggestionService(MeterRegistry registry,
+                                 RestClient.Builder builder,
+                                 @Value("${restaurant.meal.url:" + RANDOM_MEAL_URL + "}") String mealUrl,
+                                 @Value("${restaurant.meal.pool-size:8}") int poolSize,
+                                 @Value("${restaurant.meal.refresh-interval:30s}") Duration refreshInterval,
+                                 @Value("${restaurant.meal.max-backoff:5m}") Duration maxBackoff) {
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(2))
+                .executor(httpExecutor)
                 .build();
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+        requestFactory.setReadTimeout(Duration.ofSeconds(2));
+        this.restClient = builder.requestFactory(requestFactory).build();
+        this.mealUrl = mealUrl;
+        this.pool = new AtomicReferenceArray<>(Math.max(1, poolSize));
+        this.refreshInterval = refreshInterval;
+        this.maxBackoff = maxBackoff;
+
+        Gauge.builder("restaurant.meal.pool.size", filled, AtomicInteger::get)
+                .description("Meals waiting in the pre-fetched pool")
+                .register(registry);
+        FunctionCounter.builder("restaurant.meal.suggestions", hits, LongAdder::sum)
+                .description("Meal suggestions served")
+                .tag("source", "pool")
+                .register(registry);
+        FunctionCounter.builder("restaurant.meal.suggestions", misses, LongAdder::sum)
+                .description("Meal suggestions served")
+                .tag("source", "fallback")
+                .register(registry);
+        FunctionCounter.builder("restaurant.meal.pool.refresh.failures", failures, LongAdder::sum)
+                .description("Pool refreshes that got no meal from upstream")
+                .register(registry);
+        this.refreshTimer = Timer.builder("restaurant.meal.pool.refresh")
+                .description("Time spent fetching one meal for the pool")
+                .register(registry);
+    }
+
+    @PostConstruct
+    public void start() {
+        scheduler.execute(this::refresh);
     }
 
+    /**
+     * Stops the refresh task and the HTTP client, then the executor its requests ran on, which the
+     * client does not shut down itself.
+     */
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdownNow();
+        httpClient.shutdownNow();
+        httpExecutor.shutdownNow();
+    }
+
+    /**
+     * Returns the next meal from the pool without blocking. Falls back to the house suggestion only
+     * while the pool is still empty (e.g. right after startup or during a long upstream outage).
+     */
     public MealSuggestion suggestMeal() {
+        int available = filled.get();
+        if (available == 0) {
+            misses.increment();
+            return fallback();
+        }
+        hits.increment();
+        return pool.get(Math.floorMod(readCursor.getAndIncrement(), available));
+    }
+
+    public MealPoolStats stats() {
+        long refreshCount = refreshes.sum();
+        return new MealPoolStats(
+                filled.get(),
+                pool.length(),
+                hits.sum(),
+                misses.sum(),
+                refreshCount,
+                failures.sum(),
+                TimeUnit.NANOSECONDS.toMillis(lastRefreshNanos.get()),
+                refreshCount == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalRefreshNanos.get() / refreshCount),
+                backoffMillis
+        );
+    }
+
+    private void refresh() {
+        long delayMillis;
+        long started = System.nanoTime();
+        MealSuggestion meal = fetchMeal();
+        long elapsed = System.nanoTime() - started;
+        refreshes.increment();
+        refreshTimer.record(elapsed, TimeUnit.NANOSECONDS);
+        lastRefreshNanos.set(elapsed);
+        totalRefreshNanos.addAndGet(elapsed);
+
+        if (meal == null) {
+            failures.increment();
+            backoffMillis = backoffMillis == 0
+                    ? 1000
+                    : Math.min(backoffMillis * 2, maxBackoff.toMillis());
+            delayMillis = backoffMillis;
+        } else {
+            backoffMillis = 0;
+            pool.set(writeCursor, meal);
+            writeCursor = (writeCursor + 1) % pool.length();
+            if (filled.get() < pool.length()) {
+                filled.incrementAndGet();
+                delayMillis = 0;
+            } else {
+                delayMillis = refreshInterval.toMillis();
+            }
+        }
+
+        try {
+            scheduler.schedule(this::refresh, delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException ex) {
+            // service is shutting down
+        }
+    }
+
+    private MealSuggestion fetchMeal() {
         try {
-            ResponseEntity<Map> response = restTemplate.getForEntity(RANDOM_MEAL_URL, Map.class);
-            Object mealsObject = response.getBody() == null ? null : response.getBody().get("meals");
+            Map<?, ?> body = restClient.get().uri(mealUrl).retrieve().body(Map.class);
+            Object mealsObject = body == null ? null : body.get("meals");
             if (!(mealsObject instanceof List<?> meals) || meals.isEmpty()) {
-                return fallback();
+                return null;
             }
 
             Object firstMeal = meals.getFirst();
             if (!(firstMeal instanceof Map<?, ?> meal)) {
-                return fallback();
+                return null;
             }
 
             return new MealSuggestion(
@@ -45,7 +206,7 @@ public class MealSuggestionService {
                     false
             );
         } catch (Exception ex) {
-            return fallback();
+            return null;
         }
     }
 
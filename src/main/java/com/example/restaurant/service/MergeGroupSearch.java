@@ -0,0 +1,268 @@
+package com.example.restaurant.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Branch-and-bound search for the best connected groups of tables that seat a party. Groups are grown
+ * from their lowest-index seed (ESU order, so every group is reached at most once) and a branch is cut
+ * as soon as the tables still reachable from it cannot seat the party, or its score upper bound cannot
+ * beat the worst group kept so far. There is no size cap unless one is configured.
+ */
+final class MergeGroupSearch {
+
+    private final LayoutSnapshot snapshot;
+    private final TableAdjacencyIndex index;
+    private final int requestMask;
+    private final int partySize;
+    private final int maxGroupSize;
+    private final int limit;
+    private final PriorityQueue<Group> kept;
+
+    private int[] reachableSeats;
+    private int[] reachablePreferences;
+    private int minSeats;
+    private int[] members;
+    private long[][] extension;
+    private long[][] closed;
+    private long[] allowed;
+    private long examined;
+    private long seated;
+
+    /**
+     * @param maxGroupSize largest group to consider; zero or less means no limit
+     * @param limit        number of groups to keep
+     */
+    MergeGroupSearch(LayoutSnapshot snapshot, int requestMask, int partySize, int maxGroupSize, int limit) {
+        this.snapshot = snapshot;
+        this.index = snapshot.adjacency();
+        this.requestMask = requestMask;
+        this.partySize = partySize;
+        this.maxGroupSize = maxGroupSize;
+        this.limit = limit;
+        this.kept = new PriorityQueue<>(limit + 1, Group.ORDER.reversed());
+    }
+
+    /**
+     * Runs the search over the {@code allowed} tables and returns the best groups, best first.
+     */
+    List<Group> run(long[] allowed) {
+        int available = 0;
+        for (long word : allowed) {
+            available += Long.bitCount(word);
+        }
+        int maxSize = maxGroupSize <= 0 ? available : Math.min(maxGroupSize, available);
+        if (maxSize < 2 || limit <= 0) {
+            return List.of();
+        }
+        this.allowed = allowed;
+        this.members = new int[maxSize];
+        this.extension = new long[maxSize][];
+        this.closed = new long[maxSize][];
+        summarizeComponents();
+
+        int words = index.words();
+        for (int seed = TableAdjacencyIndex.nextSetBit(allowed, 0); seed >= 0;
+             seed = TableAdjacencyIndex.nextSetBit(allowed, seed + 1)) {
+            if (reachableSeats[seed] < partySize) {
+                continue;
+            }
+            members[0] = seed;
+            long[] seedNeighbours = index.neighbours(seed);
+            long[] seedClosed = level(closed, 0);
+            long[] seedExtension = level(extension, 0);
+            for (int w = 0; w < words; w++) {
+                long seedBit = (seed >>> 6) == w ? 1L << seed : 0;
+                seedClosed[w] = (seedNeighbours[w] & allowed[w]) | seedBit;
+                seedExtension[w] = seedNeighbours[w] & allowed[w] & TableAdjacencyIndex.above(seed, w);
+            }
+            extend(1, maxSize, seed, snapshot.seats(seed), snapshot.features(seed), 0);
+        }
+
+        List<Group> best = new ArrayList<>(kept);
+        best.sort(Group.ORDER);
+        return best;
+    }
+
+    /**
+     * Connected groups visited, including the ones that were too small.
+     */
+    long examined() {
+        return examined;
+    }
+
+    /**
+     * Visited groups with enough seats for the party.
+     */
+    long seated() {
+        return seated;
+    }
+
+    private void extend(int size, int maxSize, int seed, int seats, int features, int excludedSeats) {
+        if (size >= 2) {
+            examined++;
+            if (seats >= partySize) {
+                seated++;
+                offer(size, seats, features);
+            }
+        }
+        if (size == maxSize || !worthGrowing(size, seed, seats, features, excludedSeats)) {
+            return;
+        }
+        long[] currentExtension = extension[size - 1];
+        long[] currentClosed = closed[size - 1];
+        long[] nextExtension = level(extension, size);
+        long[] nextClosed = level(closed, size);
+        int words = index.words();
+        for (int candidate = TableAdjacencyIndex.nextSetBit(currentExtension, 0); candidate >= 0;
+             candidate = TableAdjacencyIndex.nextSetBit(currentExtension, candidate + 1)) {
+            currentExtension[candidate >>> 6] &= ~(1L << candidate);
+            long[] candidateNeighbours = index.neighbours(candidate);
+            for (int w = 0; w < words; w++) {
+                long fresh = candidateNeighbours[w] & allowed[w] & ~currentClosed[w];
+                nextExtension[w] = currentExtension[w] | (fresh & TableAdjacencyIndex.above(seed, w));
+                nextClosed[w] = currentClosed[w] | fresh;
+            }
+            members[size] = candidate;
+            int candidateSeats = snapshot.seats(candidate);
+            extend(size + 1, maxSize, seed, seats + candidateSeats,
+                    features | (snapshot.features(candidate) & ScoringKernel.PREFERENCES), excludedSeats);
+
+            // The candidate is now off limits for its siblings, which also makes the bounds tighter.
+            excludedSeats += candidateSeats;
+            if (!worthGrowing(size, seed, seats, features, excludedSeats)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Whether a strict supergroup of the current one can still seat the party and make the kept list.
+     */
+    private boolean worthGrowing(int size, int seed, int seats, int features, int excludedSeats) {
+        if (reachableSeats[seed] - excludedSeats < partySize) {
+            return false;
+        }
+        if (kept.size() < limit) {
+            return true;
+        }
+        double bound = ScoringKernel.mergedGrowthBound(seats, features, size, reachablePreferences[seed],
+                minSeats, requestMask, partySize);
+        Group worst = kept.peek();
+        return bound > worst.score() || (bound == worst.score() && size + 1 <= worst.members().length);
+    }
+
+    private void offer(int size, int seats, int features) {
+        double score = ScoringKernel.mergedScore(seats, features, size, requestMask, partySize);
+        Group worst = kept.peek();
+        boolean full = kept.size() == limit;
+        if (full && (score < worst.score() || (score == worst.score() && size > worst.members().length))) {
+            return;
+        }
+        int[] group = Arrays.copyOf(members, size);
+        Arrays.sort(group);
+        Group candidate = new Group(group, score);
+        if (full) {
+            if (Group.ORDER.compare(candidate, worst) >= 0) {
+                return;
+            }
+            kept.poll();
+        }
+        kept.add(candidate);
+    }
+
+    /**
+     * Per allowed table: seats and preferences of the tables in its connected component with the same
+     * or a higher index, which is everything a group seeded there can ever add.
+     */
+    private void summarizeComponents() {
+        int size = index.size();
+        int words = index.words();
+        int[] component = new int[size];
+        Arrays.fill(component, -1);
+        long[] visited = new long[words];
+        long[] frontier = new long[words];
+        int components = 0;
+        minSeats = Integer.MAX_VALUE;
+        for (int start = TableAdjacencyIndex.nextSetBit(allowed, 0); start >= 0;
+             start = TableAdjacencyIndex.nextSetBit(allowed, start + 1)) {
+            minSeats = Math.min(minSeats, snapshot.seats(start));
+            if (component[start] >= 0) {
+                continue;
+            }
+            visited[start >>> 6] |= 1L << start;
+            frontier[start >>> 6] |= 1L << start;
+            for (int next = start; next >= 0; next = TableAdjacencyIndex.nextSetBit(frontier, 0)) {
+                frontier[next >>> 6] &= ~(1L << next);
+                component[next] = components;
+                long[] nextNeighbours = index.neighbours(next);
+                for (int w = 0; w < words; w++) {
+                    long fresh = nextNeighbours[w] & allowed[w] & ~visited[w];
+                    visited[w] |= fresh;
+                    frontier[w] |= fresh;
+                }
+            }
+            components++;
+        }
+
+        int[] componentSeats = new int[components];
+        int[] componentPreferences = new int[components];
+        reachableSeats = new int[size];
+        reachablePreferences = new int[size];
+        for (int table = size - 1; table >= 0; table--) {
+            int label = component[table];
+            if (label < 0) {
+                continue;
+            }
+            componentSeats[label] += snapshot.seats(table);
+            componentPreferences[label] |= snapshot.features(table) & ScoringKernel.PREFERENCES;
+            reachableSeats[table] = componentSeats[label];
+            reachablePreferences[table] = componentPreferences[label];
+        }
+    }
+
+    private long[] level(long[][] levels, int depth) {
+        if (levels[depth] == null) {
+            levels[depth] = new long[index.words()];
+        }
+        return levels[depth];
+    }
+
+    /**
+     * One connected group, members sorted by table index.
+     */
+    record Group(int[] members, double score) {
+
+        /**
+         * Best first: higher score, then fewer tables, then lower table indexes.
+         */
+        static final Comparator<Group> ORDER = (first, second) -> {
+            int byScore = Double.compare(second.score, first.score);
+            if (byScore != 0) {
+                return byScore;
+            }
+            int bySize = Integer.compare(first.members.length, second.members.length);
+            return bySize != 0 ? bySize : Arrays.compare(first.members, second.members);
+        };
+
+        boolean isFree(boolean[] occupied) {
+            for (int member : members) {
+                if (occupied[member]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        List<String> tableIds(LayoutSnapshot snapshot) {
+            List<String> ids = new ArrayList<>(members.length);
+            for (int member : members) {
+                ids.add(snapshot.id(member));
+            }
+            return ids;
+        }
+    }
+}
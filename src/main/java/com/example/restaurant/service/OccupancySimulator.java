@@ -0,0 +1,225 @@
+package com.example.restaurant.service;
+
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * Simulated walk-in load for demos and load tests. Every table gets visits of 2-3 hours at the rate its
+ * {@link DemandForecast} gives for the weekday and slot (the lunch and dinner peaks until bookings teach
+ * it otherwise); the result is a bitmap per table with one bit per 15-minute slot,
+ * so a lookup is a bit test. Each table-day is drawn from its own SplitMix64 stream keyed by the seed,
+ * the table id and the date, so results do not depend on the range simulated or on thread scheduling.
+ */
+final class OccupancySimulator {
+
+    static final int SLOT_MINUTES = 15;
+    static final int SLOTS_PER_DAY = 24 * 60 / SLOT_MINUTES;
+    static final int MIN_FREE_TABLES = 2;
+
+    /**
+     * Words per table-day. 96 slots need a word and a half; padding to two keeps every day in words of
+     * its own, so days can be finished in parallel.
+     */
+    private static final int WORDS_PER_DAY = (SLOTS_PER_DAY + 63) >>> 6;
+    private static final int MIN_VISIT_SLOTS = 8;
+    private static final int MAX_VISIT_SLOTS = 12;
+    private static final double MEAN_VISIT_SLOTS = (MIN_VISIT_SLOTS + MAX_VISIT_SLOTS) / 2.0;
+    /**
+     * Load at which visits follow each other without gaps; the start rate below grows without bound near 1.
+     */
+    private static final double MAX_LOAD = 0.9;
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private final long seed;
+    private final int seasonDays;
+
+    /**
+     * @param seasonDays days simulated at once; lookups outside the current season simulate the next one
+     */
+    OccupancySimulator(long seed, int seasonDays) {
+        if (seasonDays < 1) {
+            throw new IllegalArgumentException("seasonDays must be positive");
+        }
+        this.seed = seed;
+        this.seasonDays = seasonDays;
+    }
+
+    /**
+     * The season holding {@code date}. Seasons are aligned to multiples of the season length since the
+     * epoch, so every date always lands in the same one.
+     */
+    Season season(LayoutSnapshot snapshot, DemandForecast.Model demand, LocalDate date) {
+        long first = Math.floorDiv(date.toEpochDay(), seasonDays) * seasonDays;
+        return simulate(snapshot, demand, LocalDate.ofEpochDay(first), seasonDays);
+    }
+
+    Season simulate(LayoutSnapshot snapshot, DemandForecast.Model demand, LocalDate from, int days) {
+        List<String> tableIds = snapshot.tableIds();
+        long firstDay = from.toEpochDay();
+        long[][] bits = new long[tableIds.size()][days * WORDS_PER_DAY];
+        IntStream.range(0, tableIds.size()).parallel().forEach(table -> {
+            long tableKey = mix(seed ^ mix(tableIds.get(table).hashCode()));
+            float[] rates = demand.row(tableIds.get(table));
+            for (int day = 0; day < days; day++) {
+                simulateDay(bits[table], day, tableKey, LocalDate.ofEpochDay(firstDay + day).getDayOfWeek(),
+                        firstDay + day, demand, rates);
+            }
+        });
+
+        Integer[] byId = new Integer[tableIds.size()];
+        Arrays.setAll(byId, i -> i);
+        Arrays.sort(byId, Comparator.comparing(tableIds::get));
+        int[] releaseOrder = Arrays.stream(byId).mapToInt(Integer::intValue).toArray();
+        IntStream.range(0, days).parallel().forEach(day -> keepTablesFree(bits, day, releaseOrder));
+        return new Season(snapshot.tableIds(), demand, firstDay, days, bits);
+    }
+
+    private static void simulateDay(long[] bits, int day, long tableKey, DayOfWeek dayOfWeek, long epochDay,
+                                    DemandForecast.Model demand, float[] rates) {
+        long state = mix(tableKey ^ (epochDay * GOLDEN_GAMMA));
+        double jitter = unit(state += GOLDEN_GAMMA) * 0.15;
+        int base = day * WORDS_PER_DAY;
+        int busyUntil = 0;
+        double openingLoad = Math.min(MAX_LOAD, demand.rate(rates, dayOfWeek, 0) + jitter);
+        if (unit(state += GOLDEN_GAMMA) < openingLoad) {
+            busyUntil = 1 + (int) ((mix(state += GOLDEN_GAMMA) >>> 1) % MAX_VISIT_SLOTS);
+        }
+        for (int slot = 0; slot < SLOTS_PER_DAY; slot++) {
+            if (slot >= busyUntil) {
+                double load = Math.min(MAX_LOAD, demand.rate(rates, dayOfWeek, slot) + jitter);
+                // Starting a visit at this rate from every free slot keeps the table busy about `load` of the time.
+                double startRate = load / (MEAN_VISIT_SLOTS * (1 - load));
+                if (unit(state += GOLDEN_GAMMA) >= startRate) {
+                    continue;
+                }
+                int length = MIN_VISIT_SLOTS
+                        + (int) ((mix(state += GOLDEN_GAMMA) >>> 1) % (MAX_VISIT_SLOTS - MIN_VISIT_SLOTS + 1));
+                busyUntil = slot + length;
+            }
+            bits[base + (slot >>> 6)] |= 1L << slot;
+        }
+    }
+
+    /**
+     * Releases tables in id order wherever fewer than {@link #MIN_FREE_TABLES} would be free.
+     */
+    private static void keepTablesFree(long[][] bits, int day, int[] releaseOrder) {
+        int base = day * WORDS_PER_DAY;
+        int wanted = Math.min(MIN_FREE_TABLES, bits.length);
+        for (int slot = 0; slot < SLOTS_PER_DAY; slot++) {
+            int word = base + (slot >>> 6);
+            long bit = 1L << slot;
+            int free = 0;
+            for (long[] table : bits) {
+                if ((table[word] & bit) == 0 && ++free >= wanted) {
+                    break;
+                }
+            }
+            for (int i = 0; free < wanted && i < releaseOrder.length; i++) {
+                long[] table = bits[releaseOrder[i]];
+                if ((table[word] & bit) != 0) {
+                    table[word] &= ~bit;
+                    free++;
+                }
+            }
+        }
+    }
+
+    /**
+     * SplitMix64 output function.
+     */
+    static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static double unit(long state) {
+        return (mix(state) >>> 11) * 0x1.0p-53;
+    }
+
+    /**
+     * Simulated occupancy of one layout's tables over consecutive days.
+     */
+    static final class Season {
+
+        private final List<String> tableIds;
+        private final DemandForecast.Model demand;
+        private final long firstDay;
+        private final int days;
+        private final long[][] bits;
+
+        private Season(List<String> tableIds, DemandForecast.Model demand, long firstDay, int days, long[][] bits) {
+            this.tableIds = tableIds;
+            this.demand = demand;
+            this.firstDay = firstDay;
+            this.days = days;
+            this.bits = bits;
+        }
+
+        /**
+         * Whether this season was simulated for the snapshot's tables and includes {@code date}.
+         */
+        boolean covers(LayoutSnapshot snapshot, LocalDate date) {
+            long day = date.toEpochDay() - firstDay;
+            return tableIds == snapshot.tableIds() && day >= 0 && day < days;
+        }
+
+        boolean isOccupied(int table, LocalDateTime dateTime) {
+            int slot = (dateTime.getHour() * 60 + dateTime.getMinute()) / SLOT_MINUTES;
+            int word = (int) (dateTime.toLocalDate().toEpochDay() - firstDay) * WORDS_PER_DAY + (slot >>> 6);
+            return (bits[table][word] & (1L << slot)) != 0;
+        }
+
+        /**
+         * Whether the season was drawn from these occupancy rates.
+         */
+        boolean simulatedWith(DemandForecast.Model model) {
+            return demand == model;
+        }
+
+        /**
+         * Whether both seasons were drawn from the same occupancy rates.
+         */
+        boolean simulatedLike(Season other) {
+            return demand == other.demand;
+        }
+
+        /**
+         * Whether the season also includes every day from {@code from} to {@code to}.
+         */
+        boolean covers(LayoutSnapshot snapshot, LocalDate from, LocalDate to) {
+            return covers(snapshot, from) && covers(snapshot, to);
+        }
+
+        /**
+         * ORs the occupancy of {@code table} in the {@code slots} slots from {@code firstSlot} (counted from
+         * the epoch) into {@code target}, two words per day.
+         */
+        void orOccupied(int table, long firstSlot, int slots, long[] target) {
+            long firstDayInRange = Math.max(firstDay, Math.floorDiv(firstSlot, SLOTS_PER_DAY));
+            long lastDay = Math.min(firstDay + days - 1, Math.floorDiv(firstSlot + slots - 1, SLOTS_PER_DAY));
+            for (long day = firstDayInRange; day <= lastDay; day++) {
+                int word = (int) (day - firstDay) * WORDS_PER_DAY;
+                int offset = (int) (day * SLOTS_PER_DAY - firstSlot);
+                FreeTimeBitmaps.orBits(target, offset, bits[table][word], 64, slots);
+                FreeTimeBitmaps.orBits(target, offset + 64, bits[table][word + 1], SLOTS_PER_DAY - 64, slots);
+            }
+        }
+
+        void collectOccupied(LocalDateTime dateTime, Set<String> occupied) {
+            for (int table = 0; table < bits.length; table++) {
+                if (isOccupied(table, dateTime)) {
+                    occupied.add(tableIds.get(table));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.restaurant.service;
+
+import com.example.restaurant.model.Zone;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-phase timers for availability searches, tagged by phase, party-size band and zone. Every timer
+ * is registered up front, so recording on the hot path is an array lookup plus one histogram update;
+ * a disabled instance skips even the clock reads.
+ */
+@Component
+public class RecommendationMetrics {
+
+    enum Phase {
+        OCCUPANCY, SCORING, EXACT_CAPACITY, MERGE_SEARCH, MEAL
+    }
+
+    private static final int[] PARTY_BAND_LIMITS = {2, 4, 6, 10};
+    private static final String[] PARTY_BANDS = {"1-2", "3-4", "5-6", "7-10", "11+"};
+    private static final int ALL_ZONES = Zone.values().length;
+
+    private final boolean enabled;
+    private final Timer[][][] timers;
+    private final Counter groupsExamined;
+    private final Counter groupsSeated;
+
+    @Autowired
+    public RecommendationMetrics(MeterRegistry registry) {
+        this.enabled = true;
+        this.timers = new Timer[Phase.values().length][PARTY_BANDS.length][ALL_ZONES + 1];
+        for (Phase phase : Phase.values()) {
+            for (int band = 0; band < PARTY_BANDS.length; band++) {
+                for (int zone = 0; zone <= ALL_ZONES; zone++) {
+                    timers[phase.ordinal()][band][zone] = Timer.builder("restaurant.recommend.phase")
+                            .description("Time spent in one phase of an availability search")
+                            .tag("phase", phase.name().toLowerCase(Locale.ROOT))
+                            .tag("party_size", PARTY_BANDS[band])
+                            .tag("zone", zone == ALL_ZONES ? "ALL" : Zone.values()[zone].name())
+                            .publishPercentileHistogram()
+                            .minimumExpectedValue(Duration.ofNanos(500))
+                            .maximumExpectedValue(Duration.ofSeconds(2))
+                            .register(registry);
+                }
+            }
+        }
+        this.groupsExamined = Counter.builder("restaurant.merge.groups.examined")
+                .description("Connected table groups enumerated by the merge search")
+                .register(registry);
+        this.groupsSeated = Counter.builder("restaurant.merge.groups.seated")
+                .description("Enumerated groups with enough seats for the party")
+                .register(registry);
+    }
+
+    private RecommendationMetrics() {
+        this.enabled = false;
+        this.timers = null;
+        this.groupsExamined = null;
+        this.groupsSeated = null;
+    }
+
+    public static RecommendationMetrics disabled() {
+        return new RecommendationMetrics();
+    }
+
+    /**
+     * Start of the first phase; pass the result to {@link #record}.
+     */
+    long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Records the phase that began at {@code startedNanos} and returns the start of the next one.
+     */
+    long record(Phase phase, int partySize, Zone zone, long startedNanos) {
+        if (!enabled) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        timers[phase.ordinal()][partyBand(partySize)][zone == null ? ALL_ZONES : zone.ordinal()]
+                .record(now - startedNanos, TimeUnit.NANOSECONDS);
+        return now;
+    }
+
+    void mergeGroups(long examined, long seated) {
+        if (enabled) {
+            groupsExamined.increment(examined);
+            groupsSeated.increment(seated);
+        }
+    }
+
+    private static int partyBand(int partySize) {
+        for (int band = 0; band < PARTY_BAND_LIMITS.length; band++) {
+            if (partySize <= PARTY_BAND_LIMITS[band]) {
+                return band;
+            }
+        }
+        return PARTY_BAND_LIMITS.length;
+    }
+}
@@ -1,327 +1,914 @@
 package com.example.restaurant.service;
 
+import com.example.restaurant.model.AvailabilityGrid;
+import com.example.restaurant.model.AvailabilitySlot;
+import com.example.restaurant.model.LayoutImportResult;
 import com.example.restaurant.model.MealSuggestion;
+import com.example.restaurant.model.NextAvailability;
+import com.example.restaurant.model.OccupancyForecast;
+import com.example.restaurant.model.Reservation;
+import com.example.restaurant.model.ReservationRequest;
 import com.example.restaurant.model.SearchRequest;
 import com.example.restaurant.model.SearchResponse;
+import com.example.restaurant.model.TableForecast;
 import com.example.restaurant.model.TableInfo;
 import com.example.restaurant.model.TableLayoutUpdate;
 import com.example.restaurant.model.TableRecommendation;
 import com.example.restaurant.model.Zone;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
 
-import java.time.DayOfWeek;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
+import java.util.Optional;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
 
 @Service
 public class RecommendationService {
 
-    private static final double ADJACENCY_THRESHOLD = 190;
-
-    private static final List<TableInfo> BASE_TABLES = List.of(
-            new TableInfo("T1", 2, Zone.INDOOR, 80, 90, true, true, true, false),
-            new TableInfo("T2", 2, Zone.INDOOR, 200, 90, false, false, true, true),
-            new TableInfo("T3", 4, Zone.INDOOR, 330, 90, false, true, true, false),
-            new TableInfo("T4", 4, Zone.INDOOR, 470, 90, true, false, false, false),
-            new TableInfo("T5", 6, Zone.INDOOR, 600, 90, false, false, true, true),
-            new TableInfo("T6", 2, Zone.TERRACE, 100, 240, true, true, false, false),
-            new TableInfo("T7", 4, Zone.TERRACE, 250, 240, false, true, false, false),
-            new TableInfo("T8", 6, Zone.TERRACE, 420, 240, false, true, false, true),
-            new TableInfo("T9", 8, Zone.PRIVATE_ROOM, 590, 240, true, false, true, false),
-            new TableInfo("T10", 10, Zone.PRIVATE_ROOM, 360, 380, true, false, true, true)
-    );
+    static final int DEFAULT_MAX_GROUP_SIZE = 0;
+    static final int GRID_MERGE_ALTERNATIVES = 16;
+    static final int DEFAULT_VISIT_MINUTES = 150;
+    static final long DEFAULT_OCCUPANCY_SEED = 42;
+    static final int DEFAULT_OCCUPANCY_SEASON_DAYS = 92;
+    static final int MAX_GRID_SLOTS = 7 * 24 * 4;
+    static final int MAX_COORDINATE = 1_000_000;
+    static final int MAX_NEXT_AVAILABLE_HOURS = 14 * 24;
+    static final int MAX_NEXT_AVAILABLE_RESULTS = 100;
+    static final int NEXT_AVAILABLE_MERGE_ALTERNATIVES = 32;
+    static final Duration DEFAULT_FORECAST_REFRESH = Duration.ofMinutes(1);
+    static final double DEFAULT_HOLD_THRESHOLD = 0.8;
+    static final String HELD_REASON = " · tavaliselt hõivatud, hoitakse tagavaraks";
 
     private final MealSuggestionService mealSuggestionService;
-    private final Map<String, TableInfo> tableLayout = new ConcurrentHashMap<>();
+    private final VenueRegistry venues;
+    private final RecommendationMetrics metrics;
+    private final int maxGroupSize;
+    private final boolean simulateOccupancy;
+    private final OccupancySimulator occupancySimulator;
+    private final int visitMinutes;
+    private final long forecastRefreshNanos;
+    private final double holdThreshold;
+    private final List<Consumer<String>> changeListeners = new CopyOnWriteArrayList<>();
+    private final List<BiConsumer<String, Reservation>> cancellationListeners = new CopyOnWriteArrayList<>();
 
     public RecommendationService(MealSuggestionService mealSuggestionService) {
-        this.mealSuggestionService = mealSuggestionService;
-        BASE_TABLES.forEach(table -> tableLayout.put(table.id(), table));
+        this(mealSuggestionService, VenueCatalog.DEMO_TABLES, RecommendationMetrics.disabled(),
+                DEFAULT_MAX_GROUP_SIZE, true, DEFAULT_VISIT_MINUTES);
     }
 
-    public SearchResponse recommend(LocalDateTime dateTime, int partySize, Zone zone,
-                                    boolean privacy, boolean window, boolean accessibility, boolean kidsArea) {
-        SearchRequest request = new SearchRequest(dateTime, partySize, zone, privacy, window, accessibility, kidsArea);
-        Set<String> occupiedIds = generateOccupiedTables(dateTime);
-        List<TableInfo> currentTables = currentTables();
+    public RecommendationService(MealSuggestionService mealSuggestionService,
+                                 VenueRegistry venues,
+                                 RecommendationMetrics metrics,
+                                 int maxGroupSize,
+                                 boolean simulateOccupancy,
+                                 int visitMinutes) {
+        this(mealSuggestionService, venues, metrics, maxGroupSize, simulateOccupancy, DEFAULT_OCCUPANCY_SEED,
+                DEFAULT_OCCUPANCY_SEASON_DAYS, visitMinutes);
+    }
 
-        List<TableRecommendation> filtered = currentTables.stream()
-                .filter(table -> zone == null || table.zone() == zone)
-                .map(table -> toRecommendation(table, request, occupiedIds.contains(table.id())))
-                .sorted(Comparator.comparing(TableRecommendation::occupied)
-                        .thenComparing(TableRecommendation::score, Comparator.reverseOrder()))
-                .collect(Collectors.toCollection(ArrayList::new));
+    public RecommendationService(MealSuggestionService mealSuggestionService,
+                                 VenueRegistry venues,
+                                 RecommendationMetrics metrics,
+                                 int maxGroupSize,
+                                 boolean simulateOccupancy,
+                                 long occupancySeed,
+                                 int occupancySeasonDays,
+                                 int visitMinutes) {
+        this(mealSuggestionService, venues, metrics, maxGroupSize, simulateOccupancy, occupancySeed,
+                occupancySeasonDays, visitMinutes, DEFAULT_FORECAST_REFRESH, DEFAULT_HOLD_THRESHOLD);
+    }
 
-        TableRecommendation bestSingle = filtered.stream()
-                .filter(t -> !t.occupied())
-                .filter(t -> t.table().seats() >= partySize)
-                .max(Comparator.comparing(TableRecommendation::score))
-                .orElse(null);
+    /**
+     * @param forecastRefresh how long learned occupancy rates may lag behind new bookings
+     * @param holdThreshold   learned occupancy rate from which a free table is held back in rankings; above 1
+     *                        nothing is held
+     */
+    @Autowired
+    public RecommendationService(MealSuggestionService mealSuggestionService,
+                                 VenueRegistry venues,
+                                 RecommendationMetrics metrics,
+                                 @Value("${restaurant.merge.max-group-size:" + DEFAULT_MAX_GROUP_SIZE + "}") int maxGroupSize,
+                                 @Value("${restaurant.occupancy.simulated:true}") boolean simulateOccupancy,
+                                 @Value("${restaurant.occupancy.seed:" + DEFAULT_OCCUPANCY_SEED + "}") long occupancySeed,
+                                 @Value("${restaurant.occupancy.season-days:" + DEFAULT_OCCUPANCY_SEASON_DAYS + "}") int occupancySeasonDays,
+                                 @Value("${restaurant.reservation.visit-minutes:" + DEFAULT_VISIT_MINUTES + "}") int visitMinutes,
+                                 @Value("${restaurant.forecast.refresh:1m}") Duration forecastRefresh,
+                                 @Value("${restaurant.forecast.hold-threshold:" + DEFAULT_HOLD_THRESHOLD + "}") double holdThreshold) {
+        this.mealSuggestionService = mealSuggestionService;
+        this.venues = venues;
+        this.metrics = metrics;
+        this.maxGroupSize = maxGroupSize;
+        this.simulateOccupancy = simulateOccupancy;
+        this.occupancySimulator = new OccupancySimulator(occupancySeed, occupancySeasonDays);
+        this.visitMinutes = visitMinutes;
+        this.forecastRefreshNanos = forecastRefresh.toNanos();
+        this.holdThreshold = holdThreshold;
+    }
 
-        boolean hasExactCapacityTable = hasExactCapacityTable(currentTables, zone, partySize);
+    RecommendationService(MealSuggestionService mealSuggestionService, List<TableInfo> tables,
+                          RecommendationMetrics metrics, int maxGroupSize, boolean simulateOccupancy,
+                          int visitMinutes) {
+        this(mealSuggestionService, new VenueRegistry(VenueCatalog.of(tables)), metrics,
+                maxGroupSize, simulateOccupancy, visitMinutes);
+    }
 
-        TableRecommendation mergedOption = null;
-        if (partySize > 1 && !hasExactCapacityTable) {
-            mergedOption = findMergedOption(request, currentTables, occupiedIds);
-            if (mergedOption != null) {
-                filtered.add(0, mergedOption);
-            }
-        }
+    public SearchResponse recommend(LocalDateTime dateTime, int partySize, Zone zone,
+                                    boolean privacy, boolean window, boolean accessibility, boolean kidsArea) {
+        return recommend(VenueCatalog.DEFAULT_VENUE, dateTime, partySize, zone, privacy, window, accessibility, kidsArea);
+    }
 
-        String bestId = bestSingle == null ? null : bestSingle.table().id();
-        List<String> mergedIds = mergedOption == null ? List.of() : mergedOption.mergedTableIds();
+    public SearchResponse recommend(String venueId, LocalDateTime dateTime, int partySize, Zone zone,
+                                    boolean privacy, boolean window, boolean accessibility, boolean kidsArea) {
+        return recommend(venueId, dateTime, partySize, zone, privacy, window, accessibility, kidsArea, false);
+    }
 
-        List<TableRecommendation> marked = filtered.stream()
-                .map(t -> new TableRecommendation(
-                        t.table(),
-                        t.occupied(),
-                        (bestId != null && t.table().id().equals(bestId)) || (!mergedIds.isEmpty() && t.merged() && t.mergedTableIds().equals(mergedIds)),
-                        t.score(),
-                        t.reason(),
-                        t.merged(),
-                        t.mergedTableIds()
-                ))
-                .toList();
+    /**
+     * A degraded answer is for when the service is overloaded: it ranks single tables only, without the
+     * merge search and without a meal suggestion.
+     */
+    public SearchResponse recommend(String venueId, LocalDateTime dateTime, int partySize, Zone zone,
+                                    boolean privacy, boolean window, boolean accessibility, boolean kidsArea,
+                                    boolean degraded) {
+        SearchRequest request = new SearchRequest(dateTime, partySize, zone, privacy, window, accessibility, kidsArea);
+        List<TableRecommendation> tables = new ArrayList<>();
+        rank(venueId, request, Integer.MAX_VALUE, !degraded).forEach(tables::add);
+        if (degraded) {
+            return new SearchResponse(request, tables, "Suure koormuse tõttu lihtsustatud vastus: " +
+                    "skoor = sobivus seltskonna suurusega + eelistuste boonused/trahvid, kokku lükatavaid laudu ei otsitud.",
+                    null);
+        }
 
+        long mealStarted = metrics.start();
         MealSuggestion mealSuggestion = mealSuggestionService.suggestMeal();
+        metrics.record(RecommendationMetrics.Phase.MEAL, partySize, zone, mealStarted);
         String info = "Skoor = sobivus seltskonna suurusega + eelistuste boonused/trahvid. " +
                 "Kui ühte lauda ei leidu, kontrollitakse kõrvuti laudu, mida saab kokku lükata. " +
                 "Hõive arvutuses eeldatakse, et külastus kestab ~2-3 tundi.";
-        return new SearchResponse(request, marked, info, mealSuggestion);
+        return new SearchResponse(request, tables, info, mealSuggestion);
     }
 
-    public List<TableInfo> currentTables() {
-        return BASE_TABLES.stream()
-                .map(table -> tableLayout.getOrDefault(table.id(), table))
-                .toList();
+    /**
+     * Same rows as {@link #recommend}, but only the best {@code limit} of them, produced one at a time
+     * for streaming. Ranking happens up front; rows are only built while they are being consumed.
+     */
+    public RankedRecommendations recommendTop(String venueId, LocalDateTime dateTime, int partySize, Zone zone,
+                                              boolean privacy, boolean window, boolean accessibility,
+                                              boolean kidsArea, int limit) {
+        if (limit <= 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Tulemuste arv peab olema positiivne");
+        }
+        return rank(venueId, new SearchRequest(dateTime, partySize, zone, privacy, window, accessibility, kidsArea),
+                limit, true);
     }
 
-    public List<TableInfo> updateLayout(List<TableLayoutUpdate> updates) {
-        Map<String, TableLayoutUpdate> updateMap = new HashMap<>();
-        updates.forEach(update -> updateMap.put(update.id(), update));
+    /**
+     * The {@code limit} best merged options (adjacent free tables pushed together) for the party, best
+     * first. Unlike {@link #recommend}, the search runs even when a single table would fit.
+     */
+    public List<TableRecommendation> mergedAlternatives(String venueId, LocalDateTime dateTime, int partySize,
+                                                        Zone zone, boolean privacy, boolean window,
+                                                        boolean accessibility, boolean kidsArea, int limit) {
+        if (limit <= 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Tulemuste arv peab olema positiivne");
+        }
+        SearchRequest request = new SearchRequest(dateTime, partySize, zone, privacy, window, accessibility, kidsArea);
+        VenueShard shard = venues.shard(venueId);
+        LayoutSnapshot snapshot = shard.layout().get();
+        return mergedOptions(snapshot, request, occupiedTables(shard, snapshot, dateTime), limit);
+    }
 
-        for (TableInfo table : BASE_TABLES) {
-            TableLayoutUpdate update = updateMap.get(table.id());
-            if (update == null) {
-                continue;
+    private RankedRecommendations rank(String venueId, SearchRequest request, int limit, boolean mergeSearch) {
+        VenueShard shard = venues.shard(venueId);
+        LayoutSnapshot snapshot = shard.layout().get();
+        int partySize = request.partySize();
+        Zone zone = request.zone();
+        long phaseStarted = metrics.start();
+        Set<String> occupiedIds = occupiedTables(shard, snapshot, request.dateTime());
+        phaseStarted = metrics.record(RecommendationMetrics.Phase.OCCUPANCY, partySize, zone, phaseStarted);
+
+        // Tables that history says are usually taken at this time are held back for walk-ins: they still
+        // rank after the other free tables and are only recommended when nothing else fits.
+        DemandForecast.Model demand = shard.reservationBook().demand().model(forecastRefreshNanos);
+        boolean holding = demand.learnedShare() > 0 && holdThreshold <= 1;
+        int requestMask = ScoringKernel.requestMask(request);
+        int[] candidates = snapshot.tablesIn(request.zone());
+        boolean[] occupied = new boolean[candidates.length];
+        boolean[] held = new boolean[candidates.length];
+        double[] scores = new double[candidates.length];
+        int bestSingle = -1;
+        int bestHeld = -1;
+        for (int i = 0; i < candidates.length; i++) {
+            int seats = snapshot.seats(candidates[i]);
+            occupied[i] = occupiedIds.contains(snapshot.id(candidates[i]));
+            boolean fits = !occupied[i] && seats >= partySize;
+            scores[i] = fits
+                    ? ScoringKernel.score(seats, snapshot.features(candidates[i]), requestMask, partySize)
+                    : -1;
+            held[i] = fits && holding && demand.rate(snapshot.id(candidates[i]), request.dateTime()) >= holdThreshold;
+            if (fits && held[i]) {
+                if (bestHeld < 0 || scores[i] > scores[bestHeld]) {
+                    bestHeld = i;
+                }
+            } else if (fits && (bestSingle < 0 || scores[i] > scores[bestSingle])) {
+                bestSingle = i;
             }
-            tableLayout.put(table.id(), new TableInfo(
-                    table.id(), table.seats(), table.zone(),
-                    update.x(), update.y(),
-                    table.privacy(), table.window(), table.accessibility(), table.kidsArea()
-            ));
         }
-        return currentTables();
-    }
 
-    private boolean hasExactCapacityTable(List<TableInfo> tables, Zone zone, int partySize) {
-        return tables.stream()
-                .filter(table -> zone == null || table.zone() == zone)
-                .anyMatch(table -> table.seats() == partySize);
+        int[] ranked = TopRanked.select(candidates.length, limit,
+                (first, second) -> occupied[first] != occupied[second]
+                        ? Boolean.compare(occupied[first], occupied[second])
+                        : held[first] != held[second]
+                        ? Boolean.compare(held[first], held[second])
+                        : scores[first] != scores[second]
+                        ? Double.compare(scores[second], scores[first])
+                        : Integer.compare(first, second));
+        phaseStarted = metrics.record(RecommendationMetrics.Phase.SCORING, partySize, zone, phaseStarted);
+
+        boolean searchMerge = mergeSearch && partySize > 1 && !hasExactCapacityTable(snapshot, zone, partySize);
+        phaseStarted = metrics.record(RecommendationMetrics.Phase.EXACT_CAPACITY, partySize, zone, phaseStarted);
+        TableRecommendation mergedOption = null;
+        if (searchMerge) {
+            mergedOption = findMergedOption(snapshot, request, occupiedIds);
+            metrics.record(RecommendationMetrics.Phase.MERGE_SEARCH, partySize, zone, phaseStarted);
+        }
+
+        TableRecommendation recommendedMerge = mergedOption == null ? null : withRecommended(mergedOption);
+        int singles = Math.min(ranked.length, recommendedMerge == null ? limit : limit - 1);
+        int recommendedSingle = bestSingle >= 0 ? bestSingle : bestHeld;
+        return action -> {
+            if (recommendedMerge != null) {
+                action.accept(recommendedMerge);
+            }
+            for (int i = 0; i < singles; i++) {
+                int position = ranked[i];
+                TableRecommendation row = recommendation(snapshot.table(candidates[position]), request,
+                        occupied[position], scores[position], position == recommendedSingle);
+                action.accept(held[position] ? withHeldReason(row) : row);
+            }
+        };
     }
 
-    private TableRecommendation findMergedOption(SearchRequest request, List<TableInfo> tables, Set<String> occupiedIds) {
-        List<TableInfo> availableTables = tables.stream()
-                .filter(table -> !occupiedIds.contains(table.id()))
-                .filter(table -> request.zone() == null || table.zone() == request.zone())
-                .toList();
+    public AvailabilityGrid availabilityGrid(LocalDateTime from, LocalDateTime to, int stepMinutes, int partySize,
+                                             Zone zone, boolean privacy, boolean window,
+                                             boolean accessibility, boolean kidsArea) {
+        return availabilityGrid(VenueCatalog.DEFAULT_VENUE, from, to, stepMinutes, partySize, zone,
+                privacy, window, accessibility, kidsArea);
+    }
 
-        if (availableTables.size() < 2) {
-            return null;
+    /**
+     * Availability for every slot between {@code from} and {@code to}. Capacity filtering, scoring and
+     * the merge-group search do not depend on the time, so they run once; each slot (evaluated in
+     * parallel) overlays its occupancy on the precomputed candidate lists and only searches merged
+     * groups again when every precomputed one is taken.
+     */
+    public AvailabilityGrid availabilityGrid(String venueId, LocalDateTime from, LocalDateTime to, int stepMinutes,
+                                             int partySize, Zone zone, boolean privacy, boolean window,
+                                             boolean accessibility, boolean kidsArea) {
+        if (stepMinutes <= 0 || to.isBefore(from)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Vigane ajavahemik või samm");
+        }
+        long slotCount = Duration.between(from, to).toMinutes() / stepMinutes + 1;
+        if (slotCount > MAX_GRID_SLOTS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Liiga palju ajapilusid (" + slotCount + "), maksimum on " + MAX_GRID_SLOTS);
         }
 
-        TableRecommendation bestOption = null;
-        int maxGroupSize = Math.min(4, availableTables.size());
-        for (int groupSize = 2; groupSize <= maxGroupSize; groupSize++) {
-            bestOption = findBestMergedCombination(request, availableTables, groupSize, bestOption);
+        SearchRequest request = new SearchRequest(from, partySize, zone, privacy, window, accessibility, kidsArea);
+        VenueShard shard = venues.shard(venueId);
+        LayoutSnapshot snapshot = shard.layout().get();
+
+        int requestMask = ScoringKernel.requestMask(request);
+        List<Integer> singleIndexes = new ArrayList<>();
+        List<Double> singleScores = new ArrayList<>();
+        for (int index : snapshot.tablesIn(zone)) {
+            int seats = snapshot.seats(index);
+            if (seats >= partySize) {
+                singleIndexes.add(index);
+                singleScores.add(ScoringKernel.score(seats, snapshot.features(index), requestMask, partySize));
+            }
         }
-        return bestOption;
+        Integer[] singleOrder = new Integer[singleIndexes.size()];
+        Arrays.setAll(singleOrder, i -> i);
+        Arrays.sort(singleOrder, Comparator.comparing(singleScores::get, Comparator.reverseOrder()));
+
+        // The best merged groups regardless of occupancy; a slot takes the first one that is free. Only
+        // when all of them are taken can a worse group be the slot's best, which needs its own search.
+        List<MergeGroupSearch.Group> mergeCandidates = List.of();
+        if (partySize > 1 && !hasExactCapacityTable(snapshot, zone, partySize)) {
+            mergeCandidates = new MergeGroupSearch(snapshot, requestMask, partySize, maxGroupSize,
+                    GRID_MERGE_ALTERNATIVES).run(allowedTables(snapshot, zone, Set.of()));
+        }
+
+        List<MergeGroupSearch.Group> merges = mergeCandidates;
+        List<AvailabilitySlot> slots = IntStream.range(0, (int) slotCount)
+                .parallel()
+                .mapToObj(slot -> {
+                    LocalDateTime dateTime = from.plusMinutes((long) slot * stepMinutes);
+                    boolean[] occupied = occupiedMask(snapshot, occupiedTables(shard, snapshot, dateTime));
+
+                    int freeTables = 0;
+                    int best = -1;
+                    for (Integer position : singleOrder) {
+                        if (!occupied[singleIndexes.get(position)]) {
+                            freeTables++;
+                            if (best < 0) {
+                                best = position;
+                            }
+                        }
+                    }
+                    MergeGroupSearch.Group merge = null;
+                    for (MergeGroupSearch.Group candidate : merges) {
+                        if (candidate.isFree(occupied)) {
+                            merge = candidate;
+                            break;
+                        }
+                    }
+                    if (merge == null && merges.size() == GRID_MERGE_ALTERNATIVES) {
+                        merge = bestMergedGroup(snapshot, requestMask, partySize, zone, occupied);
+                    }
+                    return new AvailabilitySlot(
+                            dateTime,
+                            best >= 0 || merge != null,
+                            freeTables,
+                            best < 0 ? null : snapshot.id(singleIndexes.get(best)),
+                            best < 0 ? -1 : singleScores.get(best),
+                            merge == null ? List.of() : merge.tableIds(snapshot),
+                            merge == null ? -1 : merge.score()
+                    );
+                })
+                .toList();
+        return new AvailabilityGrid(request, stepMinutes, slots);
     }
 
-        private TableRecommendation findBestMergedCombination(SearchRequest request,
-                                                          List<TableInfo> availableTables,
-                                                          int groupSize,
-                                                          TableRecommendation currentBest) {
-        int[] indexes = new int[groupSize];
-        for (int i = 0; i < groupSize; i++) {
-            indexes[i] = i;
+    /**
+     * The earliest times from {@code from} within the next {@code horizonHours} at which a whole visit fits
+     * on a single table or on one of the best merged groups. Answered from per-table free-time bitmaps
+     * rather than by searching every candidate time.
+     */
+    public NextAvailability nextAvailable(String venueId, LocalDateTime from, int horizonHours, int partySize,
+                                          Zone zone, boolean privacy, boolean window, boolean accessibility,
+                                          boolean kidsArea, int limit) {
+        if (from == null || partySize < 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Aeg ja positiivne seltskonna suurus on kohustuslikud");
+        }
+        if (horizonHours < 1 || horizonHours > MAX_NEXT_AVAILABLE_HOURS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Otsinguvahemik peab olema 1 kuni " + MAX_NEXT_AVAILABLE_HOURS + " tundi");
         }
+        if (limit < 1 || limit > MAX_NEXT_AVAILABLE_RESULTS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Tulemuste arv peab olema 1 kuni " + MAX_NEXT_AVAILABLE_RESULTS);
+        }
+        SearchRequest request = new SearchRequest(from, partySize, zone, privacy, window, accessibility, kidsArea);
+        return new NextAvailability(request, visitMinutes,
+                availableSlots(venueId, request, from.plusHours(horizonHours), limit, List.of()));
+    }
 
-        TableRecommendation best = currentBest;
-        while (true) {
-            List<TableInfo> combination = new ArrayList<>(groupSize);
-            for (int index : indexes) {
-                combination.add(availableTables.get(index));
+    /**
+     * Up to {@code limit} visit starts between the request time (rounded up to a slot) and {@code until},
+     * earliest first. Each slot names the best free single table and the best free merged group among
+     * {@link #NEXT_AVAILABLE_MERGE_ALTERNATIVES} candidates; {@code held} tables count as booked.
+     */
+    List<AvailabilitySlot> availableSlots(String venueId, SearchRequest request, LocalDateTime until, int limit,
+                                          Collection<Reservation> held) {
+        LocalDateTime start = request.dateTime().truncatedTo(ChronoUnit.MINUTES);
+        int offset = (start.getHour() * 60 + start.getMinute()) % OccupancySimulator.SLOT_MINUTES;
+        if (offset != 0) {
+            start = start.plusMinutes(OccupancySimulator.SLOT_MINUTES - offset);
+        }
+        if (until.isBefore(start)) {
+            return List.of();
+        }
+        int slots = (int) (ChronoUnit.MINUTES.between(start, until) / OccupancySimulator.SLOT_MINUTES) + 1;
+        int visitSlots = (visitMinutes + OccupancySimulator.SLOT_MINUTES - 1) / OccupancySimulator.SLOT_MINUTES;
+
+        VenueShard shard = venues.shard(venueId);
+        LayoutSnapshot snapshot = shard.layout().get();
+        int partySize = request.partySize();
+        int requestMask = ScoringKernel.requestMask(request);
+        List<Integer> singles = new ArrayList<>();
+        double[] scores = new double[snapshot.size()];
+        for (int index : snapshot.tablesIn(request.zone())) {
+            int seats = snapshot.seats(index);
+            if (seats >= partySize) {
+                singles.add(index);
+                scores[index] = ScoringKernel.score(seats, snapshot.features(index), requestMask, partySize);
             }
+        }
+        singles.sort(Comparator.<Integer>comparingDouble(index -> scores[index]).reversed()
+                .thenComparing(Comparator.naturalOrder()));
+        List<MergeGroupSearch.Group> groups = List.of();
+        if (partySize > 1 && !hasExactCapacityTable(snapshot, request.zone(), partySize)) {
+            groups = new MergeGroupSearch(snapshot, requestMask, partySize, maxGroupSize,
+                    NEXT_AVAILABLE_MERGE_ALTERNATIVES).run(allowedTables(snapshot, request.zone(), Set.of()));
+        }
 
-            if (isConnectedGroup(combination)) {
-                int totalSeats = combination.stream().mapToInt(TableInfo::seats).sum();
-                if (totalSeats >= request.partySize()) {
-                    TableInfo merged = mergeTables(combination);
-                    TableRecommendation recommendation = toRecommendation(merged, request, false);
-
-                    List<String> ids = combination.stream().map(TableInfo::id).toList();
-                    recommendation = new TableRecommendation(
-                            recommendation.table(),
-                            false,
-                            false,
-                            recommendation.score() + (8 * (groupSize - 1)),
-                            recommendation.reason() + " · Kombineeritud lauad: " + String.join(" + ", ids),
-                            true,
-                            ids
-                    );
-
-                    if (best == null || recommendation.score() > best.score()) {
-                        best = recommendation;
-                    }
-                }
+        int[] singleIndexes = singles.stream().mapToInt(Integer::intValue).toArray();
+        IntStream members = groups.stream().flatMapToInt(group -> Arrays.stream(group.members()));
+        int[] tables = IntStream.concat(Arrays.stream(singleIndexes), members).distinct().toArray();
+        LocalDateTime lastVisitEnd = start.plusMinutes((long) (slots + visitSlots - 1) * OccupancySimulator.SLOT_MINUTES);
+        OccupancySimulator.Season season = simulateOccupancy
+                ? simulatedSeason(shard, snapshot, start.toLocalDate(), lastVisitEnd.minusMinutes(1).toLocalDate())
+                : null;
+        FreeTimeBitmaps free = FreeTimeBitmaps.build(snapshot, shard.reservationBook(), season, held, tables,
+                start, slots, visitSlots);
+
+        long[] available = free.anyFree(singleIndexes);
+        long[][] groupFree = new long[groups.size()][];
+        for (int g = 0; g < groups.size(); g++) {
+            groupFree[g] = free.allFree(groups.get(g).members());
+            for (int w = 0; w < available.length; w++) {
+                available[w] |= groupFree[g][w];
             }
+        }
 
-                int next = groupSize - 1;
-            while (next >= 0 && indexes[next] == availableTables.size() - groupSize + next) {
-                next--;
+        List<AvailabilitySlot> result = new ArrayList<>();
+        for (int slot = TableAdjacencyIndex.nextSetBit(available, 0); slot >= 0 && result.size() < limit;
+             slot = TableAdjacencyIndex.nextSetBit(available, slot + 1)) {
+            int freeTables = 0;
+            int best = -1;
+            for (int index : singleIndexes) {
+                if (free.isFree(index, slot)) {
+                    freeTables++;
+                    best = best < 0 ? index : best;
+                }
             }
-            if (next < 0) {
-                break;
+            MergeGroupSearch.Group merge = null;
+            for (int g = 0; g < groups.size() && merge == null; g++) {
+                if ((groupFree[g][slot >>> 6] & (1L << slot)) != 0) {
+                    merge = groups.get(g);
+                }
             }
+            result.add(new AvailabilitySlot(
+                    free.slotStart(slot),
+                    true,
+                    freeTables,
+                    best < 0 ? null : snapshot.id(best),
+                    best < 0 ? -1 : scores[best],
+                    merge == null ? List.of() : merge.tableIds(snapshot),
+                    merge == null ? -1 : merge.score()
+            ));
+        }
+        return result;
+    }
 
-            indexes[next]++;
-            for (int i = next + 1; i < groupSize; i++) {
-                indexes[i] = indexes[i - 1] + 1;
-            }
+    /**
+     * Whether no booking on any of {@code tableIds} overlaps {@code [from, to)}.
+     */
+    boolean isUnbooked(String venueId, List<String> tableIds, LocalDateTime from, LocalDateTime to) {
+        ReservationBook book = venues.shard(venueId).reservationBook();
+        boolean[] booked = {false};
+        for (int i = 0; i < tableIds.size() && !booked[0]; i++) {
+            book.forEachOverlapping(tableIds.get(i), from, to, reservation -> booked[0] = true);
+        }
+        return !booked[0];
+    }
+
+    int visitMinutes() {
+        return visitMinutes;
+    }
+
+    public List<TableInfo> currentTables() {
+        return currentTables(VenueCatalog.DEFAULT_VENUE);
+    }
+
+    public List<TableInfo> currentTables(String venueId) {
+        return venues.shard(venueId).layout().get().tables();
+    }
+
+    public long layoutVersion(String venueId) {
+        return venues.shard(venueId).layout().get().version();
+    }
+
+    /**
+     * Changes whenever occupancy at {@code dateTime} may have: a booking covering its hour, or a newly
+     * simulated season. New learned rates alone do not change it, so table holds in cached answers may
+     * lag behind them until the entry expires, much as the rates themselves lag behind bookings.
+     */
+    public long occupancyEpoch(String venueId, LocalDateTime dateTime) {
+        VenueShard shard = venues.shard(venueId);
+        long epoch = shard.reservationBook().occupancyEpoch(dateTime);
+        return simulateOccupancy ? epoch + shard.seasonVersion() : epoch;
+    }
+
+    /**
+     * Learned occupancy rate of every table at {@code dateTime}, from all bookings so far, and whether the
+     * search currently holds it back.
+     */
+    public OccupancyForecast forecast(String venueId, LocalDateTime dateTime) {
+        VenueShard shard = venues.shard(venueId);
+        LayoutSnapshot snapshot = shard.layout().get();
+        DemandForecast.Model demand = shard.reservationBook().demand().model(0);
+        boolean holding = demand.learnedShare() > 0 && holdThreshold <= 1;
+        List<TableForecast> tables = new ArrayList<>(snapshot.size());
+        for (int i = 0; i < snapshot.size(); i++) {
+            double rate = demand.rate(snapshot.id(i), dateTime);
+            tables.add(new TableForecast(snapshot.id(i), rate, holding && rate >= holdThreshold));
         }
-        return best;
+        return new OccupancyForecast(dateTime, demand.learnedShare(), tables);
     }
 
-    private boolean isConnectedGroup(List<TableInfo> tables) {
-        Set<String> visited = new LinkedHashSet<>();
-        visited.add(tables.get(0).id());
+    /**
+     * Tables whose centre is at most {@code radius} from the point, closest first.
+     */
+    public List<TableInfo> tablesNear(String venueId, double x, double y, double radius) {
+        validateCoordinates(x, y);
+        if (!(radius >= 0)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Raadius ei tohi olla negatiivne");
+        }
+        LayoutSnapshot snapshot = venues.shard(venueId).layout().get();
+        SpatialGrid grid = snapshot.grid();
+        List<Integer> near = new ArrayList<>();
+        grid.forEachWithin(x, y, radius, near::add);
+        near.sort(Comparator.<Integer>comparingDouble(index -> grid.distance(index, x, y))
+                .thenComparing(Comparator.naturalOrder()));
+        return near.stream().map(snapshot::table).toList();
+    }
+
+    /**
+     * The free table closest to the point that seats the party on its own.
+     */
+    public TableInfo nearestFreeTable(String venueId, double x, double y, LocalDateTime dateTime, int partySize) {
+        validateCoordinates(x, y);
+        if (dateTime == null || partySize < 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Aeg ja positiivne seltskonna suurus on kohustuslikud");
+        }
+        VenueShard shard = venues.shard(venueId);
+        LayoutSnapshot snapshot = shard.layout().get();
+        boolean[] occupied = occupiedMask(snapshot, occupiedTables(shard, snapshot, dateTime));
+        int nearest = snapshot.grid().nearest(x, y,
+                index -> !occupied[index] && snapshot.seats(index) >= partySize);
+        if (nearest < 0) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Sobivat vaba lauda ei leitud");
+        }
+        return snapshot.table(nearest);
+    }
+
+    private static void validateCoordinates(double x, double y) {
+        if (!(Math.abs(x) <= MAX_COORDINATE) || !(Math.abs(y) <= MAX_COORDINATE)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Koordinaadid peavad jääma vahemikku ±" + MAX_COORDINATE);
+        }
+    }
+
+    VenueShard venueShard(String venueId) {
+        return venues.shard(venueId);
+    }
+
+    public List<TableInfo> updateLayout(List<TableLayoutUpdate> updates) {
+        return updateLayout(VenueCatalog.DEFAULT_VENUE, updates);
+    }
+
+    /**
+     * Applies all moves as one new layout snapshot. Concurrent writers retry against the latest
+     * snapshot instead of interleaving their moves. Moving a table the layout does not have fails the
+     * whole update.
+     */
+    public List<TableInfo> updateLayout(String venueId, List<TableLayoutUpdate> updates) {
+        Map<String, TableLayoutUpdate> updateMap = new HashMap<>();
+        for (TableLayoutUpdate update : updates) {
+            validateCoordinates(update.x(), update.y());
+            updateMap.put(update.id(), update);
+        }
+        List<TableInfo> tables = venues.mutate(venueId, shard -> applyLayoutUpdates(shard, updateMap));
+        changed(venueId);
+        return tables;
+    }
 
-        boolean changed = true;
-        while (changed) {
-            changed = false;
-            for (TableInfo table : tables) {
-                if (visited.contains(table.id())) {
+    private static List<TableInfo> applyLayoutUpdates(VenueShard shard, Map<String, TableLayoutUpdate> updateMap) {
+        return shard.publishLayout(current -> {
+            for (String tableId : updateMap.keySet()) {
+                if (current.indexOf(tableId) < 0) {
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Tundmatu laud " + tableId);
+                }
+            }
+            List<TableInfo> tables = new ArrayList<>(current.size());
+            boolean changed = false;
+            for (TableInfo table : current.tables()) {
+                TableLayoutUpdate update = updateMap.get(table.id());
+                if (update == null || (update.x() == table.x() && update.y() == table.y())) {
+                    tables.add(table);
                     continue;
                 }
+                tables.add(new TableInfo(
+                        table.id(), table.seats(), table.zone(),
+                        update.x(), update.y(),
+                        table.privacy(), table.window(), table.accessibility(), table.kidsArea()
+                ));
+                changed = true;
+            }
+            return changed ? current.next(tables) : current;
+        }).tables();
+    }
 
-                boolean touchesVisited = tables.stream()
-                        .filter(candidate -> visited.contains(candidate.id()))
-                        .anyMatch(candidate -> isAdjacent(candidate, table));
-                if (touchesVisited) {
-                    visited.add(table.id());
-                    changed = true;
+    /**
+     * Publishes {@code tables} as the venue's whole floor plan: tables missing from it are removed, new
+     * ones are added and the rest take their new seats, zone, features and position. The grid, adjacency
+     * and zone indexes are built before the snapshot is swapped in, so readers see either the old plan or
+     * the complete new one. The tables must already be validated; removing a table that still has
+     * bookings is refused.
+     */
+    LayoutImportResult replaceLayout(String venueId, List<TableInfo> tables) {
+        LayoutImportResult result = venues.mutate(venueId, shard -> {
+            // added, removed, changed
+            int[] counts = new int[3];
+            LayoutSnapshot next = shard.publishLayout(current -> {
+                Map<String, TableInfo> previous = new HashMap<>(current.size() * 2);
+                current.tables().forEach(table -> previous.put(table.id(), table));
+                int added = 0;
+                int changed = 0;
+                for (TableInfo table : tables) {
+                    TableInfo old = previous.remove(table.id());
+                    if (old == null) {
+                        added++;
+                    } else if (!old.equals(table)) {
+                        changed++;
+                    }
+                }
+                for (Reservation reservation : shard.reservationBook().all()) {
+                    for (String tableId : reservation.tableIds()) {
+                        if (previous.containsKey(tableId)) {
+                            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                                    "Laual " + tableId + " on broneeringuid, tühista need enne laua eemaldamist");
+                        }
+                    }
                 }
+                counts[0] = added;
+                counts[1] = previous.size();
+                counts[2] = changed;
+                return current.next(tables);
+            });
+            return new LayoutImportResult(next.version(), next.size(), counts[0], counts[1], counts[2], 0);
+        });
+        changed(venueId);
+        return result;
+    }
+
+    public Reservation createReservation(ReservationRequest request) {
+        return createReservation(VenueCatalog.DEFAULT_VENUE, request);
+    }
+
+    public Reservation createReservation(String venueId, ReservationRequest request) {
+        if (request.tableIds() == null || request.tableIds().isEmpty() || request.dateTime() == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Broneeringul peavad olema laud ja aeg");
+        }
+        if (new HashSet<>(request.tableIds()).size() != request.tableIds().size()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Sama laud on broneeringus mitu korda");
+        }
+        VenueShard shard = venues.shard(venueId);
+        LayoutSnapshot snapshot = shard.layout().get();
+        int seats = 0;
+        for (String tableId : request.tableIds()) {
+            int index = snapshot.indexOf(tableId);
+            if (index < 0) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Tundmatu laud " + tableId);
             }
+            seats += snapshot.seats(index);
+        }
+        if (request.partySize() < 1 || request.partySize() > seats) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Seltskond " + request.partySize() + " ei mahu valitud laudadesse (" + seats + " kohta)");
         }
-        return visited.size() == tables.size();
-    }
 
-    private boolean isAdjacent(TableInfo first, TableInfo second) {
-        double distance = Math.hypot(first.x() - second.x(), first.y() - second.y());
-        return distance <= ADJACENCY_THRESHOLD;
+        int duration = request.durationMinutes() == null ? visitMinutes : request.durationMinutes();
+        if (duration <= 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Broneeringu kestus peab olema positiivne");
+        }
+        Reservation reservation = venues.mutate(venueId, current -> current.reservationBook().create(
+                request.tableIds(), request.dateTime(), request.dateTime().plusMinutes(duration),
+                request.partySize(), request.customerName()));
+        changed(venueId);
+        return reservation;
     }
 
-     private TableInfo mergeTables(List<TableInfo> tables) {
-        int totalSeats = tables.stream().mapToInt(TableInfo::seats).sum();
-        int avgX = (int) Math.round(tables.stream().mapToInt(TableInfo::x).average().orElse(0));
-        int avgY = (int) Math.round(tables.stream().mapToInt(TableInfo::y).average().orElse(0));
-        return new TableInfo(
-                tables.stream().map(TableInfo::id).collect(Collectors.joining("+")),
-                totalSeats,
-                tables.get(0).zone(),
-                avgX,
-                avgY,
-                tables.stream().anyMatch(TableInfo::privacy),
-                tables.stream().anyMatch(TableInfo::window),
-                tables.stream().anyMatch(TableInfo::accessibility),
-                tables.stream().anyMatch(TableInfo::kidsArea)
-        );
+    public Reservation cancelReservation(long id) {
+        return cancelReservation(VenueCatalog.DEFAULT_VENUE, id);
     }
 
-    private TableRecommendation toRecommendation(TableInfo table, SearchRequest request, boolean occupied) {
-        if (occupied) {
-            return new TableRecommendation(table, true, false, -1, "Hõivatud valitud ajal", false, List.of());
-        }
-        if (table.seats() < request.partySize()) {
-            return new TableRecommendation(table, false, false, -1, "Liiga väike laud", false, List.of());
+    public Reservation cancelReservation(String venueId, long id) {
+        Reservation cancelled = venues.mutate(venueId, shard -> shard.reservationBook().cancel(id));
+        changed(venueId);
+        for (BiConsumer<String, Reservation> listener : cancellationListeners) {
+            listener.accept(venueId, cancelled);
         }
+        return cancelled;
+    }
 
-        int emptySeats = table.seats() - request.partySize();
-        double score = 100 - (emptySeats * 12.0);
-        List<String> preferenceDetails = new ArrayList<>();
+    public Optional<Reservation> findReservation(String venueId, long id) {
+        return venues.shard(venueId).reservationBook().find(id);
+    }
 
-        score += applyPreferenceBoostOrPenalty(request.privacy(), table.privacy(), preferenceDetails, "privaatsus");
-        score += applyPreferenceBoostOrPenalty(request.window(), table.window(), preferenceDetails, "akna all");
-        score += applyPreferenceBoostOrPenalty(request.accessibility(), table.accessibility(), preferenceDetails, "ligipääsetav");
-        score += applyPreferenceBoostOrPenalty(request.kidsArea(), table.kidsArea(), preferenceDetails, "lasteala lähedal");
+    /**
+     * Registers a callback that receives the venue id after every layout change, booking and cancellation.
+     * Callbacks run on the writer's thread and must return quickly.
+     */
+    public void addChangeListener(Consumer<String> listener) {
+        changeListeners.add(listener);
+    }
 
-        if (request.zone() != null && table.zone() == request.zone()) {
-            score += 10;
-            preferenceDetails.add("tsoon sobib");
+    /**
+     * Called with the venue and the booking after every cancellation, on the cancelling thread; like change
+     * listeners, callbacks must return quickly.
+     */
+    public void addCancellationListener(BiConsumer<String, Reservation> listener) {
+        cancellationListeners.add(listener);
+    }
+
+    private void changed(String venueId) {
+        for (Consumer<String> listener : changeListeners) {
+            listener.accept(venueId);
         }
+    }
+
+    private Set<String> occupiedTables(VenueShard shard, LayoutSnapshot snapshot, LocalDateTime dateTime) {
+        Set<String> occupied = simulateOccupancy ? simulatedOccupancy(shard, snapshot, dateTime) : new HashSet<>();
+        shard.reservationBook().collectOccupied(snapshot.tableIds(), dateTime, occupied);
+        return occupied;
+    }
 
-        String reason = "Sobib " + request.partySize() + " külalisele; vabu toole " + emptySeats;
-        if (!preferenceDetails.isEmpty()) {
-            reason += " · " + String.join(", ", preferenceDetails);
+    private boolean hasExactCapacityTable(LayoutSnapshot snapshot, Zone zone, int partySize) {
+        for (int index : snapshot.tablesIn(zone)) {
+            if (snapshot.seats(index) == partySize) {
+                return true;
+            }
         }
-        return new TableRecommendation(table, false, false, score, reason, false, List.of());
+        return false;
     }
 
-    private double applyPreferenceBoostOrPenalty(boolean requested, boolean supported,
-                                                 List<String> details, String label) {
-        if (!requested) {
-            return 0;
+    TableRecommendation findMergedOption(LayoutSnapshot snapshot, SearchRequest request, Set<String> occupiedIds) {
+        List<TableRecommendation> options = mergedOptions(snapshot, request, occupiedIds, 1);
+        return options.isEmpty() ? null : options.get(0);
+    }
+
+    /**
+     * The {@code limit} best connected groups of free tables that seat the party, best first.
+     */
+    List<TableRecommendation> mergedOptions(LayoutSnapshot snapshot, SearchRequest request, Set<String> occupiedIds,
+                                            int limit) {
+        MergeGroupSearch search = new MergeGroupSearch(snapshot, ScoringKernel.requestMask(request),
+                request.partySize(), maxGroupSize, limit);
+        List<MergeGroupSearch.Group> groups = search.run(allowedTables(snapshot, request.zone(), occupiedIds));
+        metrics.mergeGroups(search.examined(), search.seated());
+
+        List<TableRecommendation> options = new ArrayList<>(groups.size());
+        for (MergeGroupSearch.Group group : groups) {
+            TableInfo merged = snapshot.columns().merged(group.members());
+            List<String> ids = group.tableIds(snapshot);
+            options.add(new TableRecommendation(
+                    merged,
+                    false,
+                    false,
+                    group.score(),
+                    ScoringKernel.describe(merged, request) + " · Kombineeritud lauad: " + String.join(" + ", ids),
+                    true,
+                    ids
+            ));
         }
-        if (supported) {
-            details.add(label + " ✓");
-            return 35;
+        return options;
+    }
+
+    private MergeGroupSearch.Group bestMergedGroup(LayoutSnapshot snapshot, int requestMask, int partySize, Zone zone,
+                                                   boolean[] occupied) {
+        long[] allowed = allowedTables(snapshot, zone, Set.of());
+        for (int i = 0; i < occupied.length; i++) {
+            if (occupied[i]) {
+                allowed[i >>> 6] &= ~(1L << i);
+            }
         }
-        details.add(label + " ✕");
-        return -15;
+        List<MergeGroupSearch.Group> best = new MergeGroupSearch(snapshot, requestMask, partySize, maxGroupSize, 1)
+                .run(allowed);
+        return best.isEmpty() ? null : best.get(0);
     }
 
-    private Set<String> generateOccupiedTables(LocalDateTime dateTime) {
-        Set<String> occupied = new HashSet<>();
-        LocalDate date = dateTime.toLocalDate();
-        List<TableInfo> tables = currentTables();
-        int hour = dateTime.getHour();
-
-        double baseLoad = (hour >= 12 && hour <= 14) || (hour >= 18 && hour <= 21) ? 0.55 : 0.3;
-        DayOfWeek dayOfWeek = date.getDayOfWeek();
-        if (dayOfWeek == DayOfWeek.FRIDAY || dayOfWeek == DayOfWeek.SATURDAY) {
-            baseLoad += 0.1;
-        }
-        for (TableInfo table : tables) {
-            long seed = dateTime.withMinute(0).withSecond(0).withNano(0).toEpochSecond(java.time.ZoneOffset.UTC)
-                    + table.id().hashCode();
-            Random random = new Random(seed);
-            double tableLoad = baseLoad + (random.nextDouble() * 0.15);
-            if (random.nextDouble() < tableLoad) {
-                occupied.add(table.id());
+    private static long[] allowedTables(LayoutSnapshot snapshot, Zone zone, Set<String> occupiedIds) {
+        long[] allowed = new long[snapshot.adjacency().words()];
+        for (int i : snapshot.tablesIn(zone)) {
+            if (!occupiedIds.contains(snapshot.id(i))) {
+                allowed[i >>> 6] |= 1L << i;
             }
         }
+        return allowed;
+    }
 
-        int minFreeTables = 2;
-        while (tables.size() - occupied.size() < minFreeTables) {
-            String toFree = occupied.stream().sorted().findFirst().orElse(null);
-            if (toFree == null) {
-                break;
+    private static boolean[] occupiedMask(LayoutSnapshot snapshot, Set<String> occupiedIds) {
+        boolean[] occupied = new boolean[snapshot.size()];
+        for (String id : occupiedIds) {
+            int index = snapshot.indexOf(id);
+            if (index >= 0) {
+                occupied[index] = true;
             }
-            occupied.remove(toFree);
         }
+        return occupied;
+    }
 
+    /**
+     * Ranked rows of one availability search, built lazily while they are consumed.
+     */
+    @FunctionalInterface
+    public interface RankedRecommendations {
+        void forEach(Consumer<? super TableRecommendation> action);
+    }
+
+    TableRecommendation toRecommendation(TableInfo table, SearchRequest request, boolean occupied) {
+        double score = occupied || table.seats() < request.partySize()
+                ? -1
+                : ScoringKernel.score(table.seats(), ScoringKernel.features(table),
+                        ScoringKernel.requestMask(request), request.partySize());
+        return recommendation(table, request, occupied, score, false);
+    }
+
+    /**
+     * Materializes a row for the response; this is the only place reason text is built.
+     */
+    private static TableRecommendation recommendation(TableInfo table, SearchRequest request, boolean occupied,
+                                                      double score, boolean recommended) {
+        if (occupied) {
+            return new TableRecommendation(table, true, recommended, -1, "Hõivatud valitud ajal", false, List.of());
+        }
+        if (table.seats() < request.partySize()) {
+            return new TableRecommendation(table, false, recommended, -1, "Liiga väike laud", false, List.of());
+        }
+        return new TableRecommendation(table, false, recommended, score,
+                ScoringKernel.describe(table, request), false, List.of());
+    }
+
+    private static TableRecommendation withHeldReason(TableRecommendation recommendation) {
+        return new TableRecommendation(recommendation.table(), false, recommendation.recommended(),
+                recommendation.score(), recommendation.reason() + HELD_REASON, false, List.of());
+    }
+
+    private static TableRecommendation withRecommended(TableRecommendation recommendation) {
+        return new TableRecommendation(recommendation.table(), recommendation.occupied(), true,
+                recommendation.score(), recommendation.reason(), recommendation.merged(),
+                recommendation.mergedTableIds());
+    }
+
+    /**
+     * Simulated walk-in occupancy at {@code dateTime}, from the shard's current season when it covers
+     * the date. A season that does not is replaced; concurrent misses may simulate it twice, with
+     * identical results. A season drawn from older learned rates keeps serving until its redraw is ready.
+     */
+    Set<String> simulatedOccupancy(VenueShard shard, LayoutSnapshot snapshot, LocalDateTime dateTime) {
+        Set<String> occupied = new HashSet<>();
+        simulatedSeason(shard, snapshot, dateTime.toLocalDate(), dateTime.toLocalDate()).collectOccupied(dateTime, occupied);
         return occupied;
     }
+
+    /**
+     * Simulated occupancy covering {@code from} to {@code to}: the shard's season, moved on to the one
+     * holding {@code from} if needed. A season drawn from older learned rates is still returned while a
+     * redraw from the new ones runs in the background. A range running past the season's end is simulated
+     * on its own.
+     */
+    private OccupancySimulator.Season simulatedSeason(VenueShard shard, LayoutSnapshot snapshot, LocalDate from,
+                                                      LocalDate to) {
+        DemandForecast.Model demand = shard.reservationBook().demand().model(forecastRefreshNanos);
+        OccupancySimulator.Season season = shard.simulatedSeason();
+        if (season == null || !season.covers(snapshot, from)) {
+            season = occupancySimulator.season(snapshot, demand, from);
+            shard.simulatedSeason(season);
+        } else if (!season.simulatedWith(demand)) {
+            redrawSeason(shard, snapshot, season, demand, from);
+        }
+        return season.covers(snapshot, from, to)
+                ? season
+                : occupancySimulator.simulate(snapshot, demand, from, (int) ChronoUnit.DAYS.between(from, to) + 1);
+    }
+
+    /**
+     * Redraws {@code stale}, the season holding {@code date}, from {@code demand} on a virtual thread,
+     * unless the shard is already redrawing one.
+     */
+    private void redrawSeason(VenueShard shard, LayoutSnapshot snapshot, OccupancySimulator.Season stale,
+                              DemandForecast.Model demand, LocalDate date) {
+        if (!shard.startSeasonRedraw()) {
+            return;
+        }
+        Thread.ofVirtual().name("occupancy-season").start(() -> {
+            OccupancySimulator.Season redrawn = null;
+            try {
+                redrawn = occupancySimulator.season(snapshot, demand, date);
+            } finally {
+                shard.seasonRedrawn(stale, redrawn);
+            }
+        });
+    }
 }
@@ -0,0 +1,430 @@
+package com.example.restaurant.service;
+
+import com.example.restaurant.model.Reservation;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * In-memory reservation book of one venue. Every table keeps its bookings in a sorted map keyed by start minute;
+ * bookings of one table never overlap, so "is this table taken at time t" is a single floor lookup.
+ * Changes are handed to the {@link Journal} before they are applied, in the order they are applied.
+ * <p>
+ * Writers only exclude each other per table. Every table carries a version stamp that is even while the
+ * table is free and odd while a writer holds it. A booking checks its tables for overlaps without any lock,
+ * then claims them by CAS from the stamps it checked against, in table id order; if a stamp moved in between,
+ * another writer changed that table and the booking checks again. Bookings of different tables therefore
+ * never wait for each other, and merged-table bookings cannot deadlock because every writer claims in the
+ * same order. A writer that finds a table held spins briefly, then parks until the holder releases it, since
+ * the holder may be blocked in journal I/O. Checkpoints do not stop writers either: see {@link #contents}.
+ */
+public class ReservationBook {
+
+    private static final int SPINS_BEFORE_PARK = 64;
+    /**
+     * Hours of change counters kept, about 341 days; hours that far apart share a counter, which only costs
+     * the other hour a cache miss.
+     */
+    private static final int EPOCH_HOURS = 1 << 13;
+
+    private final Journal journal;
+    private final Map<String, TableSchedule> schedules = new ConcurrentHashMap<>();
+    private final Map<Long, Reservation> reservations;
+    private final AtomicLong nextId = new AtomicLong(1);
+    private final AtomicReferenceArray<LongAdder> hourEpochs = new AtomicReferenceArray<>(EPOCH_HOURS);
+    private final DemandForecast demand = new DemandForecast();
+
+    public ReservationBook() {
+        this(Journal.NONE);
+    }
+
+    ReservationBook(Journal journal) {
+        this(journal, 16);
+    }
+
+    ReservationBook(Journal journal, int expectedReservations) {
+        this.journal = journal;
+        this.reservations = new ConcurrentHashMap<>(expectedReservations);
+    }
+
+    /**
+     * Books all tables of the reservation at once: a multi-table booking either lands on every table or on
+     * none. Only bookings sharing a table contend; readers never wait.
+     */
+    public Reservation create(List<String> tableIds, LocalDateTime start, LocalDateTime end,
+                              int partySize, String customerName) {
+        long startMinute = toMinute(start);
+        long endMinute = toMinute(end);
+        TableSchedule[] tables = inClaimOrder(tableIds);
+        long[] stamps = new long[tables.length];
+        do {
+            for (int i = 0; i < tables.length; i++) {
+                stamps[i] = awaitFree(tables[i]);
+                Reservation conflict = findOverlap(tables[i].bookings, startMinute, endMinute);
+                if (conflict != null) {
+                    throw new ResponseStatusException(HttpStatus.CONFLICT, "Laud " + tables[i].tableId
+                            + " on juba broneeritud (" + conflict.start() + " - " + conflict.end() + ")");
+                }
+            }
+        } while (!claim(tables, stamps));
+
+        boolean changed = false;
+        try {
+            Reservation reservation = new Reservation(nextId.getAndIncrement(), List.copyOf(tableIds),
+                    start, end, partySize, customerName);
+            journal.booked(reservation);
+            add(reservation);
+            changed = true;
+            touch(reservation);
+            return reservation;
+        } finally {
+            release(tables, stamps, changed);
+        }
+    }
+
+    public Reservation cancel(long id) {
+        while (true) {
+            Reservation reservation = reservations.get(id);
+            if (reservation == null) {
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Broneeringut " + id + " ei leitud");
+            }
+            TableSchedule[] tables = inClaimOrder(reservation.tableIds());
+            long[] stamps = new long[tables.length];
+            for (int i = 0; i < tables.length; i++) {
+                stamps[i] = awaitFree(tables[i]);
+            }
+            if (!claim(tables, stamps)) {
+                continue;
+            }
+            boolean changed = false;
+            try {
+                // a concurrent cancel may have won the claim first; the next round reports it gone
+                if (reservations.get(id) != reservation) {
+                    continue;
+                }
+                journal.cancelled(reservation);
+                remove(reservation);
+                changed = true;
+                touch(reservation);
+                return reservation;
+            } finally {
+                release(tables, stamps, changed);
+            }
+        }
+    }
+
+    private TableSchedule[] inClaimOrder(List<String> tableIds) {
+        TableSchedule[] tables = new TableSchedule[tableIds.size()];
+        for (int i = 0; i < tables.length; i++) {
+            tables[i] = schedule(tableIds.get(i));
+        }
+        Arrays.sort(tables, Comparator.comparing((TableSchedule table) -> table.tableId));
+        for (int i = 1; i < tables.length; i++) {
+            if (tables[i] == tables[i - 1]) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Sama laud on broneeringus mitu korda");
+            }
+        }
+        return tables;
+    }
+
+    /**
+     * Stamp of a table once no writer holds it. Holders only journal and apply one change, so a short spin
+     * usually suffices; when the journal is slow to write, waiters park instead of burning the CPU.
+     */
+    private static long awaitFree(TableSchedule table) {
+        int spins = 0;
+        long stamp;
+        while (((stamp = table.stamp.get()) & 1) != 0) {
+            if (++spins < SPINS_BEFORE_PARK) {
+                Thread.onSpinWait();
+            } else {
+                Thread current = Thread.currentThread();
+                table.waiters.add(current);
+                // a release before the add did not see this waiter, so check again before parking
+                if ((table.stamp.get() & 1) != 0) {
+                    LockSupport.park(table);
+                }
+                table.waiters.remove(current);
+            }
+        }
+        return stamp;
+    }
+
+    /**
+     * Claims every table from the stamp it was checked at, or none: on the first stamp that moved the tables
+     * claimed so far are handed back unchanged.
+     */
+    private static boolean claim(TableSchedule[] tables, long[] stamps) {
+        for (int i = 0; i < tables.length; i++) {
+            if (!tables[i].stamp.compareAndSet(stamps[i], stamps[i] + 1)) {
+                for (int j = 0; j < i; j++) {
+                    tables[j].free(stamps[j]);
+                }
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void release(TableSchedule[] tables, long[] stamps, boolean changed) {
+        for (int i = 0; i < tables.length; i++) {
+            tables[i].free(changed ? stamps[i] + 2 : stamps[i]);
+        }
+    }
+
+    /**
+     * Re-applies a booking read back from storage: no conflict check, no journal entry, no epoch bump.
+     * A booking the snapshot already holds is left as is.
+     */
+    void restore(Reservation reservation) {
+        if (reservations.containsKey(reservation.id())) {
+            return;
+        }
+        add(reservation);
+        nextId.accumulateAndGet(reservation.id() + 1, Math::max);
+    }
+
+    /**
+     * Loads a whole snapshot into an empty book: no conflict checks, no journal entries, no epoch bumps.
+     */
+    void restoreAll(List<Reservation> sortedByStart) {
+        long maxId = 0;
+        for (Reservation reservation : sortedByStart) {
+            long startMinute = toMinute(reservation.start());
+            for (String tableId : reservation.tableIds()) {
+                schedule(tableId).bookings.put(startMinute, reservation);
+            }
+            reservations.put(reservation.id(), reservation);
+            demand.booked(reservation);
+            maxId = Math.max(maxId, reservation.id());
+        }
+        restoreNextId(maxId + 1);
+    }
+
+    void restoreCancel(long id) {
+        Reservation reservation = reservations.get(id);
+        if (reservation != null) {
+            remove(reservation);
+        }
+    }
+
+    void restoreNextId(long id) {
+        nextId.accumulateAndGet(id, Math::max);
+    }
+
+    /**
+     * Copy of the book for a checkpoint, taken without stopping writers. {@code atCut} runs first; every
+     * table is then read once no writer holds it. A change journaled before the cut was made by a writer
+     * that held its tables from before the journal entry until the change was applied, so the copy
+     * contains it. Changes journaled after the cut may or may not be in the copy, and replaying them on top
+     * of it is idempotent: {@link #restore} skips a booking already present and {@link #restoreCancel} one
+     * already gone.
+     */
+    Contents contents(Runnable atCut) {
+        atCut.run();
+        Map<Long, Reservation> copy = new HashMap<>();
+        for (TableSchedule table : schedules.values()) {
+            awaitFree(table);
+            for (Reservation reservation : table.bookings.values()) {
+                copy.putIfAbsent(reservation.id(), reservation);
+            }
+        }
+        return new Contents(List.copyOf(copy.values()), nextId.get());
+    }
+
+    private void add(Reservation reservation) {
+        long startMinute = toMinute(reservation.start());
+        for (String tableId : reservation.tableIds()) {
+            schedule(tableId).bookings.put(startMinute, reservation);
+        }
+        reservations.put(reservation.id(), reservation);
+        demand.booked(reservation);
+    }
+
+    private void remove(Reservation reservation) {
+        reservations.remove(reservation.id());
+        long startMinute = toMinute(reservation.start());
+        for (String tableId : reservation.tableIds()) {
+            schedule(tableId).bookings.remove(startMinute, reservation);
+        }
+        demand.cancelled(reservation);
+    }
+
+    /**
+     * Change counter of the clock hour containing {@code dateTime}. Every booking created or cancelled
+     * bumps the counters of the hours it covers, so cached answers for other hours stay valid.
+     */
+    public long occupancyEpoch(LocalDateTime dateTime) {
+        LongAdder epoch = hourEpochs.get(epochSlot(toMinute(dateTime) / 60));
+        return epoch == null ? 0 : epoch.sum();
+    }
+
+    private void touch(Reservation reservation) {
+        long lastHour = (toMinute(reservation.end()) - 1) / 60;
+        long firstHour = toMinute(reservation.start()) / 60;
+        // a booking longer than the ring would only bump the same counters again
+        for (long hour = firstHour; hour <= Math.min(lastHour, firstHour + EPOCH_HOURS - 1); hour++) {
+            int slot = epochSlot(hour);
+            LongAdder epoch = hourEpochs.get(slot);
+            if (epoch == null) {
+                hourEpochs.compareAndSet(slot, null, new LongAdder());
+                epoch = hourEpochs.get(slot);
+            }
+            epoch.increment();
+        }
+    }
+
+    private static int epochSlot(long hour) {
+        return Math.floorMod(hour, EPOCH_HOURS);
+    }
+
+    /**
+     * Occupancy rates learned from this book's bookings, kept up to date with every change.
+     */
+    DemandForecast demand() {
+        return demand;
+    }
+
+    public Optional<Reservation> find(long id) {
+        return Optional.ofNullable(reservations.get(id));
+    }
+
+    public Collection<Reservation> all() {
+        return reservations.values();
+    }
+
+    public boolean isEmpty() {
+        return reservations.isEmpty();
+    }
+
+    public boolean isBooked(String tableId, LocalDateTime dateTime) {
+        TableSchedule schedule = schedules.get(tableId);
+        if (schedule == null) {
+            return false;
+        }
+        Map.Entry<Long, Reservation> entry = schedule.bookings.floorEntry(toMinute(dateTime));
+        return entry != null && entry.getValue().end().isAfter(dateTime);
+    }
+
+    /**
+     * Adds every table from {@code tableIds} that has a booking covering {@code dateTime} to
+     * {@code occupied}. Costs O(log n) per table, independent of how many bookings lie ahead.
+     */
+    public void collectOccupied(List<String> tableIds, LocalDateTime dateTime, Set<String> occupied) {
+        if (reservations.isEmpty()) {
+            return;
+        }
+        for (String tableId : tableIds) {
+            if (isBooked(tableId, dateTime)) {
+                occupied.add(tableId);
+            }
+        }
+    }
+
+    /**
+     * Passes every booking of {@code tableId} that overlaps {@code [from, to)} to {@code action}, in start order.
+     */
+    public void forEachOverlapping(String tableId, LocalDateTime from, LocalDateTime to, Consumer<Reservation> action) {
+        TableSchedule schedule = schedules.get(tableId);
+        if (schedule == null) {
+            return;
+        }
+        long fromMinute = toMinute(from);
+        Long earlier = schedule.bookings.floorKey(fromMinute);
+        for (Reservation reservation : schedule.bookings.subMap(earlier == null ? fromMinute : earlier, true,
+                toMinute(to), false).values()) {
+            if (reservation.end().isAfter(from)) {
+                action.accept(reservation);
+            }
+        }
+    }
+
+    private TableSchedule schedule(String tableId) {
+        return schedules.computeIfAbsent(tableId, id -> new TableSchedule(id, new ConcurrentSkipListMap<>()));
+    }
+
+    private static Reservation findOverlap(ConcurrentNavigableMap<Long, Reservation> schedule,
+                                           long startMinute, long endMinute) {
+        Map.Entry<Long, Reservation> latestBefore = schedule.lowerEntry(endMinute);
+        if (latestBefore == null) {
+            return null;
+        }
+        Reservation candidate = latestBefore.getValue();
+        return toMinute(candidate.end()) > startMinute ? candidate : null;
+    }
+
+    private static long toMinute(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC) / 60;
+    }
+
+    record Contents(List<Reservation> reservations, long nextId) {
+    }
+
+    /**
+     * One table's bookings and its writer stamp: even while free, odd while claimed, two higher after
+     * every change. Writers parked until the table is free again wait in {@code waiters}.
+     */
+    private static final class TableSchedule {
+
+        private final String tableId;
+        private final ConcurrentNavigableMap<Long, Reservation> bookings;
+        private final AtomicLong stamp = new AtomicLong();
+        private final Queue<Thread> waiters = new ConcurrentLinkedQueue<>();
+
+        private TableSchedule(String tableId, ConcurrentNavigableMap<Long, Reservation> bookings) {
+            this.tableId = tableId;
+            this.bookings = bookings;
+        }
+
+        /**
+         * Hands the table back at {@code freeStamp} and wakes every parked writer; all but one park again.
+         */
+        private void free(long freeStamp) {
+            stamp.set(freeStamp);
+            if (!waiters.isEmpty()) {
+                for (Thread waiter : waiters) {
+                    LockSupport.unpark(waiter);
+                }
+            }
+        }
+    }
+
+    /**
+     * Receives every change before it becomes visible; throwing rejects the change.
+     */
+    interface Journal {
+        Journal NONE = new Journal() {
+            @Override
+            public void booked(Reservation reservation) {
+            }
+
+            @Override
+            public void cancelled(Reservation reservation) {
+            }
+        };
+
+        void booked(Reservation reservation);
+
+        void cancelled(Reservation reservation);
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.restaurant.service;
+
+import com.example.restaurant.model.SearchRequest;
+import com.example.restaurant.model.TableInfo;
+import com.example.restaurant.model.Zone;
+
+/**
+ * Allocation-free table scoring. Table features and request preferences are packed into int masks:
+ * the low four bits are privacy/window/accessibility/kids area, the next bits hold the zone. Human
+ * readable reasons are built separately and only for rows that are actually returned.
+ */
+final class ScoringKernel {
+
+    static final int PRIVACY = 1;
+    static final int WINDOW = 1 << 1;
+    static final int ACCESSIBILITY = 1 << 2;
+    static final int KIDS_AREA = 1 << 3;
+    static final int PREFERENCES = PRIVACY | WINDOW | ACCESSIBILITY | KIDS_AREA;
+
+    private static final int ZONE_REQUESTED = 1 << 4;
+    private static final int ZONE_SHIFT = 5;
+
+    private static final Zone[] ZONES = Zone.values();
+
+    private static final double SEAT_WASTE_PENALTY = 12.0;
+    private static final double MATCH_BONUS = 35;
+    private static final double MISMATCH_PENALTY = -15;
+    private static final double ZONE_BONUS = 10;
+    private static final double MERGE_BONUS_PER_TABLE = 8;
+
+    private ScoringKernel() {
+    }
+
+    static int features(TableInfo table) {
+        return (table.privacy() ? PRIVACY : 0)
+                | (table.window() ? WINDOW : 0)
+                | (table.accessibility() ? ACCESSIBILITY : 0)
+                | (table.kidsArea() ? KIDS_AREA : 0)
+                | (table.zone().ordinal() << ZONE_SHIFT);
+    }
+
+    static Zone zone(int features) {
+        return ZONES[features >>> ZONE_SHIFT];
+    }
+
+    static int requestMask(SearchRequest request) {
+        int mask = (request.privacy() ? PRIVACY : 0)
+                | (request.window() ? WINDOW : 0)
+                | (request.accessibility() ? ACCESSIBILITY : 0)
+                | (request.kidsArea() ? KIDS_AREA : 0);
+        if (request.zone() != null) {
+            mask |= ZONE_REQUESTED | (request.zone().ordinal() << ZONE_SHIFT);
+        }
+        return mask;
+    }
+
+    /**
+     * Score of a free table (or merged group) that seats the party.
+     */
+    static double score(int seats, int features, int requestMask, int partySize) {
+        int requested = requestMask & PREFERENCES;
+        int matched = Integer.bitCount(requested & features);
+        int missed = Integer.bitCount(requested) - matched;
+        double score = 100 - ((seats - partySize) * SEAT_WASTE_PENALTY)
+                + matched * MATCH_BONUS
+                + missed * MISMATCH_PENALTY;
+        if (zoneMatches(features, requestMask)) {
+            score += ZONE_BONUS;
+        }
+        return score;
+    }
+
+    /**
+     * Score of a merged group: {@code features} is the union of the member preferences with the zone of
+     * the first member, plus a bonus per extra table.
+     */
+    static double mergedScore(int seats, int features, int groupSize, int requestMask, int partySize) {
+        return score(seats, features, requestMask, partySize) + (MERGE_BONUS_PER_TABLE * (groupSize - 1));
+    }
+
+    /**
+     * Upper bound on {@link #mergedScore} of every group that strictly contains this one: added tables
+     * have at least {@code minSeats} seats each, the party must end up seated and at best every requested
+     * preference found in {@code reachableFeatures} becomes a match.
+     */
+    static double mergedGrowthBound(int seats, int features, int groupSize, int reachableFeatures, int minSeats,
+                                    int requestMask, int partySize) {
+        if (minSeats < 1) {
+            return Double.POSITIVE_INFINITY;
+        }
+        // Each added table costs its seats and earns one merge bonus, so fewer seats is always better.
+        int addedSeats = Math.max(partySize - seats, minSeats);
+        double growth = MERGE_BONUS_PER_TABLE * (addedSeats / minSeats) - SEAT_WASTE_PENALTY * addedSeats;
+        int gainable = Integer.bitCount(requestMask & PREFERENCES & ~features & reachableFeatures);
+        return mergedScore(seats, features, groupSize, requestMask, partySize)
+                + growth + gainable * (MATCH_BONUS - MISMATCH_PENALTY);
+    }
+
+    static String describe(TableInfo table, SearchRequest request) {
+        StringBuilder reason = new StringBuilder()
+                .append("Sobib ").append(request.partySize())
+                .append(" külalisele; vabu toole ").append(table.seats() - request.partySize());
+        int details = 0;
+        details = appendPreference(reason, details, request.privacy(), table.privacy(), "privaatsus");
+        details = appendPreference(reason, details, request.window(), table.window(), "akna all");
+        details = appendPreference(reason, details, request.accessibility(), table.accessibility(), "ligipääsetav");
+        details = appendPreference(reason, details, request.kidsArea(), table.kidsArea(), "lasteala lähedal");
+        if (request.zone() != null && table.zone() == request.zone()) {
+            reason.append(details == 0 ? " · " : ", ").append("tsoon sobib");
+        }
+        return reason.toString();
+    }
+
+    private static boolean zoneMatches(int features, int requestMask) {
+        return (requestMask & ZONE_REQUESTED) != 0 && (features >>> ZONE_SHIFT) == (requestMask >>> ZONE_SHIFT);
+    }
+
+    private static int appendPreference(StringBuilder reason, int details, boolean requested, boolean supported,
+                                        String label) {
+        if (!requested) {
+            return details;
+        }
+        reason.append(details == 0 ? " · " : ", ").append(label).append(supported ? " ✓" : " ✕");
+        return details + 1;
+    }
+}
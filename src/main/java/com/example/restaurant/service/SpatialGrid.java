@@ -0,0 +1,197 @@
+package com.example.restaurant.service;
+
+import com.example.restaurant.model.TableInfo;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+
+/**
+ * Uniform grid over table coordinates. With cells as wide as the query radius, every table within
+ * that radius sits in the 3x3 block of cells around the query point, so radius and nearest-table
+ * queries look at a handful of tables instead of the whole floor plan. Grids are immutable; moving
+ * tables yields a new grid that shares every cell the move did not touch.
+ */
+final class SpatialGrid {
+
+    private static final int[] EMPTY = new int[0];
+
+    private final double cellSize;
+    private final int[] xs;
+    private final int[] ys;
+    private final Map<Long, int[]> cells;
+    private final int minColumn;
+    private final int maxColumn;
+    private final int minRow;
+    private final int maxRow;
+
+    private SpatialGrid(double cellSize, int[] xs, int[] ys, Map<Long, int[]> cells) {
+        this.cellSize = cellSize;
+        this.xs = xs;
+        this.ys = ys;
+        this.cells = cells;
+        int columnLow = Integer.MAX_VALUE;
+        int columnHigh = Integer.MIN_VALUE;
+        int rowLow = Integer.MAX_VALUE;
+        int rowHigh = Integer.MIN_VALUE;
+        for (int i = 0; i < xs.length; i++) {
+            columnLow = Math.min(columnLow, cell(xs[i]));
+            columnHigh = Math.max(columnHigh, cell(xs[i]));
+            rowLow = Math.min(rowLow, cell(ys[i]));
+            rowHigh = Math.max(rowHigh, cell(ys[i]));
+        }
+        this.minColumn = columnLow;
+        this.maxColumn = columnHigh;
+        this.minRow = rowLow;
+        this.maxRow = rowHigh;
+    }
+
+    static SpatialGrid build(TableInfo[] tables, double cellSize) {
+        int[] xs = new int[tables.length];
+        int[] ys = new int[tables.length];
+        for (int i = 0; i < tables.length; i++) {
+            xs[i] = tables[i].x();
+            ys[i] = tables[i].y();
+        }
+        return build(xs, ys, cellSize);
+    }
+
+    /**
+     * Grid over the coordinate columns {@code xs} and {@code ys}, which the grid keeps and must not change.
+     */
+    static SpatialGrid build(int[] xs, int[] ys, double cellSize) {
+        Map<Long, int[]> cells = new HashMap<>();
+        for (int i = 0; i < xs.length; i++) {
+            long key = key(cell(xs[i], cellSize), cell(ys[i], cellSize));
+            cells.put(key, append(cells.getOrDefault(key, EMPTY), i));
+        }
+        return new SpatialGrid(cellSize, xs, ys, cells);
+    }
+
+    /**
+     * Grid of the same tables after the tables at {@code moved} got the coordinates in {@code nextXs} and
+     * {@code nextYs}. Only the cells they leave or enter are rebuilt.
+     */
+    SpatialGrid move(int[] nextXs, int[] nextYs, int[] moved) {
+        Map<Long, int[]> nextCells = new HashMap<>(cells);
+        for (int index : moved) {
+            long from = key(cell(xs[index]), cell(ys[index]));
+            int[] remaining = remove(nextCells.get(from), index);
+            if (remaining.length == 0) {
+                nextCells.remove(from);
+            } else {
+                nextCells.put(from, remaining);
+            }
+            long to = key(cell(nextXs[index]), cell(nextYs[index]));
+            nextCells.put(to, append(nextCells.getOrDefault(to, EMPTY), index));
+        }
+        return new SpatialGrid(cellSize, nextXs, nextYs, nextCells);
+    }
+
+    int size() {
+        return xs.length;
+    }
+
+    int x(int index) {
+        return xs[index];
+    }
+
+    int y(int index) {
+        return ys[index];
+    }
+
+    double distance(int index, double x, double y) {
+        return Math.hypot(xs[index] - x, ys[index] - y);
+    }
+
+    /**
+     * Passes every table within {@code radius} of the point (inclusive) to {@code action}.
+     */
+    void forEachWithin(double x, double y, double radius, IntConsumer action) {
+        long reach = (long) Math.ceil(radius / cellSize);
+        int column = cell(x);
+        int row = cell(y);
+        int firstColumn = (int) Math.max(column - reach, minColumn);
+        int lastColumn = (int) Math.min(column + reach, maxColumn);
+        int firstRow = (int) Math.max(row - reach, minRow);
+        int lastRow = (int) Math.min(row + reach, maxRow);
+        for (int c = firstColumn; c <= lastColumn; c++) {
+            for (int r = firstRow; r <= lastRow; r++) {
+                for (int index : cells.getOrDefault(key(c, r), EMPTY)) {
+                    if (distance(index, x, y) <= radius) {
+                        action.accept(index);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Closest table to the point that {@code accept} allows, or -1. Cells are scanned in growing rings
+     * and the scan stops once no unscanned ring can hold anything closer; ties go to the lower index.
+     */
+    int nearest(double x, double y, IntPredicate accept) {
+        if (xs.length == 0) {
+            return -1;
+        }
+        int column = cell(x);
+        int row = cell(y);
+        int rings = Math.max(
+                Math.max(Math.abs(column - minColumn), Math.abs(maxColumn - column)),
+                Math.max(Math.abs(row - minRow), Math.abs(maxRow - row)));
+        int best = -1;
+        double bestDistance = Double.POSITIVE_INFINITY;
+        for (int ring = 0; ring <= rings; ring++) {
+            for (int c = column - ring; c <= column + ring; c++) {
+                boolean edgeColumn = c == column - ring || c == column + ring;
+                for (int r = row - ring; r <= row + ring; r += edgeColumn ? 1 : 2 * ring) {
+                    for (int index : cells.getOrDefault(key(c, r), EMPTY)) {
+                        double candidate = distance(index, x, y);
+                        if ((candidate < bestDistance || (candidate == bestDistance && index < best))
+                                && accept.test(index)) {
+                            best = index;
+                            bestDistance = candidate;
+                        }
+                    }
+                }
+            }
+            // Anything in the next ring is at least this far away from a point inside the centre cell.
+            if (best >= 0 && bestDistance < ring * cellSize) {
+                break;
+            }
+        }
+        return best;
+    }
+
+    private int cell(double coordinate) {
+        return cell(coordinate, cellSize);
+    }
+
+    private static int cell(double coordinate, double cellSize) {
+        return (int) Math.floor(coordinate / cellSize);
+    }
+
+    private static long key(int column, int row) {
+        return ((long) column << 32) | (row & 0xffffffffL);
+    }
+
+    private static int[] append(int[] indexes, int index) {
+        int[] grown = Arrays.copyOf(indexes, indexes.length + 1);
+        grown[indexes.length] = index;
+        Arrays.sort(grown);
+        return grown;
+    }
+
+    private static int[] remove(int[] indexes, int index) {
+        int[] shrunk = new int[indexes.length - 1];
+        int next = 0;
+        for (int value : indexes) {
+            if (value != index) {
+                shrunk[next++] = value;
+            }
+        }
+        return shrunk;
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.restaurant.service;
+
+import com.example.restaurant.model.Reservation;
+import com.example.restaurant.model.TableInfo;
+import com.example.restaurant.model.Zone;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary encoding shared by the write-ahead log and the snapshot files. Everything is big-endian;
+ * strings are a length-prefixed UTF-8 byte run, with length -1 for null.
+ */
+final class StorageCodec {
+
+    static final byte LAYOUT = 1;
+    static final byte BOOKED = 2;
+    static final byte CANCELLED = 3;
+
+    private static final Zone[] ZONES = Zone.values();
+
+    private StorageCodec() {
+    }
+
+    static byte[] layoutRecord(LayoutSnapshot layout) {
+        return record(LAYOUT, out -> {
+            out.writeLong(layout.version());
+            writeTables(out, layout.tables());
+        });
+    }
+
+    static byte[] bookedRecord(Reservation reservation) {
+        return record(BOOKED, out -> {
+            out.writeLong(reservation.id());
+            writeTime(out, reservation.start());
+            writeTime(out, reservation.end());
+            out.writeInt(reservation.partySize());
+            writeString(out, reservation.customerName());
+            out.writeShort(reservation.tableIds().size());
+            for (String tableId : reservation.tableIds()) {
+                writeString(out, tableId);
+            }
+        });
+    }
+
+    static byte[] cancelledRecord(long id) {
+        return record(CANCELLED, out -> out.writeLong(id));
+    }
+
+    static Reservation readBooked(ByteBuffer in) {
+        long id = in.getLong();
+        LocalDateTime start = readTime(in);
+        LocalDateTime end = readTime(in);
+        int partySize = in.getInt();
+        String customerName = readString(in);
+        String[] tableIds = new String[in.getShort()];
+        for (int i = 0; i < tableIds.length; i++) {
+            tableIds[i] = readString(in);
+        }
+        return new Reservation(id, List.of(tableIds), start, end, partySize, customerName);
+    }
+
+    static void writeTables(DataOutput out, List<TableInfo> tables) throws IOException {
+        out.writeInt(tables.size());
+        for (TableInfo table : tables) {
+            writeString(out, table.id());
+            out.writeInt(table.seats());
+            out.writeByte(table.zone().ordinal());
+            out.writeInt(table.x());
+            out.writeInt(table.y());
+            out.writeByte((table.privacy() ? 1 : 0)
+                    | (table.window() ? 2 : 0)
+                    | (table.accessibility() ? 4 : 0)
+                    | (table.kidsArea() ? 8 : 0));
+        }
+    }
+
+    static List<TableInfo> readTables(ByteBuffer in) {
+        int count = in.getInt();
+        List<TableInfo> tables = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String id = readString(in);
+            int seats = in.getInt();
+            Zone zone = ZONES[in.get()];
+            int x = in.getInt();
+            int y = in.getInt();
+            byte flags = in.get();
+            tables.add(new TableInfo(id, seats, zone, x, y,
+                    (flags & 1) != 0, (flags & 2) != 0, (flags & 4) != 0, (flags & 8) != 0));
+        }
+        return tables;
+    }
+
+    static void writeTime(DataOutput out, LocalDateTime time) throws IOException {
+        out.writeLong(time.toEpochSecond(ZoneOffset.UTC));
+        out.writeInt(time.getNano());
+    }
+
+    static LocalDateTime readTime(ByteBuffer in) {
+        long epochSecond = in.getLong();
+        return LocalDateTime.ofEpochSecond(epochSecond, in.getInt(), ZoneOffset.UTC);
+    }
+
+    static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        String value;
+        if (in.hasArray()) {
+            value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        } else {
+            byte[] bytes = new byte[length];
+            in.get(in.position(), bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+        }
+        in.position(in.position() + length);
+        return value;
+    }
+
+    private static byte[] record(byte type, RecordWriter writer) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(type);
+            writer.write(out);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return bytes.toByteArray();
+    }
+
+    @FunctionalInterface
+    private interface RecordWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.restaurant.service;
+
+/**
+ * Precomputed adjacency graph of a floor plan. Every table gets an int index (its position in the
+ * layout) and a neighbour bitmask, so merge searches work on bit operations instead of distance checks.
+ * Neighbours come from a {@link SpatialGrid}, so building is linear in the number of tables and moving a
+ * few tables only touches their own rows and those of their old and new neighbours.
+ */
+final class TableAdjacencyIndex {
+
+    private final long[][] neighbours;
+    private final int words;
+
+    private TableAdjacencyIndex(long[][] neighbours) {
+        this.neighbours = neighbours;
+        this.words = wordsFor(neighbours.length);
+    }
+
+    /**
+     * Links every pair of tables at most {@code threshold} apart.
+     */
+    static TableAdjacencyIndex build(SpatialGrid grid, double threshold) {
+        int words = wordsFor(grid.size());
+        long[][] neighbours = new long[grid.size()][words];
+        for (int i = 0; i < neighbours.length; i++) {
+            long[] row = neighbours[i];
+            int self = i;
+            grid.forEachWithin(grid.x(i), grid.y(i), threshold, j -> {
+                if (j != self) {
+                    row[j >>> 6] |= 1L << j;
+                }
+            });
+        }
+        return new TableAdjacencyIndex(neighbours);
+    }
+
+    /**
+     * Index after the tables at {@code moved} took their coordinates in {@code grid}. Rows of tables
+     * the move does not concern are shared with this index.
+     */
+    TableAdjacencyIndex moved(SpatialGrid grid, int[] moved, double threshold) {
+        long[][] rows = neighbours.clone();
+        boolean[] copied = new boolean[rows.length];
+        for (int table : moved) {
+            long[] old = neighbours[table];
+            for (int j = nextSetBit(old, 0); j >= 0; j = nextSetBit(old, j + 1)) {
+                if (!copied[j]) {
+                    rows[j] = rows[j].clone();
+                    copied[j] = true;
+                }
+                rows[j][table >>> 6] &= ~(1L << table);
+            }
+            rows[table] = new long[words];
+            copied[table] = true;
+        }
+        for (int table : moved) {
+            grid.forEachWithin(grid.x(table), grid.y(table), threshold, j -> {
+                if (j == table) {
+                    return;
+                }
+                if (!copied[j]) {
+                    rows[j] = rows[j].clone();
+                    copied[j] = true;
+                }
+                rows[table][j >>> 6] |= 1L << j;
+                rows[j][table >>> 6] |= 1L << table;
+            });
+        }
+        return new TableAdjacencyIndex(rows);
+    }
+
+    static int wordsFor(int size) {
+        return Math.max(1, (size + 63) >>> 6);
+    }
+
+    int size() {
+        return neighbours.length;
+    }
+
+    int words() {
+        return words;
+    }
+
+    /**
+     * Neighbour bitmask of the table at {@code index}; shared, must not be modified.
+     */
+    long[] neighbours(int index) {
+        return neighbours[index];
+    }
+
+    /**
+     * Bits of word {@code word} that belong to indexes strictly above {@code index}.
+     */
+    static long above(int index, int word) {
+        int indexWord = index >>> 6;
+        if (word < indexWord) {
+            return 0;
+        }
+        if (word > indexWord) {
+            return -1L;
+        }
+        return (-1L << (index & 63)) << 1;
+    }
+
+    static int nextSetBit(long[] mask, int from) {
+        int w = from >>> 6;
+        if (w >= mask.length) {
+            return -1;
+        }
+        long word = mask[w] & (-1L << (from & 63));
+        while (true) {
+            if (word != 0) {
+                return (w << 6) + Long.numberOfTrailingZeros(word);
+            }
+            if (++w == mask.length) {
+                return -1;
+            }
+            word = mask[w];
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.restaurant.service;
+
+import java.util.function.IntBinaryOperator;
+
+/**
+ * Bounded-heap top-K selection over int positions. Costs O(n log k) time and O(k) space instead of
+ * sorting all n positions; with k &gt;= n it degrades to a plain heap sort.
+ */
+final class TopRanked {
+
+    private TopRanked() {
+    }
+
+    /**
+     * Returns the {@code limit} best of the positions {@code 0..count-1}, best first. {@code order}
+     * compares two positions like a comparator (negative = first ranks higher) and must be a total order.
+     */
+    static int[] select(int count, int limit, IntBinaryOperator order) {
+        int capacity = Math.max(0, Math.min(count, limit));
+        int[] heap = new int[capacity];
+        if (capacity == 0) {
+            return heap;
+        }
+        int size = 0;
+        for (int position = 0; position < count; position++) {
+            if (size < capacity) {
+                heap[size] = position;
+                siftUp(heap, size++, order);
+            } else if (order.applyAsInt(position, heap[0]) < 0) {
+                heap[0] = position;
+                siftDown(heap, size, order);
+            }
+        }
+
+        // The root is always the worst kept position, so draining the heap fills the result back to front.
+        int[] ranked = new int[size];
+        for (int slot = size - 1; slot >= 0; slot--) {
+            ranked[slot] = heap[0];
+            heap[0] = heap[slot];
+            siftDown(heap, slot, order);
+        }
+        return ranked;
+    }
+
+    private static void siftUp(int[] heap, int index, IntBinaryOperator order) {
+        int position = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (order.applyAsInt(heap[parent], position) >= 0) {
+                break;
+            }
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = position;
+    }
+
+    private static void siftDown(int[] heap, int size, IntBinaryOperator order) {
+        if (size == 0) {
+            return;
+        }
+        int position = heap[0];
+        int index = 0;
+        int half = size >>> 1;
+        while (index < half) {
+            int child = 2 * index + 1;
+            int right = child + 1;
+            if (right < size && order.applyAsInt(heap[right], heap[child]) > 0) {
+                child = right;
+            }
+            if (order.applyAsInt(position, heap[child]) >= 0) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = position;
+    }
+}
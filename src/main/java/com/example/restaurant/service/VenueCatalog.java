@@ -0,0 +1,118 @@
+package com.example.restaurant.service;
+
+import com.example.restaurant.model.TableInfo;
+import com.example.restaurant.model.Zone;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Source of the initial floor plan of every venue. The {@value #DEFAULT_VENUE} venue uses the built-in
+ * demo layout; other venues are read from {@code <location><venueId>.json} when their shard is loaded,
+ * or from {@code <location><venueId>.layout} when the build precompiled it (see {@link VenueLayoutCompiler})
+ * and it is not older than the JSON file. The precompiled layout is already in column form and needs no
+ * JSON parsing.
+ */
+@Component
+public class VenueCatalog {
+
+    public static final String DEFAULT_VENUE = "default";
+
+    static final List<TableInfo> DEMO_TABLES = List.of(
+            new TableInfo("T1", 2, Zone.INDOOR, 80, 90, true, true, true, false),
+            new TableInfo("T2", 2, Zone.INDOOR, 200, 90, false, false, true, true),
+            new TableInfo("T3", 4, Zone.INDOOR, 330, 90, false, true, true, false),
+            new TableInfo("T4", 4, Zone.INDOOR, 470, 90, true, false, false, false),
+            new TableInfo("T5", 6, Zone.INDOOR, 600, 90, false, false, true, true),
+            new TableInfo("T6", 2, Zone.TERRACE, 100, 240, true, true, false, false),
+            new TableInfo("T7", 4, Zone.TERRACE, 250, 240, false, true, false, false),
+            new TableInfo("T8", 6, Zone.TERRACE, 420, 240, false, true, false, true),
+            new TableInfo("T9", 8, Zone.PRIVATE_ROOM, 590, 240, true, false, true, false),
+            new TableInfo("T10", 10, Zone.PRIVATE_ROOM, 360, 380, true, false, true, true)
+    );
+
+    private static final Pattern VENUE_ID = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+    private static final TypeReference<List<TableInfo>> TABLE_LIST = new TypeReference<>() {
+    };
+
+    private final List<TableInfo> defaultTables;
+    private final ResourceLoader resourceLoader;
+    private final ObjectMapper objectMapper;
+    private final String location;
+
+    @Autowired
+    public VenueCatalog(ResourceLoader resourceLoader, ObjectMapper objectMapper,
+                        @Value("${restaurant.venues.location:classpath:venues/}") String location) {
+        this(DEMO_TABLES, resourceLoader, objectMapper, location);
+    }
+
+    private VenueCatalog(List<TableInfo> defaultTables, ResourceLoader resourceLoader,
+                         ObjectMapper objectMapper, String location) {
+        this.defaultTables = defaultTables;
+        this.resourceLoader = resourceLoader;
+        this.objectMapper = objectMapper;
+        this.location = location;
+    }
+
+    /**
+     * Catalog that only knows the default venue, backed by {@code tables}.
+     */
+    static VenueCatalog of(List<TableInfo> tables) {
+        return new VenueCatalog(tables, null, null, null);
+    }
+
+    static void validateVenueId(String venueId) {
+        if (venueId == null || !VENUE_ID.matcher(venueId).matches()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Vigane restorani tunnus: " + venueId);
+        }
+    }
+
+    LayoutColumns layout(String venueId) {
+        if (DEFAULT_VENUE.equals(venueId)) {
+            return LayoutColumns.of(defaultTables);
+        }
+        Resource json = resourceLoader == null ? null : resourceLoader.getResource(location + venueId + ".json");
+        Resource precompiled = resourceLoader == null ? null : precompiled(json, venueId);
+        if (precompiled == null && (json == null || !json.exists())) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Tundmatu restoran: " + venueId);
+        }
+        try {
+            if (precompiled != null) {
+                return BinaryWireFormat.readLayoutColumns(precompiled.getContentAsByteArray());
+            }
+            try (InputStream in = json.getInputStream()) {
+                return LayoutColumns.of(readTables(objectMapper, in));
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Restorani " + venueId + " saaliplaani ei saanud lugeda", ex);
+        }
+    }
+
+    static List<TableInfo> readTables(ObjectMapper objectMapper, InputStream json) throws IOException {
+        return List.copyOf(objectMapper.readValue(json, TABLE_LIST));
+    }
+
+    private Resource precompiled(Resource json, String venueId) {
+        Resource layout = resourceLoader.getResource(location + venueId + VenueLayoutCompiler.EXTENSION);
+        if (!layout.exists()) {
+            return null;
+        }
+        try {
+            return !json.exists() || layout.lastModified() >= json.lastModified() ? layout : null;
+        } catch (IOException ex) {
+            return null;
+        }
+    }
+}
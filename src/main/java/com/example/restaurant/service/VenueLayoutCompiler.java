@@ -0,0 +1,50 @@
+package com.example.restaurant.service;
+
+import com.example.restaurant.model.TableInfo;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Build step of the {@code aot} profile: writes every {@code <venueId>.json} floor plan in a directory as
+ * {@code <venueId>.layout} in the {@link BinaryWireFormat} layout form, so {@link VenueCatalog} loads it
+ * straight into columns at startup instead of parsing JSON. Usage: {@code VenueLayoutCompiler <directory>}.
+ */
+public final class VenueLayoutCompiler {
+
+    static final String EXTENSION = ".layout";
+
+    private VenueLayoutCompiler() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            throw new IllegalArgumentException("Usage: VenueLayoutCompiler <directory>");
+        }
+        Path directory = Path.of(args[0]);
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        ObjectMapper objectMapper = new ObjectMapper();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.json")) {
+            for (Path json : files) {
+                String name = json.getFileName().toString();
+                List<TableInfo> tables;
+                try (InputStream in = Files.newInputStream(json)) {
+                    tables = VenueCatalog.readTables(objectMapper, in);
+                }
+                Files.write(directory.resolve(name.substring(0, name.length() - ".json".length()) + EXTENSION),
+                        compile(tables));
+            }
+        }
+    }
+
+    static byte[] compile(List<TableInfo> tables) {
+        return BinaryWireFormat.writeLayout(LayoutSnapshot.initial(tables));
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.restaurant.service;
+
+import com.example.restaurant.model.Reservation;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Durable change log of one venue, stored as numbered log segments next to the venue snapshot. A
+ * checkpoint starts a new segment at a consistent cut, writes the snapshot for that cut and then
+ * deletes the segments the snapshot covers; a crash anywhere in between leaves either the old
+ * snapshot with all its segments or the new one.
+ */
+final class VenueLog implements ReservationBook.Journal, Closeable {
+
+    private static final Pattern SEGMENT = Pattern.compile("wal-(\\d+)\\.log");
+
+    private final Path directory;
+    private final boolean fsync;
+    private final AtomicLong pendingRecords = new AtomicLong();
+    private WriteAheadLog segment;
+    private long generation;
+
+    VenueLog(Path directory, boolean fsync) {
+        this.directory = directory;
+        this.fsync = fsync;
+    }
+
+    /**
+     * Replays the segments from {@code fromGeneration} on, oldest first, and opens the newest one for
+     * appending.
+     */
+    synchronized void recover(long fromGeneration, WriteAheadLog.RecordHandler handler) throws IOException {
+        Files.createDirectories(directory);
+        long last = fromGeneration;
+        for (long existing : segments()) {
+            if (existing >= fromGeneration) {
+                pendingRecords.addAndGet(WriteAheadLog.replay(segmentPath(existing), handler));
+                last = existing;
+            }
+        }
+        generation = last;
+        segment = WriteAheadLog.open(segmentPath(last), fsync);
+    }
+
+    @Override
+    public void booked(Reservation reservation) {
+        append(StorageCodec.bookedRecord(reservation));
+    }
+
+    @Override
+    public void cancelled(Reservation reservation) {
+        append(StorageCodec.cancelledRecord(reservation.id()));
+    }
+
+    void layoutChanged(LayoutSnapshot layout) {
+        append(StorageCodec.layoutRecord(layout));
+    }
+
+    /**
+     * Returns once everything appended before the call is on disk.
+     */
+    void sync() {
+        WriteAheadLog current;
+        synchronized (this) {
+            current = segment;
+        }
+        try {
+            current.sync();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    long pendingRecords() {
+        return pendingRecords.get();
+    }
+
+    void checkpoint(VenueShard shard) throws IOException {
+        long[] cut = new long[1];
+        ReservationBook.Contents contents = shard.reservationBook().contents(() -> cut[0] = rotate());
+        VenueSnapshotFile.write(directory, cut[0], shard.layout().get(), contents);
+        // write() has synced the directory, so the snapshot cannot vanish in a crash after this point
+        for (long existing : segments()) {
+            if (existing < cut[0]) {
+                Files.deleteIfExists(segmentPath(existing));
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (segment != null) {
+            segment.close();
+        }
+    }
+
+    private synchronized void append(byte[] record) {
+        try {
+            segment.append(record);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        pendingRecords.incrementAndGet();
+    }
+
+    private synchronized long rotate() {
+        try {
+            segment.close();
+            generation++;
+            segment = WriteAheadLog.open(segmentPath(generation), fsync);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        pendingRecords.set(0);
+        return generation;
+    }
+
+    private List<Long> segments() throws IOException {
+        List<Long> generations = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "wal-*.log")) {
+            for (Path file : files) {
+                Matcher matcher = SEGMENT.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    generations.add(Long.parseLong(matcher.group(1)));
+                }
+            }
+        }
+        generations.sort(null);
+        return generations;
+    }
+
+    private Path segmentPath(long segmentGeneration) {
+        return directory.resolve("wal-" + segmentGeneration + ".log");
+    }
+}
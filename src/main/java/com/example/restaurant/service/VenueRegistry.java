@@ -0,0 +1,154 @@
+package com.example.restaurant.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Lazily loads venue shards on first use and evicts them after they have been idle, so memory follows
+ * the number of active venues. A shard is loaded exactly once even under concurrent first requests,
+ * and loading one venue never blocks requests for another.
+ */
+@Service
+public class VenueRegistry {
+
+    private final VenueCatalog catalog;
+    private final VenueStore store;
+    private final Duration idleTimeout;
+    private final Duration evictionInterval;
+    private final Map<String, FutureTask<VenueShard>> shards = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService evictor =
+            Executors.newSingleThreadScheduledExecutor(Thread.ofVirtual().name("venue-evictor").factory());
+
+    public VenueRegistry(VenueCatalog catalog) {
+        this(catalog, VenueStore.inMemory(), Duration.ofMinutes(30), Duration.ofMinutes(1));
+    }
+
+    @Autowired
+    public VenueRegistry(VenueCatalog catalog,
+                         VenueStore store,
+                         @Value("${restaurant.venues.idle-timeout:30m}") Duration idleTimeout,
+                         @Value("${restaurant.venues.eviction-interval:1m}") Duration evictionInterval) {
+        this.catalog = catalog;
+        this.store = store;
+        this.idleTimeout = idleTimeout;
+        this.evictionInterval = evictionInterval;
+    }
+
+    @PostConstruct
+    public void start() {
+        evictor.scheduleWithFixedDelay(this::maintain, evictionInterval.toMillis(), evictionInterval.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        evictor.shutdownNow();
+        shards.forEach((venueId, task) -> {
+            VenueShard shard = loaded(task);
+            if (shard != null) {
+                shard.close();
+            }
+            shards.remove(venueId, task);
+        });
+    }
+
+    public int loadedVenues() {
+        return shards.size();
+    }
+
+    VenueShard shard(String venueId) {
+        VenueCatalog.validateVenueId(venueId);
+        FutureTask<VenueShard> task = shards.get(venueId);
+        if (task == null) {
+            FutureTask<VenueShard> created = new FutureTask<>(() -> load(venueId));
+            task = shards.putIfAbsent(venueId, created);
+            if (task == null) {
+                task = created;
+                created.run();
+            }
+        }
+        try {
+            VenueShard shard = task.get();
+            shard.touch();
+            return shard;
+        } catch (ExecutionException ex) {
+            shards.remove(venueId, task);
+            if (ex.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException(ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while loading venue " + venueId, ex);
+        }
+    }
+
+    /**
+     * Applies a state change to the venue, retrying on a freshly loaded shard if the current one was
+     * evicted in the meantime.
+     */
+    <T> T mutate(String venueId, Function<VenueShard, T> mutation) {
+        while (true) {
+            VenueShard shard = shard(venueId);
+            Object[] result = new Object[1];
+            if (shard.tryMutate(() -> result[0] = mutation.apply(shard))) {
+                @SuppressWarnings("unchecked")
+                T value = (T) result[0];
+                return value;
+            }
+        }
+    }
+
+    /**
+     * Periodic pass: evicts idle shards and checkpoints the ones whose log has grown long.
+     */
+    void maintain() {
+        long idleNanos = idleTimeout.toNanos();
+        shards.forEach((venueId, task) -> {
+            if (!task.isDone()) {
+                return;
+            }
+            VenueShard shard = loaded(task);
+            if (shard == null || shard.tryEvict(idleNanos)) {
+                shards.remove(venueId, task);
+                return;
+            }
+            try {
+                shard.checkpointIfDue(store.checkpointRecords());
+            } catch (RuntimeException ex) {
+                // the log still holds every change; the next pass retries
+            }
+        });
+    }
+
+    private static VenueShard loaded(FutureTask<VenueShard> task) {
+        if (!task.isDone()) {
+            return null;
+        }
+        try {
+            return task.get();
+        } catch (ExecutionException ex) {
+            return null;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    private VenueShard load(String venueId) {
+        return store.open(venueId, () -> catalog.layout(venueId));
+    }
+}
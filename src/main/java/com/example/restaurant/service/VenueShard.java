@@ -0,0 +1,217 @@
+package com.example.restaurant.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.UnaryOperator;
+
+/**
+ * All mutable state of one venue: its layout snapshot and reservation book, plus the log that makes
+ * them durable when storage is enabled. Shards share nothing, so requests for different venues never
+ * touch the same locks or atomics.
+ */
+final class VenueShard {
+
+    private final String venueId;
+    private final AtomicReference<LayoutSnapshot> layout;
+    private final ReservationBook reservationBook;
+    private final VenueLog log;
+    private final ReadWriteLock evictionLock = new ReentrantReadWriteLock();
+    private final Lock layoutLock = new ReentrantLock();
+    private final AtomicReference<OccupancySimulator.Season> simulatedSeason = new AtomicReference<>();
+    private final AtomicBoolean redrawingSeason = new AtomicBoolean();
+    private final AtomicLong seasonVersion = new AtomicLong();
+    private volatile long lastAccessNanos = System.nanoTime();
+    private boolean evicted;
+
+    VenueShard(String venueId, LayoutSnapshot initialLayout, ReservationBook reservationBook, VenueLog log) {
+        this.venueId = venueId;
+        this.layout = new AtomicReference<>(initialLayout);
+        this.reservationBook = reservationBook;
+        this.log = log;
+    }
+
+    String venueId() {
+        return venueId;
+    }
+
+    /**
+     * The published layout; only {@link #publishLayout} changes it.
+     */
+    AtomicReference<LayoutSnapshot> layout() {
+        return layout;
+    }
+
+    /**
+     * Publishes the layout {@code change} derives from the current one and returns it; a change returning
+     * the current snapshot publishes nothing. The new layout is appended to the log before it becomes
+     * visible, and if the append throws it never does. Layout changes of one shard run one at a time, so
+     * every version is derived and logged exactly once; readers never wait.
+     */
+    LayoutSnapshot publishLayout(UnaryOperator<LayoutSnapshot> change) {
+        layoutLock.lock();
+        try {
+            LayoutSnapshot current = layout.get();
+            LayoutSnapshot next = change.apply(current);
+            if (next != current) {
+                if (log != null) {
+                    log.layoutChanged(next);
+                }
+                layout.set(next);
+            }
+            return next;
+        } finally {
+            layoutLock.unlock();
+        }
+    }
+
+    ReservationBook reservationBook() {
+        return reservationBook;
+    }
+
+    /**
+     * Last simulated occupancy season, or null; see {@link OccupancySimulator}.
+     */
+    OccupancySimulator.Season simulatedSeason() {
+        return simulatedSeason.get();
+    }
+
+    void simulatedSeason(OccupancySimulator.Season season) {
+        OccupancySimulator.Season previous = simulatedSeason.getAndSet(season);
+        if (previous != null && !previous.simulatedLike(season)) {
+            seasonVersion.incrementAndGet();
+        }
+    }
+
+    /**
+     * Counts the seasons published from other occupancy rates than the one before; seasons drawn from the
+     * same rates agree on every day they share. It moves after the season is, so an answer cached under
+     * the new count never comes from the old season.
+     */
+    long seasonVersion() {
+        return seasonVersion.get();
+    }
+
+    /**
+     * Claims the season redraw, so only one runs per shard; false if one is already running.
+     */
+    boolean startSeasonRedraw() {
+        return redrawingSeason.compareAndSet(false, true);
+    }
+
+    /**
+     * Publishes a redrawn season in place of {@code replaced}, unless a lookup has moved the shard on to
+     * another season meanwhile, and releases the redraw. A null {@code redrawn}, from a failed redraw, only
+     * releases it.
+     */
+    void seasonRedrawn(OccupancySimulator.Season replaced, OccupancySimulator.Season redrawn) {
+        if (redrawn != null && simulatedSeason.compareAndSet(replaced, redrawn)) {
+            seasonVersion.incrementAndGet();
+        }
+        redrawingSeason.set(false);
+    }
+
+    void touch() {
+        lastAccessNanos = System.nanoTime();
+    }
+
+    long idleNanos() {
+        return System.nanoTime() - lastAccessNanos;
+    }
+
+    /**
+     * True while the shard holds nothing that could not be rebuilt from the catalog.
+     */
+    boolean isPristine() {
+        return layout.get().version() == 1 && reservationBook.isEmpty();
+    }
+
+    /**
+     * Runs a mutation unless the shard has been evicted and returns once it is durable. Mutations share
+     * the read side of the lock, so they never block each other; only eviction takes the write side.
+     */
+    boolean tryMutate(Runnable mutation) {
+        evictionLock.readLock().lock();
+        try {
+            if (evicted) {
+                return false;
+            }
+            mutation.run();
+            if (log != null) {
+                log.sync();
+            }
+            return true;
+        } finally {
+            evictionLock.readLock().unlock();
+        }
+    }
+
+    boolean tryEvict(long idleTimeoutNanos) {
+        if (!evictionLock.writeLock().tryLock()) {
+            return false;
+        }
+        try {
+            if (evicted || idleNanos() < idleTimeoutNanos || (log == null && !isPristine())) {
+                return false;
+            }
+            retire();
+            return true;
+        } finally {
+            evictionLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Writes a snapshot once enough changes have piled up in the log, so restarts replay little.
+     */
+    void checkpointIfDue(long checkpointRecords) {
+        if (log != null && log.pendingRecords() >= checkpointRecords) {
+            tryMutate(this::checkpoint);
+        }
+    }
+
+    void close() {
+        evictionLock.writeLock().lock();
+        try {
+            if (!evicted) {
+                retire();
+            }
+        } finally {
+            evictionLock.writeLock().unlock();
+        }
+    }
+
+    private void retire() {
+        evicted = true;
+        if (log == null) {
+            return;
+        }
+        try {
+            if (log.pendingRecords() > 0) {
+                log.checkpoint(this);
+            }
+        } catch (IOException | UncheckedIOException ex) {
+            // every change is still in the log and is replayed on the next load
+        } finally {
+            try {
+                log.close();
+            } catch (IOException ignored) {
+                // appends were already synced
+            }
+        }
+    }
+
+    private void checkpoint() {
+        try {
+            log.checkpoint(this);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.restaurant.service;
+
+import com.example.restaurant.model.Reservation;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary checkpoint of one venue: the layout plus every live booking, with table ids
+ * dictionary-encoded and bookings ordered by start so they load in one linear pass. Files are written
+ * to a temporary name, fsynced and renamed into place, so a reader only ever sees a complete snapshot;
+ * the directory is fsynced after the rename, so the new snapshot is durable before the caller deletes
+ * the log segments it covers. Reading maps the file instead of streaming it.
+ */
+final class VenueSnapshotFile {
+
+    static final String FILE_NAME = "snapshot.bin";
+
+    private static final int MAGIC = 0x52535631;
+    private static final boolean WINDOWS = System.getProperty("os.name", "").startsWith("Windows");
+
+    private VenueSnapshotFile() {
+    }
+
+    /**
+     * Returns once the snapshot, and every file created in the directory before it, survives a crash.
+     *
+     * @param generation first log segment that is <em>not</em> covered by this snapshot
+     */
+    static void write(Path directory, long generation, LayoutSnapshot layout,
+                      ReservationBook.Contents contents) throws IOException {
+        Map<String, Integer> dictionary = new HashMap<>();
+        for (String tableId : layout.tableIds()) {
+            dictionary.putIfAbsent(tableId, dictionary.size());
+        }
+        for (Reservation reservation : contents.reservations()) {
+            for (String tableId : reservation.tableIds()) {
+                dictionary.putIfAbsent(tableId, dictionary.size());
+            }
+        }
+        String[] tableIds = new String[dictionary.size()];
+        dictionary.forEach((id, index) -> tableIds[index] = id);
+
+        Path temporary = directory.resolve(FILE_NAME + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+            out.writeInt(MAGIC);
+            out.writeLong(generation);
+            out.writeLong(layout.version());
+            StorageCodec.writeTables(out, layout.tables());
+            out.writeLong(contents.nextId());
+            out.writeInt(tableIds.length);
+            for (String tableId : tableIds) {
+                StorageCodec.writeString(out, tableId);
+            }
+            List<Reservation> byStart = new ArrayList<>(contents.reservations());
+            byStart.sort(Comparator.comparing(Reservation::start));
+            out.writeInt(byStart.size());
+            for (Reservation reservation : byStart) {
+                out.writeLong(reservation.id());
+                StorageCodec.writeTime(out, reservation.start());
+                StorageCodec.writeTime(out, reservation.end());
+                out.writeInt(reservation.partySize());
+                StorageCodec.writeString(out, reservation.customerName());
+                out.writeShort(reservation.tableIds().size());
+                for (String tableId : reservation.tableIds()) {
+                    out.writeInt(dictionary.get(tableId));
+                }
+            }
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(temporary, directory.resolve(FILE_NAME),
+                StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        syncDirectory(directory);
+    }
+
+    /**
+     * Forces the directory entries, i.e. the rename, to disk. Windows cannot open a directory as a channel,
+     * and NTFS journals renames anyway.
+     */
+    private static void syncDirectory(Path directory) throws IOException {
+        if (WINDOWS) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Loads the snapshot of the venue, or returns {@code null} when it has none yet.
+     */
+    static Contents read(Path directory) throws IOException {
+        Path file = directory.resolve(FILE_NAME);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        MappedByteBuffer in;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (in.getInt() != MAGIC) {
+            throw new IOException("Not a venue snapshot: " + file);
+        }
+        long generation = in.getLong();
+        LayoutSnapshot layout = LayoutSnapshot.restore(in.getLong(), StorageCodec.readTables(in));
+        long nextId = in.getLong();
+        String[] tableIds = new String[in.getInt()];
+        for (int i = 0; i < tableIds.length; i++) {
+            tableIds[i] = StorageCodec.readString(in);
+        }
+        int count = in.getInt();
+        List<Reservation> reservations = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            long id = in.getLong();
+            LocalDateTime start = StorageCodec.readTime(in);
+            LocalDateTime end = StorageCodec.readTime(in);
+            int partySize = in.getInt();
+            String customerName = StorageCodec.readString(in);
+            String[] ids = new String[in.getShort()];
+            for (int t = 0; t < ids.length; t++) {
+                ids[t] = tableIds[in.getInt()];
+            }
+            reservations.add(new Reservation(id, List.of(ids), start, end, partySize, customerName));
+        }
+        return new Contents(generation, layout, nextId, reservations);
+    }
+
+    /**
+     * @param reservations live bookings ordered by start
+     */
+    record Contents(long generation, LayoutSnapshot layout, long nextId, List<Reservation> reservations) {
+    }
+}
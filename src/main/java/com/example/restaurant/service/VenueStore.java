@@ -0,0 +1,90 @@
+package com.example.restaurant.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.Supplier;
+
+/**
+ * Opens venue shards, either purely in memory or backed by {@code <directory>/<venueId>/}: the latest
+ * snapshot is memory-mapped and loaded, then the log segments written after it are replayed. With no
+ * directory configured nothing is persisted.
+ */
+@Component
+public class VenueStore {
+
+    private final Path directory;
+    private final boolean fsync;
+    private final long checkpointRecords;
+
+    @Autowired
+    public VenueStore(@Value("${restaurant.storage.directory:}") String directory,
+                      @Value("${restaurant.storage.fsync:true}") boolean fsync,
+                      @Value("${restaurant.storage.checkpoint-records:100000}") long checkpointRecords) {
+        this.directory = directory == null || directory.isBlank() ? null : Path.of(directory);
+        this.fsync = fsync;
+        this.checkpointRecords = checkpointRecords;
+    }
+
+    public static VenueStore inMemory() {
+        return new VenueStore(null, false, Long.MAX_VALUE);
+    }
+
+    public boolean persistent() {
+        return directory != null;
+    }
+
+    long checkpointRecords() {
+        return checkpointRecords;
+    }
+
+    VenueShard open(String venueId, Supplier<LayoutColumns> catalogLayout) {
+        if (directory == null) {
+            return new VenueShard(venueId, LayoutSnapshot.initial(catalogLayout.get()), new ReservationBook(), null);
+        }
+        Path venueDirectory = directory.resolve(venueId);
+        try {
+            return recover(venueId, venueDirectory, catalogLayout);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Restorani " + venueId + " andmeid ei saanud taastada", ex);
+        }
+    }
+
+    private VenueShard recover(String venueId, Path venueDirectory,
+                               Supplier<LayoutColumns> catalogLayout) throws IOException {
+        VenueSnapshotFile.Contents snapshot = Files.isDirectory(venueDirectory)
+                ? VenueSnapshotFile.read(venueDirectory)
+                : null;
+        VenueLog log = new VenueLog(venueDirectory, fsync);
+        ReservationBook book;
+        LayoutSnapshot[] layout = new LayoutSnapshot[1];
+        if (snapshot == null) {
+            book = new ReservationBook(log);
+            layout[0] = LayoutSnapshot.initial(catalogLayout.get());
+        } else {
+            book = new ReservationBook(log, snapshot.reservations().size() * 4 / 3 + 16);
+            book.restoreAll(snapshot.reservations());
+            book.restoreNextId(snapshot.nextId());
+            layout[0] = snapshot.layout();
+        }
+        log.recover(snapshot == null ? 0 : snapshot.generation(), (type, payload) -> {
+            switch (type) {
+                case StorageCodec.BOOKED -> book.restore(StorageCodec.readBooked(payload));
+                case StorageCodec.CANCELLED -> book.restoreCancel(payload.getLong());
+                case StorageCodec.LAYOUT -> {
+                    long version = payload.getLong();
+                    if (version > layout[0].version()) {
+                        layout[0] = LayoutSnapshot.restore(version, StorageCodec.readTables(payload));
+                    }
+                }
+                default -> throw new IOException("Tundmatu logikirje tüüp " + type + " restoranis " + venueId);
+            }
+        });
+        return new VenueShard(venueId, layout[0], book, log);
+    }
+}
@@ -0,0 +1,399 @@
+package com.example.restaurant.service;
+
+import com.example.restaurant.model.AvailabilitySlot;
+import com.example.restaurant.model.Reservation;
+import com.example.restaurant.model.SearchRequest;
+import com.example.restaurant.model.WaitlistEntry;
+import com.example.restaurant.model.WaitlistRequest;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Parties waiting for a table that was taken when they asked. Entries are kept per venue in priority
+ * order (higher priority first, then first come, first served). Whenever tables may have come free for
+ * the waitlist (a cancellation, an entry leaving or joining), entries without an offer are offered the
+ * earliest slot in their window in that order, and no two entries are offered the same tables at once.
+ * These offer passes run on their own executor, never on the thread that freed the tables.
+ * <p>
+ * Offers are advisory: they do not block bookings, so whoever books first gets the table. An offer whose
+ * tables have been booked since, or whose start has passed, is withdrawn as soon as it is seen and its
+ * tables go to the next pass. Waitlists live in memory only.
+ */
+@Service
+public class WaitlistService {
+
+    static final int MAX_ENTRIES_PER_VENUE = 1_000;
+    static final Duration MAX_WINDOW = Duration.ofHours(RecommendationService.MAX_NEXT_AVAILABLE_HOURS);
+
+    private static final Comparator<Entry> PRIORITY_ORDER = Comparator.<Entry>comparingInt(Entry::priority)
+            .reversed()
+            .thenComparingLong(Entry::id);
+
+    private final RecommendationService recommendationService;
+    private final Clock clock;
+    private final Executor offers;
+    private final Map<String, List<Entry>> waitlists = new ConcurrentHashMap<>();
+    private final Set<String> pendingPasses = ConcurrentHashMap.newKeySet();
+    private final AtomicLong ids = new AtomicLong();
+    private final List<Consumer<WaitlistEntry>> listeners = new CopyOnWriteArrayList<>();
+
+    @Autowired
+    public WaitlistService(RecommendationService recommendationService) {
+        this(recommendationService, Clock.systemDefaultZone(),
+                Executors.newSingleThreadExecutor(Thread.ofVirtual().name("waitlist-offers").factory()));
+    }
+
+    /**
+     * @param offers runs the offer passes; {@code Runnable::run} runs them on the caller's thread
+     */
+    public WaitlistService(RecommendationService recommendationService, Clock clock, Executor offers) {
+        this.recommendationService = recommendationService;
+        this.clock = clock;
+        this.offers = offers;
+    }
+
+    @PostConstruct
+    public void start() {
+        recommendationService.addCancellationListener(this::cancelled);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (offers instanceof ExecutorService executor) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Registers a callback that receives every entry when it gets an offer, on the offer executor.
+     */
+    public void addListener(Consumer<WaitlistEntry> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Puts the party on the venue's waitlist and starts an offer pass, which offers it a free slot unless
+     * an entry ahead of it gets that first.
+     */
+    public WaitlistEntry join(String venueId, WaitlistRequest request) {
+        validate(request);
+        recommendationService.layoutVersion(venueId);
+        List<Entry> waitlist = waitlists.computeIfAbsent(venueId, ignored -> new ArrayList<>());
+        Entry entry;
+        synchronized (waitlist) {
+            if (waitlist.size() >= MAX_ENTRIES_PER_VENUE) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "Ootenimekiri on täis");
+            }
+            entry = new Entry(ids.incrementAndGet(), venueId, request);
+            waitlist.add(entry);
+            waitlist.sort(PRIORITY_ORDER);
+        }
+        schedulePass(venueId);
+        synchronized (waitlist) {
+            return entry.view();
+        }
+    }
+
+    public List<WaitlistEntry> entries(String venueId) {
+        List<Entry> waitlist = waitlists.get(venueId);
+        if (waitlist == null) {
+            return List.of();
+        }
+        List<WaitlistEntry> views;
+        boolean withdrawn;
+        synchronized (waitlist) {
+            withdrawn = withdrawStale(waitlist, LocalDateTime.now(clock));
+            views = waitlist.stream().map(Entry::view).toList();
+        }
+        if (withdrawn) {
+            schedulePass(venueId);
+        }
+        return views;
+    }
+
+    public WaitlistEntry find(String venueId, long id) {
+        List<Entry> waitlist = waitlists.get(venueId);
+        if (waitlist != null) {
+            WaitlistEntry view = null;
+            boolean withdrawn = false;
+            synchronized (waitlist) {
+                for (Entry entry : waitlist) {
+                    if (entry.id == id) {
+                        withdrawn = withdrawIfStale(entry, LocalDateTime.now(clock));
+                        view = entry.view();
+                        break;
+                    }
+                }
+            }
+            if (withdrawn) {
+                schedulePass(venueId);
+            }
+            if (view != null) {
+                return view;
+            }
+        }
+        throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Ootenimekirjas pole kirjet " + id);
+    }
+
+    /**
+     * Takes the party off the waitlist; the tables of its offer go to the entries still waiting.
+     */
+    public WaitlistEntry leave(String venueId, long id) {
+        List<Entry> waitlist = waitlists.get(venueId);
+        if (waitlist != null) {
+            Entry left = null;
+            synchronized (waitlist) {
+                for (int i = 0; i < waitlist.size() && left == null; i++) {
+                    if (waitlist.get(i).id == id) {
+                        left = waitlist.remove(i);
+                    }
+                }
+            }
+            if (left != null) {
+                if (left.offered != null) {
+                    Reservation freed = left.offered;
+                    offers.execute(() -> offerFreed(venueId, freed));
+                }
+                return left.view();
+            }
+        }
+        throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Ootenimekirjas pole kirjet " + id);
+    }
+
+    private void cancelled(String venueId, Reservation cancelled) {
+        if (waitlists.containsKey(venueId)) {
+            offers.execute(() -> offerFreed(venueId, cancelled));
+        }
+    }
+
+    /**
+     * Queues a pass over the whole waitlist unless one is already queued and not yet started.
+     */
+    private void schedulePass(String venueId) {
+        if (pendingPasses.add(venueId)) {
+            offers.execute(() -> {
+                pendingPasses.remove(venueId);
+                offerAll(venueId);
+            });
+        }
+    }
+
+    private void offerAll(String venueId) {
+        offer(venueId, null);
+    }
+
+    /**
+     * Offers the tables of {@code freed} to the entries whose window it overlaps, in priority order, and
+     * stops as soon as every freed table is part of an offer.
+     */
+    private void offerFreed(String venueId, Reservation freed) {
+        offer(venueId, freed);
+    }
+
+    /**
+     * An offer pass over the entries without an offer, or with {@code freed} only over those it could
+     * help. Slots are searched outside the waitlist's lock, from a copy of the waiting entries and the
+     * offers held when the pass started. Each offer found is checked again under the lock: one whose entry
+     * has left or got an offer meanwhile is dropped, and one clashing with an offer made meanwhile is left
+     * to another pass.
+     */
+    private void offer(String venueId, Reservation freed) {
+        List<Entry> waitlist = waitlists.get(venueId);
+        if (waitlist == null) {
+            return;
+        }
+        List<Entry> waiting = new ArrayList<>();
+        List<Reservation> held = new ArrayList<>();
+        LocalDateTime now;
+        boolean withdrawn;
+        synchronized (waitlist) {
+            now = LocalDateTime.now(clock);
+            withdrawn = withdrawStale(waitlist, now);
+            for (Entry entry : waitlist) {
+                if (entry.offered != null) {
+                    held.add(entry.offered);
+                } else if (freed == null || couldUse(entry, freed)) {
+                    waiting.add(entry);
+                }
+            }
+        }
+
+        Set<String> unclaimed = freed == null ? Set.of() : new HashSet<>(freed.tableIds());
+        List<Offer> found = new ArrayList<>();
+        for (int i = 0; i < waiting.size() && (freed == null || !unclaimed.isEmpty()); i++) {
+            Offer offer = search(waiting.get(i), now, held);
+            if (offer != null) {
+                found.add(offer);
+                held.add(offer.offered());
+                if (freed != null) {
+                    unclaimed.removeAll(offer.offered().tableIds());
+                }
+            }
+        }
+
+        List<Entry> offered = new ArrayList<>();
+        boolean clashed = false;
+        synchronized (waitlist) {
+            Set<Entry> present = new HashSet<>(waitlist);
+            for (Offer offer : found) {
+                Entry entry = offer.entry();
+                if (entry.offered != null || !present.contains(entry)) {
+                    continue;
+                }
+                if (clashes(waitlist, offer.offered())) {
+                    clashed = true;
+                    continue;
+                }
+                entry.offer = offer.slot();
+                entry.offered = offer.offered();
+                offered.add(entry);
+            }
+        }
+        if (clashed || (withdrawn && freed != null)) {
+            schedulePass(venueId);
+        }
+        offered.forEach(this::notifyListeners);
+    }
+
+    /**
+     * Whether a visit in the entry's window could overlap the freed time, the only way it can gain a slot.
+     */
+    private boolean couldUse(Entry entry, Reservation freed) {
+        return entry.request.earliest().isBefore(freed.end())
+                && entry.request.latest().plusMinutes(recommendationService.visitMinutes()).isAfter(freed.start());
+    }
+
+    /**
+     * The earliest slot in the entry's window, not before {@code now}, that fits around real bookings and
+     * the {@code held} offers, or null.
+     */
+    private Offer search(Entry entry, LocalDateTime now, List<Reservation> held) {
+        WaitlistRequest request = entry.request;
+        LocalDateTime from = request.earliest().isBefore(now) ? now : request.earliest();
+        SearchRequest search = new SearchRequest(from, request.partySize(), request.zone(),
+                request.privacy(), request.window(), request.accessibility(), request.kidsArea());
+        List<AvailabilitySlot> slots = recommendationService.availableSlots(entry.venueId, search, request.latest(), 1, held);
+        if (slots.isEmpty()) {
+            return null;
+        }
+        AvailabilitySlot slot = slots.getFirst();
+        List<String> tableIds = slot.bestTableId() != null ? List.of(slot.bestTableId()) : slot.mergedTableIds();
+        return new Offer(entry, slot, new Reservation(-entry.id, tableIds, slot.dateTime(),
+                slot.dateTime().plusMinutes(recommendationService.visitMinutes()), request.partySize(),
+                request.customerName()));
+    }
+
+    private static boolean clashes(List<Entry> waitlist, Reservation offered) {
+        for (Entry other : waitlist) {
+            Reservation held = other.offered;
+            if (held != null && held.start().isBefore(offered.end()) && offered.start().isBefore(held.end())
+                    && !Collections.disjoint(held.tableIds(), offered.tableIds())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean withdrawStale(List<Entry> waitlist, LocalDateTime now) {
+        boolean withdrawn = false;
+        for (Entry entry : waitlist) {
+            withdrawn |= withdrawIfStale(entry, now);
+        }
+        return withdrawn;
+    }
+
+    /**
+     * Drops the entry's offer if it starts before {@code now} or any of its tables got booked meanwhile.
+     */
+    private boolean withdrawIfStale(Entry entry, LocalDateTime now) {
+        Reservation offered = entry.offered;
+        if (offered == null || (!offered.start().isBefore(now)
+                && recommendationService.isUnbooked(entry.venueId, offered.tableIds(), offered.start(), offered.end()))) {
+            return false;
+        }
+        entry.offer = null;
+        entry.offered = null;
+        return true;
+    }
+
+    private void notifyListeners(Entry entry) {
+        WaitlistEntry view = entry.view();
+        for (Consumer<WaitlistEntry> listener : listeners) {
+            listener.accept(view);
+        }
+    }
+
+    private static void validate(WaitlistRequest request) {
+        if (request.customerName() == null || request.customerName().isBlank()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Kliendi nimi on kohustuslik");
+        }
+        if (request.partySize() < 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Seltskonna suurus peab olema positiivne");
+        }
+        if (request.earliest() == null || request.latest() == null || request.latest().isBefore(request.earliest())) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Vigane ajavahemik");
+        }
+        if (Duration.between(request.earliest(), request.latest()).compareTo(MAX_WINDOW) > 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Ajavahemik võib olla kuni " + MAX_WINDOW.toHours() + " tundi");
+        }
+    }
+
+    private record Offer(Entry entry, AvailabilitySlot slot, Reservation offered) {
+    }
+
+    /**
+     * Mutable state of one waitlist entry, guarded by its venue's list.
+     */
+    private static final class Entry {
+
+        private final long id;
+        private final String venueId;
+        private final WaitlistRequest request;
+        private AvailabilitySlot offer;
+        /**
+         * The offered visit as a booking, so later offers route around it; never stored in the book.
+         */
+        private Reservation offered;
+
+        Entry(long id, String venueId, WaitlistRequest request) {
+            this.id = id;
+            this.venueId = venueId;
+            this.request = request;
+        }
+
+        long id() {
+            return id;
+        }
+
+        int priority() {
+            return request.priority() == null ? 0 : request.priority();
+        }
+
+        WaitlistEntry view() {
+            return new WaitlistEntry(id, venueId, request, offer);
+        }
+    }
+}
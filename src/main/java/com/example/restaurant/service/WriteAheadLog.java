@@ -0,0 +1,159 @@
+package com.example.restaurant.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+
+/**
+ * One append-only log segment. Each record is {@code [length][crc32c][type + payload]}. Appends only
+ * write to the page cache; {@link #sync()} makes them durable with group commit: the first waiting
+ * writer forces everything appended so far, and writers that queued behind it usually find their
+ * record already covered and return without another fsync.
+ */
+final class WriteAheadLog implements Closeable {
+
+    private static final int HEADER_BYTES = 8;
+
+    private final FileChannel channel;
+    private final boolean fsync;
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private long written;
+    private volatile long durable;
+
+    private WriteAheadLog(FileChannel channel, boolean fsync) throws IOException {
+        this.channel = channel;
+        this.fsync = fsync;
+        this.written = channel.size();
+        this.durable = written;
+        channel.position(written);
+    }
+
+    static WriteAheadLog open(Path path, boolean fsync) throws IOException {
+        return new WriteAheadLog(FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.READ), fsync);
+    }
+
+    /**
+     * Feeds every intact record of the segment to {@code handler} and cuts off a torn tail left by a
+     * crash mid-write (short header, short payload or checksum mismatch). Returns the record count.
+     */
+    static long replay(Path path, RecordHandler handler) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Log segment too large: " + path);
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // read the whole segment
+            }
+            buffer.flip();
+
+            CRC32C crc = new CRC32C();
+            long records = 0;
+            int valid = 0;
+            while (buffer.remaining() >= HEADER_BYTES) {
+                int length = buffer.getInt();
+                int checksum = buffer.getInt();
+                if (length <= 0 || length > buffer.remaining()) {
+                    break;
+                }
+                crc.reset();
+                crc.update(buffer.slice(buffer.position(), length));
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+                ByteBuffer record = buffer.slice(buffer.position(), length);
+                handler.accept(record.get(), record);
+                buffer.position(buffer.position() + length);
+                valid = buffer.position();
+                records++;
+            }
+            if (valid < size) {
+                channel.truncate(valid);
+                channel.force(true);
+            }
+            return records;
+        }
+    }
+
+    synchronized void append(byte[] record) throws IOException {
+        CRC32C crc = new CRC32C();
+        crc.update(record);
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + record.length)
+                .putInt(record.length)
+                .putInt((int) crc.getValue())
+                .put(record)
+                .flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        written += HEADER_BYTES + record.length;
+    }
+
+    void sync() throws IOException {
+        if (!fsync) {
+            return;
+        }
+        long target = writtenBytes();
+        if (durable >= target) {
+            return;
+        }
+        syncLock.lock();
+        try {
+            if (durable >= target) {
+                return;
+            }
+            long covered = writtenBytes();
+            channel.force(false);
+            durable = covered;
+        } catch (ClosedChannelException ex) {
+            if (durable < target) {
+                throw ex;
+            }
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    /**
+     * Takes the sync lock first, as {@link #sync()} does, so a sync finishing meanwhile cannot set
+     * {@code durable} back below what the close made durable.
+     */
+    @Override
+    public void close() throws IOException {
+        syncLock.lock();
+        try {
+            synchronized (this) {
+                if (!channel.isOpen()) {
+                    return;
+                }
+                if (fsync) {
+                    channel.force(false);
+                }
+                durable = written;
+                channel.close();
+            }
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    private synchronized long writtenBytes() {
+        return written;
+    }
+
+    @FunctionalInterface
+    interface RecordHandler {
+        /**
+         * Receives one record; {@code payload} is positioned right after the type byte.
+         */
+        void accept(byte type, ByteBuffer payload) throws IOException;
+    }
+}
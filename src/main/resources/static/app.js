@@ -36,10 +36,15 @@ function loadAvailability(e) {
     if (zone) params.set('zone', zone);
 
     fetch(`/api/availability?${params.toString()}`)
-        .then(r => r.json())
+        .then(r => {
+            if (r.status === 429) throw new Error('busy');
+            return r.json();
+        })
         .then(renderPlan)
-        .catch(() => {
-            info.textContent = 'Andmete laadimine ebaõnnestus.';
+        .catch(error => {
+            info.textContent = error.message === 'busy'
+                ? 'Süsteem on hetkel ülekoormatud, proovi mõne sekundi pärast uuesti.'
+                : 'Andmete laadimine ebaõnnestus.';
             info.className = 'alert alert-danger py-2 mb-3';
         });
 }
@@ -0,0 +1,65 @@
+package com.example.restaurant;
+
+import com.example.restaurant.service.AdmissionControl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdmissionControlTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void shouldRateLimitEachClientAndVenueSeparately() {
+        AdmissionControl admission = new AdmissionControl(registry, 0.5, 2, 100, 0, 0, Duration.ZERO, 0.75);
+        admission.admit("default", "10.0.0.1").close();
+        admission.admit("default", "10.0.0.1").close();
+
+        ResponseStatusException limited = assertThrows(ResponseStatusException.class,
+                () -> admission.admit("default", "10.0.0.1"));
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, limited.getStatusCode());
+        assertEquals("2", limited.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+
+        admission.admit("default", "10.0.0.2").close();
+        admission.admit("downtown", "10.0.0.1").close();
+        assertEquals(4, admission.stats().admitted());
+        assertEquals(1, registry.get("restaurant.admission.rejected").tag("reason", "rate_limit").counter().count());
+    }
+
+    @Test
+    void shouldDegradeUnderLoadAndFailFastWhenFull() {
+        AdmissionControl admission = new AdmissionControl(registry, 0, 1, 100, 2, 0, Duration.ofMillis(50), 0.5);
+
+        AdmissionControl.Permit first = admission.admit("default", "a");
+        AdmissionControl.Permit second = admission.admit("default", "b");
+        assertFalse(first.degraded());
+        assertTrue(second.degraded());
+        assertTrue(admission.stats().degraded());
+
+        long started = System.nanoTime();
+        ResponseStatusException overloaded = assertThrows(ResponseStatusException.class,
+                () -> admission.admit("default", "c"));
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, overloaded.getStatusCode());
+        assertTrue(System.nanoTime() - started < Duration.ofMillis(50).toNanos(), "queue is full, must not wait");
+
+        second.close();
+        first.close();
+        assertFalse(admission.stats().degraded());
+        assertEquals(0, admission.stats().inFlight());
+        assertTrue(admission.stats().degradedSeconds() > 0);
+        assertEquals(1, registry.get("restaurant.admission.rejected").tag("reason", "overload").counter().count());
+        assertEquals(1, registry.get("restaurant.admission.degraded.requests").functionCounter().count());
+        assertNotNull(registry.get("restaurant.admission.queue").gauge());
+        assertFalse(admission.admit("default", "c").degraded());
+    }
+}
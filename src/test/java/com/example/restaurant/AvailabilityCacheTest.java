@@ -0,0 +1,122 @@
+package com.example.restaurant;
+
+import com.example.restaurant.model.MealSuggestion;
+import com.example.restaurant.model.ReservationRequest;
+import com.example.restaurant.model.SearchResponse;
+import com.example.restaurant.model.TableInfo;
+import com.example.restaurant.model.TableLayoutUpdate;
+import com.example.restaurant.model.TableRecommendation;
+import com.example.restaurant.model.Zone;
+import com.example.restaurant.service.AvailabilityCache;
+import com.example.restaurant.service.MealSuggestionService;
+import com.example.restaurant.service.RecommendationMetrics;
+import com.example.restaurant.service.RecommendationService;
+import com.example.restaurant.service.VenueCatalog;
+import com.example.restaurant.service.VenueRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AvailabilityCacheTest {
+
+    private static final LocalDateTime FIXED_TIME = LocalDateTime.of(2026, 3, 10, 19, 0);
+
+    private final RecommendationService service;
+    private final AvailabilityCache cache;
+
+    AvailabilityCacheTest() {
+        MealSuggestionService mealSuggestionService = mock(MealSuggestionService.class);
+        when(mealSuggestionService.suggestMeal())
+                .thenReturn(new MealSuggestion("Test Meal", "Test", "", "", true));
+        this.service = new RecommendationService(mealSuggestionService);
+        this.cache = new AvailabilityCache(service, 100, Duration.ofMinutes(1));
+    }
+
+    @Test
+    void shouldServeRepeatedSearchFromCache() {
+        SearchResponse first = search(FIXED_TIME);
+        SearchResponse second = search(FIXED_TIME.plusSeconds(20));
+
+        assertSame(first, second);
+        assertEquals(1, cache.stats().hits());
+        assertEquals(1, cache.stats().misses());
+    }
+
+    @Test
+    void shouldReportHitsAndMissesToTheMeterRegistry() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        AvailabilityCache metered = new AvailabilityCache(registry, service, 100, Duration.ofMinutes(1));
+        metered.recommend(VenueCatalog.DEFAULT_VENUE, FIXED_TIME, 4, null, false, false, false, false);
+        metered.recommend(VenueCatalog.DEFAULT_VENUE, FIXED_TIME, 4, null, false, false, false, false);
+
+        assertEquals(1, registry.get("cache.gets").tags("cache", "availability", "result", "hit").functionCounter().count());
+        assertEquals(1, registry.get("cache.gets").tags("cache", "availability", "result", "miss").functionCounter().count());
+    }
+
+    @Test
+    void shouldRecomputeOnlyHoursTouchedByBooking() {
+        SearchResponse evening = search(FIXED_TIME);
+        SearchResponse morning = search(FIXED_TIME.withHour(9));
+
+        service.createReservation(new ReservationRequest(List.of("T10"), FIXED_TIME.minusMinutes(30), 6, "Test", 90));
+
+        assertNotSame(evening, search(FIXED_TIME));
+        assertSame(morning, search(FIXED_TIME.withHour(9)));
+    }
+
+    @Test
+    void shouldKeepOtherHoursCachedWhenLearnedRatesChange() {
+        RecommendationService learning = new RecommendationService(mock(MealSuggestionService.class),
+                new VenueRegistry(new VenueCatalog(new DefaultResourceLoader(), new ObjectMapper(), "classpath:venues/")),
+                RecommendationMetrics.disabled(), 0, false, 42, 92, 150, Duration.ZERO, 0.8);
+        AvailabilityCache learningCache = new AvailabilityCache(learning, 100, Duration.ofMinutes(1));
+        SearchResponse morning = learningCache.recommend(VenueCatalog.DEFAULT_VENUE, FIXED_TIME.withHour(9), 4, null,
+                false, false, false, false);
+
+        learning.createReservation(new ReservationRequest(List.of("T1"), FIXED_TIME, 2, "Test", 120));
+
+        assertSame(morning, learningCache.recommend(VenueCatalog.DEFAULT_VENUE, FIXED_TIME.withHour(9), 4, null,
+                false, false, false, false));
+    }
+
+    @Test
+    void shouldRecomputeAfterLayoutChange() {
+        SearchResponse before = search(FIXED_TIME);
+        TableInfo table = service.currentTables().getFirst();
+
+        service.updateLayout(List.of(new TableLayoutUpdate(table.id(), table.x() + 10, table.y())));
+
+        assertNotSame(before, search(FIXED_TIME));
+    }
+
+    @Test
+    void shouldAnswerDegradedSearchFromFullEntryOrWithoutMergeAndMeal() {
+        SearchResponse full = search(FIXED_TIME);
+        assertSame(full, cache.recommend(VenueCatalog.DEFAULT_VENUE, FIXED_TIME, 4, null, false, false, false, false, true));
+
+        SearchResponse degraded = cache.recommend(VenueCatalog.DEFAULT_VENUE, FIXED_TIME, 11, Zone.INDOOR,
+                false, false, false, false, true);
+        assertNull(degraded.mealSuggestion());
+        assertTrue(degraded.tables().stream().noneMatch(TableRecommendation::merged));
+        assertNotNull(cache.recommend(VenueCatalog.DEFAULT_VENUE, FIXED_TIME, 11, Zone.INDOOR,
+                false, false, false, false).mealSuggestion());
+    }
+
+    private SearchResponse search(LocalDateTime dateTime) {
+        return cache.recommend(VenueCatalog.DEFAULT_VENUE, dateTime, 4, null, false, false, false, false);
+    }
+}
@@ -0,0 +1,200 @@
+package com.example.restaurant;
+
+import com.example.restaurant.model.MealSuggestion;
+import com.example.restaurant.model.ReservationRequest;
+import com.example.restaurant.model.SearchRequest;
+import com.example.restaurant.model.TableInfo;
+import com.example.restaurant.model.TableLayoutUpdate;
+import com.example.restaurant.service.AvailabilityCache;
+import com.example.restaurant.service.AvailabilityFeed;
+import com.example.restaurant.service.MealSuggestionService;
+import com.example.restaurant.service.RecommendationMetrics;
+import com.example.restaurant.service.RecommendationService;
+import com.example.restaurant.service.VenueCatalog;
+import com.example.restaurant.service.VenueRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AvailabilityFeedTest {
+
+    private static final LocalDateTime FIXED_TIME = LocalDateTime.of(2026, 3, 10, 19, 0);
+    private static final SearchRequest QUERY = new SearchRequest(FIXED_TIME, 2, null, false, false, false, false);
+
+    private final RecommendationService service;
+    private final AvailabilityFeed feed;
+
+    AvailabilityFeedTest() {
+        MealSuggestionService mealSuggestionService = mock(MealSuggestionService.class);
+        when(mealSuggestionService.suggestMeal())
+                .thenReturn(new MealSuggestion("Test Meal", "Test", "", "", true));
+        this.service = new RecommendationService(mealSuggestionService,
+                new VenueRegistry(new VenueCatalog(new DefaultResourceLoader(), new ObjectMapper(), "classpath:venues/")),
+                RecommendationMetrics.disabled(), 0, false, 150);
+        this.feed = new AvailabilityFeed(service, new AvailabilityCache(service, 100, Duration.ofMinutes(1)),
+                new ObjectMapper().findAndRegisterModules(), Duration.ofMinutes(1), 100);
+        feed.start();
+    }
+
+    @AfterEach
+    void stopFeed() {
+        feed.stop();
+    }
+
+    @Test
+    void shouldPushOnlyDeltasToEverySubscriberOfAQuery() throws InterruptedException {
+        RecordingEmitter first = subscribe(QUERY);
+        RecordingEmitter second = subscribe(QUERY);
+        assertTrue(first.next().startsWith("event:" + AvailabilityFeed.SNAPSHOT));
+        assertTrue(second.next().startsWith("event:" + AvailabilityFeed.SNAPSHOT));
+        long recomputations = feed.stats().recomputations();
+
+        TableInfo booked = service.currentTables().getFirst();
+        service.createReservation(new ReservationRequest(List.of(booked.id()), FIXED_TIME.minusMinutes(30), 2, "Test", 90));
+
+        for (RecordingEmitter emitter : List.of(first, second)) {
+            String event = emitter.next();
+            assertTrue(event.startsWith("event:" + AvailabilityFeed.OCCUPANCY_CHANGED), event);
+            assertTrue(event.contains("\"occupied\":[\"" + booked.id() + "\"]"), event);
+        }
+        assertEquals(recomputations + 1, feed.stats().recomputations());
+        assertEquals(1, feed.stats().queries());
+        assertEquals(2, feed.stats().subscribers());
+    }
+
+    @Test
+    void shouldPushMovedTablesAndSkipUnaffectedQueries() throws InterruptedException {
+        RecordingEmitter evening = subscribe(QUERY);
+        RecordingEmitter morning = subscribe(new SearchRequest(FIXED_TIME.withHour(9), 2, null, false, false, false, false));
+        evening.next();
+        morning.next();
+
+        service.createReservation(new ReservationRequest(List.of("T10"), FIXED_TIME, 6, "Test", 60));
+        TableInfo moved = service.currentTables().get(1);
+        service.updateLayout(List.of(new TableLayoutUpdate(moved.id(), moved.x() + 5, moved.y() + 7)));
+
+        String morningEvent = morning.next();
+        assertTrue(morningEvent.startsWith("event:" + AvailabilityFeed.TABLES_MOVED), morningEvent);
+        assertTrue(morningEvent.contains("\"x\":" + (moved.x() + 5)), morningEvent);
+        Set<String> eveningEvents = Set.of(evening.next(), evening.next()).stream()
+                .map(event -> event.substring(0, event.indexOf('\n')))
+                .collect(Collectors.toSet());
+        assertTrue(eveningEvents.contains("event:" + AvailabilityFeed.OCCUPANCY_CHANGED), eveningEvents.toString());
+        assertTrue(eveningEvents.contains("event:" + AvailabilityFeed.TABLES_MOVED), eveningEvents.toString());
+        assertNull(morning.poll(200));
+    }
+
+    @Test
+    void shouldForgetQueryWhenLastSubscriberLeaves() throws InterruptedException {
+        RecordingEmitter emitter = subscribe(QUERY);
+        emitter.next();
+
+        emitter.disconnect();
+        service.createReservation(new ReservationRequest(List.of("T10"), FIXED_TIME, 6, "Test", 60));
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (feed.stats().subscribers() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, feed.stats().subscribers());
+        assertEquals(0, feed.stats().queries());
+    }
+
+    @Test
+    void shouldKeepServingOthersWhileOneClientStallsAndDropItOnceItLags() throws InterruptedException {
+        AvailabilityFeed smallQueues = new AvailabilityFeed(service,
+                new AvailabilityCache(service, 100, Duration.ofMinutes(1)),
+                new ObjectMapper().findAndRegisterModules(), Duration.ofMinutes(1), 100, 2);
+        smallQueues.start();
+        CountDownLatch unblock = new CountDownLatch(1);
+        SseEmitter stalled = new SseEmitter() {
+            @Override
+            public void send(Set<DataWithMediaType> items) {
+                try {
+                    unblock.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        try {
+            smallQueues.subscribe(VenueCatalog.DEFAULT_VENUE, QUERY, stalled);
+            RecordingEmitter healthy = new RecordingEmitter();
+            smallQueues.subscribe(VenueCatalog.DEFAULT_VENUE, QUERY, healthy);
+            assertTrue(healthy.next().startsWith("event:" + AvailabilityFeed.SNAPSHOT));
+
+            for (TableInfo table : service.currentTables().subList(0, 4)) {
+                service.createReservation(new ReservationRequest(List.of(table.id()), FIXED_TIME, 2, "Test", 90));
+                String event = healthy.next();
+                while (!event.contains("\"occupied\":[\"" + table.id() + "\"]")) {
+                    event = healthy.next();
+                }
+            }
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (smallQueues.stats().subscribers() > 1 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(1, smallQueues.stats().subscribers());
+        } finally {
+            unblock.countDown();
+            smallQueues.stop();
+        }
+    }
+
+    private RecordingEmitter subscribe(SearchRequest request) {
+        RecordingEmitter emitter = new RecordingEmitter();
+        feed.subscribe(VenueCatalog.DEFAULT_VENUE, request, emitter);
+        return emitter;
+    }
+
+    /**
+     * Captures the raw SSE text of every event instead of writing it to a response.
+     */
+    private static final class RecordingEmitter extends SseEmitter {
+
+        private final BlockingQueue<String> events = new LinkedBlockingQueue<>();
+        private volatile boolean disconnected;
+
+        @Override
+        public synchronized void send(Set<DataWithMediaType> items) throws java.io.IOException {
+            if (disconnected) {
+                throw new java.io.IOException("disconnected");
+            }
+            events.add(items.stream().map(item -> item.getData().toString()).collect(Collectors.joining()));
+        }
+
+        String next() throws InterruptedException {
+            String event = poll(5_000);
+            assertNotNull(event, "no event within 5s");
+            return event;
+        }
+
+        String poll(long millis) throws InterruptedException {
+            return events.poll(millis, TimeUnit.MILLISECONDS);
+        }
+
+        void disconnect() {
+            disconnected = true;
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.restaurant;
+
+import com.sun.net.httpserver.HttpServer;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Load test for {@code /api/availability} with and without virtual-thread request execution.
+ * TheMealDB is replaced by a local stub that injects upstream latency. For every concurrency level
+ * the harness keeps that many clients busy and reports how many requests completed within the client
+ * timeout, plus throughput and p99 latency.
+ *
+ * <p>Run with {@code ./mvnw -Pload-test verify [-Dload.args="<upstreamLatencyMs> <secondsPerLevel>"]}.
+ */
+public final class AvailabilityLoadHarness {
+
+    private static final int[] CONCURRENCY_LEVELS = {50, 200, 1000, 2000};
+    private static final Duration CLIENT_TIMEOUT = Duration.ofSeconds(5);
+
+    private AvailabilityLoadHarness() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        long upstreamLatencyMillis = args.length > 0 ? Long.parseLong(args[0]) : 1500;
+        int secondsPerLevel = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        HttpServer stub = startStub(upstreamLatencyMillis);
+        try {
+            System.out.printf("%-16s %8s %10s %10s %10s %10s%n", "mode", "clients", "completed", "failed", "req/s", "p99 ms");
+            for (boolean virtualThreads : new boolean[]{false, true}) {
+                runMode(stub, virtualThreads, secondsPerLevel);
+            }
+        } finally {
+            stub.stop(0);
+        }
+    }
+
+    private static void runMode(HttpServer stub, boolean virtualThreads, int secondsPerLevel) throws Exception {
+        ConfigurableApplicationContext context = SpringApplication.run(RestaurantReservationApplication.class,
+                "--server.port=0",
+                "--spring.threads.virtual.enabled=" + virtualThreads,
+                "--server.tomcat.threads.max=50",
+                "--restaurant.meal.url=http://localhost:" + stub.getAddress().getPort() + "/random.php",
+                "--restaurant.meal.refresh-interval=1s",
+                // Every simulated client shares one address; measure the server, not the per-client limit.
+                "--restaurant.admission.rate=0",
+                "--logging.level.root=WARN");
+        try {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            HttpClient client = HttpClient.newBuilder()
+                    .executor(Executors.newVirtualThreadPerTaskExecutor())
+                    .build();
+            for (int clients : CONCURRENCY_LEVELS) {
+                report(virtualThreads ? "virtual" : "platform", clients,
+                        runLevel(client, port, clients, Duration.ofSeconds(secondsPerLevel)));
+            }
+        } finally {
+            context.close();
+        }
+    }
+
+    private static Result runLevel(HttpClient client, int port, int clients, Duration duration) throws InterruptedException {
+        LongAdder completed = new LongAdder();
+        LongAdder failed = new LongAdder();
+        long[] latencies = new long[1 << 20];
+        AtomicLong recorded = new AtomicLong();
+        long deadline = System.nanoTime() + duration.toNanos();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < clients; i++) {
+                executor.submit(() -> {
+                    while (System.nanoTime() < deadline) {
+                        long started = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = client.send(availabilityRequest(port),
+                                    HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() == 200) {
+                                completed.increment();
+                                long slot = recorded.getAndIncrement();
+                                if (slot < latencies.length) {
+                                    latencies[(int) slot] = System.nanoTime() - started;
+                                }
+                            } else {
+                                failed.increment();
+                            }
+                        } catch (Exception ex) {
+                            failed.increment();
+                        }
+                    }
+                });
+            }
+        }
+
+        int samples = (int) Math.min(recorded.get(), latencies.length);
+        long[] sorted = Arrays.copyOf(latencies, samples);
+        Arrays.sort(sorted);
+        long p99 = samples == 0 ? 0 : sorted[Math.min(samples - 1, (int) (samples * 0.99))];
+        return new Result(completed.sum(), failed.sum(), completed.sum() / (double) duration.toSeconds(),
+                Duration.ofNanos(p99).toMillis());
+    }
+
+    private static HttpRequest availabilityRequest(int port) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        LocalDateTime dateTime = LocalDateTime.of(2026, 3, 13, 12, 0)
+                .plusDays(random.nextInt(30))
+                .plusMinutes(random.nextInt(10 * 60));
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/availability?dateTime="
+                        + dateTime + "&partySize=" + (2 + random.nextInt(10))))
+                .timeout(CLIENT_TIMEOUT)
+                .build();
+    }
+
+    private static HttpServer startStub(long latencyMillis) throws Exception {
+        HttpServer stub = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        stub.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        stub.createContext("/random.php", exchange -> {
+            try {
+                Thread.sleep(latencyMillis);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = "{\"meals\":[{\"strMeal\":\"Stub Meal\",\"strCategory\":\"Stub\"}]}"
+                    .getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        stub.start();
+        return stub;
+    }
+
+    private static void report(String mode, int clients, Result result) {
+        System.out.printf("%-16s %8d %10d %10d %10.0f %10d%n",
+                mode, clients, result.completed(), result.failed(), result.throughput(), result.p99Millis());
+    }
+
+    private record Result(long completed, long failed, double throughput, long p99Millis) {
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.restaurant;
+
+import com.example.restaurant.model.BatchAssignment;
+import com.example.restaurant.model.BatchAssignmentRequest;
+import com.example.restaurant.model.BatchPartyAssignment;
+import com.example.restaurant.model.BatchPartyRequest;
+import com.example.restaurant.model.ReservationRequest;
+import com.example.restaurant.model.TableInfo;
+import com.example.restaurant.service.BatchAssignmentService;
+import com.example.restaurant.service.MealSuggestionService;
+import com.example.restaurant.service.RecommendationMetrics;
+import com.example.restaurant.service.RecommendationService;
+import com.example.restaurant.service.VenueCatalog;
+import com.example.restaurant.service.VenueRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+class BatchAssignmentServiceTest {
+
+    private static final LocalDateTime FRIDAY_EVENING = LocalDateTime.of(2026, 3, 13, 17, 0);
+
+    private final RecommendationService service;
+    private final BatchAssignmentService batch;
+
+    BatchAssignmentServiceTest() {
+        VenueRegistry registry = new VenueRegistry(
+                new VenueCatalog(new DefaultResourceLoader(), new ObjectMapper(), "classpath:venues/"));
+        this.service = new RecommendationService(mock(MealSuggestionService.class), registry,
+                RecommendationMetrics.disabled(), 0, false, 150);
+        this.batch = new BatchAssignmentService(registry, 0, 150, Duration.ofMillis(300), Duration.ofSeconds(10));
+    }
+
+    @Test
+    void shouldSeatPartiesWithinTheirWindowsWithoutDoubleBooking() {
+        SplittableRandom random = new SplittableRandom(3);
+        List<BatchPartyRequest> parties = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            LocalDateTime earliest = FRIDAY_EVENING.plusMinutes(15L * random.nextInt(16));
+            parties.add(new BatchPartyRequest("P" + i, 1 + random.nextInt(9), earliest,
+                    earliest.plusMinutes(15L * random.nextInt(5)), 90 + 15 * random.nextInt(5), null));
+        }
+
+        BatchAssignment plan = batch.assign(VenueCatalog.DEFAULT_VENUE, new BatchAssignmentRequest(parties, null));
+
+        Map<String, BatchPartyRequest> byReference = parties.stream()
+                .collect(Collectors.toMap(BatchPartyRequest::reference, Function.identity()));
+        Map<String, Integer> seats = service.currentTables().stream()
+                .collect(Collectors.toMap(TableInfo::id, TableInfo::seats));
+        assertEquals(parties.size(), plan.assignments().size() + plan.unassigned().size());
+        assertFalse(plan.assignments().isEmpty());
+        int covers = 0;
+        int waste = 0;
+        for (BatchPartyAssignment assignment : plan.assignments()) {
+            BatchPartyRequest request = byReference.get(assignment.reference());
+            assertFalse(assignment.start().isBefore(request.earliest()), assignment.reference());
+            assertFalse(assignment.start().isAfter(request.latest()), assignment.reference());
+            assertEquals((long) request.durationMinutes(), Duration.between(assignment.start(), assignment.end()).toMinutes());
+            assertEquals(assignment.seats(), assignment.tableIds().stream().mapToInt(seats::get).sum());
+            assertTrue(assignment.seats() >= assignment.partySize());
+            covers += assignment.partySize();
+            waste += assignment.seats() - assignment.partySize();
+            for (BatchPartyAssignment other : plan.assignments()) {
+                boolean overlaps = other != assignment && other.start().isBefore(assignment.end())
+                        && assignment.start().isBefore(other.end());
+                assertFalse(overlaps && other.tableIds().stream().anyMatch(assignment.tableIds()::contains),
+                        assignment.reference() + " and " + other.reference());
+            }
+        }
+        assertEquals(covers, plan.seatedCovers());
+        assertEquals(waste, plan.wastedSeats());
+    }
+
+    @Test
+    void shouldPlanAroundExistingBookings() {
+        service.createReservation(new ReservationRequest(List.of("T10"), FRIDAY_EVENING, 10, "Booked", 300));
+
+        BatchAssignment plan = batch.assign(VenueCatalog.DEFAULT_VENUE, new BatchAssignmentRequest(List.of(
+                new BatchPartyRequest("big", 10, FRIDAY_EVENING.plusHours(1), FRIDAY_EVENING.plusHours(2), 120, null)),
+                null));
+
+        assertEquals(1, plan.assignments().size());
+        assertFalse(plan.assignments().get(0).tableIds().contains("T10"));
+    }
+
+    @Test
+    void shouldPreferExactFitsOverWastedSeats() {
+        BatchAssignment plan = batch.assign(VenueCatalog.DEFAULT_VENUE, new BatchAssignmentRequest(List.of(
+                new BatchPartyRequest("eight", 8, FRIDAY_EVENING, FRIDAY_EVENING, 120, null),
+                new BatchPartyRequest("ten", 10, FRIDAY_EVENING, FRIDAY_EVENING, 120, null)),
+                null));
+
+        assertEquals(18, plan.seatedCovers());
+        assertEquals(0, plan.wastedSeats());
+    }
+
+    @Test
+    void shouldRejectEmptyBatch() {
+        ResponseStatusException error = assertThrows(ResponseStatusException.class,
+                () -> batch.assign(VenueCatalog.DEFAULT_VENUE, new BatchAssignmentRequest(List.of(), null)));
+        assertEquals(HttpStatus.BAD_REQUEST, error.getStatusCode());
+    }
+}
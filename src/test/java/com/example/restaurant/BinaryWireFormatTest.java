@@ -0,0 +1,94 @@
+package com.example.restaurant;
+
+import com.example.restaurant.model.MealSuggestion;
+import com.example.restaurant.model.SearchResponse;
+import com.example.restaurant.model.TableInfo;
+import com.example.restaurant.model.TableLayoutUpdate;
+import com.example.restaurant.model.Zone;
+import com.example.restaurant.service.BinaryWireFormat;
+import com.example.restaurant.service.LayoutImportService;
+import com.example.restaurant.service.MealSuggestionService;
+import com.example.restaurant.service.RecommendationMetrics;
+import com.example.restaurant.service.RecommendationService;
+import com.example.restaurant.service.VenueCatalog;
+import com.example.restaurant.service.VenueRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BinaryWireFormatTest {
+
+    private static final LocalDateTime FIXED_TIME = LocalDateTime.of(2026, 3, 10, 19, 0);
+    private static final String VENUE = VenueCatalog.DEFAULT_VENUE;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final RecommendationService service;
+    private final BinaryWireFormat format;
+
+    BinaryWireFormatTest() {
+        MealSuggestionService mealSuggestionService = mock(MealSuggestionService.class);
+        when(mealSuggestionService.suggestMeal())
+                .thenReturn(new MealSuggestion("Test Meal", "Test", null, "", true));
+        VenueRegistry venues = new VenueRegistry(
+                new VenueCatalog(new DefaultResourceLoader(), objectMapper, "classpath:venues/"));
+        this.service = new RecommendationService(mealSuggestionService, venues, RecommendationMetrics.disabled(),
+                0, true, 150);
+        this.format = new BinaryWireFormat(venues);
+    }
+
+    @Test
+    void shouldRoundTripLayoutInLessThanHalfTheJsonSize() throws Exception {
+        service.updateLayout(VENUE, List.of(new TableLayoutUpdate("T3", -40, 75)));
+
+        byte[] binary = format.layout(VENUE);
+
+        assertEquals(service.currentTables(VENUE), BinaryWireFormat.readLayout(binary));
+        assertEquals(service.layoutVersion(VENUE), BinaryWireFormat.layoutVersion(binary));
+        // header, then per table: id length, id, seats, x, y and one feature byte
+        int idBytes = service.currentTables(VENUE).stream()
+                .mapToInt(table -> table.id().getBytes(StandardCharsets.UTF_8).length).sum();
+        assertEquals(Integer.BYTES + Long.BYTES + Integer.BYTES
+                + service.currentTables(VENUE).size() * (4 * Integer.BYTES + 1) + idBytes, binary.length);
+        assertThrows(IllegalArgumentException.class,
+                () -> BinaryWireFormat.readLayout(Arrays.copyOf(binary, binary.length + 1)));
+        byte[] json = objectMapper.writeValueAsBytes(service.currentTables(VENUE));
+        assertTrue(binary.length * 2 < json.length, binary.length + " vs " + json.length);
+    }
+
+    @Test
+    void shouldRoundTripAvailabilityAgainstTheLayoutOfItsVersion() throws Exception {
+        SearchResponse single = service.recommend(VENUE, FIXED_TIME, 4, Zone.TERRACE, false, true, false, false);
+        SearchResponse merged = service.recommend(VENUE, FIXED_TIME, 13, null, true, false, false, false);
+        List<TableInfo> layout = BinaryWireFormat.readLayout(format.layout(VENUE));
+
+        assertEquals(single, BinaryWireFormat.readAvailability(format.availability(VENUE, single), layout));
+        byte[] binary = format.availability(VENUE, merged);
+        assertEquals(merged, BinaryWireFormat.readAvailability(binary, layout));
+        assertTrue(merged.tables().stream().anyMatch(row -> row.merged()));
+        assertTrue(binary.length * 2 < objectMapper.writeValueAsBytes(merged).length);
+    }
+
+    @Test
+    void shouldAskToRetryWhenTheLayoutLostATableOfTheAnswer() {
+        SearchResponse response = service.recommend(VENUE, FIXED_TIME, 2, null, false, false, false, false);
+        new LayoutImportService(service, objectMapper, 100, 60).importCsv(VENUE, new ByteArrayInputStream(
+                "id,seats,zone,x,y\nA1,2,INDOOR,0,0\n".getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(HttpStatus.CONFLICT, assertThrows(ResponseStatusException.class,
+                () -> format.availability(VENUE, response)).getStatusCode());
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.restaurant;
+
+import com.example.restaurant.model.LayoutImportResult;
+import com.example.restaurant.model.MealSuggestion;
+import com.example.restaurant.model.ReservationRequest;
+import com.example.restaurant.model.TableInfo;
+import com.example.restaurant.model.TableLayoutUpdate;
+import com.example.restaurant.model.TableRecommendation;
+import com.example.restaurant.model.Zone;
+import com.example.restaurant.service.LayoutImportService;
+import com.example.restaurant.service.MealSuggestionService;
+import com.example.restaurant.service.RecommendationMetrics;
+import com.example.restaurant.service.RecommendationService;
+import com.example.restaurant.service.VenueCatalog;
+import com.example.restaurant.service.VenueRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class LayoutImportServiceTest {
+
+    private static final LocalDateTime FIXED_TIME = LocalDateTime.of(2026, 3, 10, 19, 0);
+    private static final String VENUE = VenueCatalog.DEFAULT_VENUE;
+
+    private final RecommendationService service;
+    private final LayoutImportService importer;
+
+    LayoutImportServiceTest() {
+        MealSuggestionService mealSuggestionService = mock(MealSuggestionService.class);
+        when(mealSuggestionService.suggestMeal())
+                .thenReturn(new MealSuggestion("Test Meal", "Test", "", "", true));
+        ObjectMapper objectMapper = new ObjectMapper();
+        this.service = new RecommendationService(mealSuggestionService,
+                new VenueRegistry(new VenueCatalog(new DefaultResourceLoader(), objectMapper, "classpath:venues/")),
+                RecommendationMetrics.disabled(), 0, false, 150);
+        this.importer = new LayoutImportService(service, objectMapper, 10_000, 60);
+    }
+
+    @Test
+    void shouldImportTenThousandTablesFromJsonAsOneLayout() {
+        int before = service.currentTables(VENUE).size();
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < 10_000; i++) {
+            json.append(i == 0 ? "" : ",")
+                    .append("{\"id\":\"T").append(i + 1).append("\",\"seats\":").append(2 + i % 4 * 2)
+                    .append(",\"zone\":\"").append(Zone.values()[i % 3]).append("\",\"x\":").append(i % 100 * 150)
+                    .append(",\"y\":").append(i / 100 * 150).append(",\"window\":").append(i % 7 == 0).append('}');
+        }
+        LayoutImportResult result = importer.importJson(VENUE, body(json.append(']').toString()));
+
+        assertEquals(10_000, result.tables());
+        assertEquals(10_000 - before, result.added());
+        assertEquals(0, result.removed());
+        assertEquals(before, result.changed());
+        assertEquals(result.layoutVersion(), service.layoutVersion(VENUE));
+        assertEquals(10_000, service.currentTables(VENUE).size());
+        assertEquals(List.of("T5051", "T5052"),
+                service.tablesNear(VENUE, 7560, 7530, 120).stream().map(TableInfo::id).toList());
+        assertEquals("T10000", service.nearestFreeTable(VENUE, 15_000, 15_000, FIXED_TIME, 8).id());
+    }
+
+    @Test
+    void shouldImportCsvWithColumnsInAnyOrder() {
+        LayoutImportResult result = importer.importCsv(VENUE, body("""
+                zone,id,x,y,seats,window
+                INDOOR,A1,0,0,2,true
+                terrace,A2,100,0,4,0
+
+                PRIVATE_ROOM,A3,0,100,10,
+                """));
+
+        assertEquals(3, result.tables());
+        assertEquals(List.of(
+                new TableInfo("A1", 2, Zone.INDOOR, 0, 0, false, true, false, false),
+                new TableInfo("A2", 4, Zone.TERRACE, 100, 0, false, false, false, false),
+                new TableInfo("A3", 10, Zone.PRIVATE_ROOM, 0, 100, false, false, false, false)
+        ), service.currentTables(VENUE));
+        TableRecommendation recommended = service.recommend(VENUE, FIXED_TIME, 15, null, false, false, false, false)
+                .tables().stream().filter(TableRecommendation::recommended).findFirst().orElseThrow();
+        assertEquals(3, recommended.mergedTableIds().size());
+    }
+
+    @Test
+    void shouldRejectInvalidLayoutAndKeepTheCurrentOne() {
+        List<TableInfo> current = service.currentTables(VENUE);
+        long version = service.layoutVersion(VENUE);
+
+        ResponseStatusException collision = assertThrows(ResponseStatusException.class, () -> importer.importCsv(VENUE,
+                body("id,seats,zone,x,y\nA1,2,INDOOR,0,0\nA2,2,INDOOR,500,0\nA3,2,INDOOR,530,40\n")));
+        assertEquals(HttpStatus.BAD_REQUEST, collision.getStatusCode());
+        assertTrue(collision.getReason().contains("A2 ja A3"), collision.getReason());
+        assertEquals(HttpStatus.BAD_REQUEST, assertThrows(ResponseStatusException.class, () -> importer.importJson(VENUE,
+                body("[{\"id\":\"A1\",\"seats\":2,\"zone\":\"INDOOR\",\"x\":0,\"y\":0},"
+                        + "{\"id\":\"A1\",\"seats\":4,\"zone\":\"INDOOR\",\"x\":500,\"y\":0}]"))).getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, assertThrows(ResponseStatusException.class,
+                () -> importer.importCsv(VENUE, body("id,seats,zone,x,y\nA1,0,CELLAR,0,0\n"))).getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, assertThrows(ResponseStatusException.class,
+                () -> service.updateLayout(VENUE, List.of(new TableLayoutUpdate("missing", 10, 10)))).getStatusCode());
+
+        assertEquals(current, service.currentTables(VENUE));
+        assertEquals(version, service.layoutVersion(VENUE));
+    }
+
+    @Test
+    void shouldRefuseToRemoveTableWithBookings() {
+        service.createReservation(VENUE, new ReservationRequest(List.of("T1"), FIXED_TIME, 2, "Test", 90));
+
+        ResponseStatusException conflict = assertThrows(ResponseStatusException.class,
+                () -> importer.importCsv(VENUE, body("id,seats,zone,x,y\nT2,4,INDOOR,0,0\n")));
+
+        assertEquals(HttpStatus.CONFLICT, conflict.getStatusCode());
+        assertTrue(conflict.getReason().contains("T1"), conflict.getReason());
+        assertTrue(service.currentTables(VENUE).size() > 1);
+    }
+
+    private static InputStream body(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.restaurant;
+
+import com.example.restaurant.model.MealSuggestion;
+import com.example.restaurant.service.MealSuggestionService;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.RestClient;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MealSuggestionServiceTest {
+
+    private HttpServer stub;
+    private MealSuggestionService service;
+
+    @AfterEach
+    void tearDown() {
+        if (service != null) {
+            service.stop();
+        }
+        if (stub != null) {
+            stub.stop(0);
+        }
+    }
+
+    @Test
+    void shouldServeMealsFromPrefetchedPool() throws Exception {
+        AtomicInteger served = new AtomicInteger();
+        startStub(200, 0, () -> "{\"meals\":[{\"strMeal\":\"Stub Meal " + served.incrementAndGet() + "\","
+                + "\"strCategory\":\"Stub\",\"strMealThumb\":\"\",\"strSource\":\"\"}]}");
+        service = newService(3);
+        service.start();
+
+        awaitCondition(() -> service.stats().pooled() == 3);
+        MealSuggestion meal = service.suggestMeal();
+
+        assertFalse(meal.fallback());
+        assertTrue(meal.name().startsWith("Stub Meal"));
+        assertEquals(1, service.stats().hits());
+        assertEquals(0, service.stats().misses());
+    }
+
+    @Test
+    void shouldPublishPoolStatsAsMeters() throws Exception {
+        startStub(200, 0, () -> "{\"meals\":[{\"strMeal\":\"Stub Meal\"}]}");
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        service = new MealSuggestionService(registry, RestClient.builder(),
+                "http://localhost:" + stub.getAddress().getPort() + "/random.php", 2,
+                Duration.ofMinutes(1), Duration.ofSeconds(30));
+        assertTrue(service.suggestMeal().fallback());
+        service.start();
+
+        awaitCondition(() -> service.stats().pooled() == 2);
+        service.suggestMeal();
+
+        assertEquals(2, registry.get("restaurant.meal.pool.size").gauge().value());
+        assertEquals(1, registry.get("restaurant.meal.suggestions").tag("source", "pool").functionCounter().count());
+        assertEquals(1, registry.get("restaurant.meal.suggestions").tag("source", "fallback").functionCounter().count());
+        assertTrue(registry.get("restaurant.meal.pool.refresh").timer().count() >= 2);
+    }
+
+    @Test
+    void shouldFallBackWithoutWaitingWhileUpstreamIsSlow() throws Exception {
+        startStub(200, 3000, () -> "{\"meals\":[{\"strMeal\":\"Too Late\"}]}");
+        service = newService(3);
+        service.start();
+
+        long started = System.nanoTime();
+        MealSuggestion meal = service.suggestMeal();
+        long elapsedMillis = Duration.ofNanos(System.nanoTime() - started).toMillis();
+
+        assertTrue(meal.fallback());
+        assertTrue(elapsedMillis < 100, "suggestMeal must not wait on the network, took " + elapsedMillis + " ms");
+        assertEquals(1, service.stats().misses());
+    }
+
+    @Test
+    void shouldBackOffWhenUpstreamFails() throws Exception {
+        startStub(500, 0, () -> "{}");
+        service = newService(3);
+        service.start();
+
+        awaitCondition(() -> service.stats().refreshFailures() >= 1);
+
+        assertTrue(service.stats().currentBackoffMillis() > 0);
+        assertTrue(service.suggestMeal().fallback());
+    }
+
+    private MealSuggestionService newService(int poolSize) {
+        String url = "http://localhost:" + stub.getAddress().getPort() + "/random.php";
+        return new MealSuggestionService(RestClient.builder(), url, poolSize,
+                Duration.ofMinutes(1), Duration.ofSeconds(30));
+    }
+
+    private void startStub(int status, long delayMillis, StubBody body) throws IOException {
+        stub = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        stub.createContext("/random.php", exchange -> {
+            try {
+                Thread.sleep(delayMillis);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] bytes = body.get().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        stub.start();
+    }
+
+    private void awaitCondition(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("Condition not reached within 5 seconds");
+            }
+            Thread.sleep(20);
+        }
+    }
+
+    @FunctionalInterface
+    private interface StubBody {
+        String get();
+    }
+}
@@ -1,20 +1,46 @@
 package com.example.restaurant;
 
+import com.example.restaurant.model.AvailabilityGrid;
+import com.example.restaurant.model.AvailabilitySlot;
 import com.example.restaurant.model.MealSuggestion;
+import com.example.restaurant.model.NextAvailability;
+import com.example.restaurant.model.OccupancyForecast;
+import com.example.restaurant.model.Reservation;
+import com.example.restaurant.model.ReservationRequest;
 import com.example.restaurant.model.SearchResponse;
+import com.example.restaurant.model.TableForecast;
+import com.example.restaurant.model.TableInfo;
+import com.example.restaurant.model.TableLayoutUpdate;
 import com.example.restaurant.model.TableRecommendation;
 import com.example.restaurant.model.Zone;
 import com.example.restaurant.service.MealSuggestionService;
+import com.example.restaurant.service.RecommendationMetrics;
 import com.example.restaurant.service.RecommendationService;
+import com.example.restaurant.service.VenueCatalog;
+import com.example.restaurant.service.VenueRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -56,9 +82,9 @@ class RecommendationServiceTest {
 
     @Test
     void shouldNotProvideMergedRecommendationWhenExactCapacityTableExists() {
-        LocalDateTime dateTime = findDateTimeWhenTableIsOccupied("T5", 5, Zone.INDOOR);
+        LocalDateTime dateTime = findDateTimeWhenTableIsOccupied("T5", 6, Zone.INDOOR);
 
-        SearchResponse response = service.recommend(dateTime, 5, Zone.INDOOR, false, false, false, false);
+        SearchResponse response = service.recommend(dateTime, 6, Zone.INDOOR, false, false, false, false);
 
         assertTrue(response.tables().stream()
                 .noneMatch(table -> table.recommended() && table.merged()));
@@ -92,6 +118,34 @@ class RecommendationServiceTest {
                 .anyMatch(t -> t.recommended() && t.merged() && t.mergedTableIds().size() >= 3));
     }
 
+    @Test
+    void shouldMergeMoreThanFourTablesWhenNoGroupSizeLimitIsSet() {
+        SearchResponse unlimited = withoutSimulatedOccupancy(0)
+                .recommend(FIXED_TIME, 17, Zone.INDOOR, false, false, false, false);
+        SearchResponse capped = withoutSimulatedOccupancy(4)
+                .recommend(FIXED_TIME, 17, Zone.INDOOR, false, false, false, false);
+
+        assertTrue(unlimited.tables().stream()
+                .anyMatch(t -> t.recommended() && t.merged() && t.mergedTableIds().size() == 5));
+        assertTrue(capped.tables().stream().noneMatch(TableRecommendation::merged));
+    }
+
+    @Test
+    void shouldRankMergedAlternativesBestFirst() {
+        RecommendationService unsimulated = withoutSimulatedOccupancy(0);
+        List<TableRecommendation> alternatives = unsimulated.mergedAlternatives(VenueCatalog.DEFAULT_VENUE,
+                FIXED_TIME, 11, Zone.INDOOR, false, true, false, false, 3);
+        TableRecommendation recommended = unsimulated.recommend(FIXED_TIME, 11, Zone.INDOOR, false, true, false, false)
+                .tables().stream().filter(TableRecommendation::merged).findFirst().orElseThrow();
+
+        assertEquals(3, alternatives.size());
+        assertEquals(recommended.mergedTableIds(), alternatives.get(0).mergedTableIds());
+        for (int i = 1; i < alternatives.size(); i++) {
+            assertTrue(alternatives.get(i - 1).score() >= alternatives.get(i).score());
+            assertFalse(alternatives.get(i - 1).mergedTableIds().equals(alternatives.get(i).mergedTableIds()));
+        }
+    }
+
     @Test
     void shouldApplyWindowPreferenceToTableScores() {
         assertPreferenceScoring(
@@ -130,6 +184,290 @@ class RecommendationServiceTest {
         assertEquals("Test Meal", response.mealSuggestion().name());
     }
 
+    @Test
+    void shouldMarkBookedTableAsOccupiedForWholeVisit() {
+        LocalDateTime dateTime = findDateTimeWhenTableIsFree("T3");
+        Reservation reservation = service.createReservation(
+                new ReservationRequest(List.of("T3"), dateTime, 3, "Test", 120));
+
+        assertTrue(isOccupied(service.recommend(dateTime.plusMinutes(119), 2, null, false, false, false, false), "T3"));
+
+        service.cancelReservation(reservation.id());
+        assertFalse(isOccupied(service.recommend(dateTime, 2, null, false, false, false, false), "T3"));
+    }
+
+    @Test
+    void shouldRejectOverlappingBookingForSameTable() {
+        service.createReservation(new ReservationRequest(List.of("T1", "T2"), FIXED_TIME, 4, "First", 120));
+
+        ResponseStatusException conflict = assertThrows(ResponseStatusException.class, () -> service.createReservation(
+                new ReservationRequest(List.of("T2"), FIXED_TIME.plusMinutes(90), 2, "Second", 120)));
+        assertEquals(HttpStatus.CONFLICT, conflict.getStatusCode());
+
+        service.createReservation(new ReservationRequest(List.of("T2"), FIXED_TIME.plusMinutes(120), 2, "Third", 120));
+    }
+
+    @Test
+    void shouldMatchSingleSearchesInAvailabilityGrid() {
+        LocalDateTime from = FIXED_TIME.withHour(17);
+        for (int partySize : new int[]{2, 7, 12}) {
+            AvailabilityGrid grid = service.availabilityGrid(from, from.plusHours(5), 15, partySize,
+                    Zone.INDOOR, false, true, false, false);
+
+            assertEquals(21, grid.slots().size());
+            for (AvailabilitySlot slot : grid.slots()) {
+                SearchResponse response = service.recommend(slot.dateTime(), partySize, Zone.INDOOR,
+                        false, true, false, false);
+                String single = response.tables().stream()
+                        .filter(t -> t.recommended() && !t.merged())
+                        .map(t -> t.table().id())
+                        .findFirst().orElse(null);
+                List<String> merged = response.tables().stream()
+                        .filter(t -> t.recommended() && t.merged())
+                        .map(TableRecommendation::mergedTableIds)
+                        .findFirst().orElse(List.of());
+
+                assertEquals(single, slot.bestTableId(), "single table at " + slot.dateTime());
+                assertEquals(merged, slot.mergedTableIds(), "merged tables at " + slot.dateTime());
+            }
+        }
+    }
+
+    @Test
+    void shouldStreamTopRowsInFullResponseOrder() {
+        for (int partySize : new int[]{2, 11}) {
+            List<TableRecommendation> all = service.recommend(FIXED_TIME, partySize, null,
+                    true, false, true, false).tables();
+            for (int limit : new int[]{1, 3, all.size(), all.size() + 5}) {
+                List<TableRecommendation> streamed = new ArrayList<>();
+                service.recommendTop(VenueCatalog.DEFAULT_VENUE, FIXED_TIME, partySize, null,
+                        true, false, true, false, limit).forEach(streamed::add);
+
+                assertEquals(all.subList(0, Math.min(limit, all.size())), streamed,
+                        "partySize=" + partySize + ", limit=" + limit);
+            }
+        }
+    }
+
+    @Test
+    void shouldRecordSearchPhases() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        RecommendationService instrumented = new RecommendationService(mock(MealSuggestionService.class),
+                new VenueRegistry(new VenueCatalog(new DefaultResourceLoader(), new ObjectMapper(), "classpath:venues/")),
+                new RecommendationMetrics(registry), 4, false, 150);
+
+        instrumented.recommend(FIXED_TIME, 11, Zone.INDOOR, false, false, false, false);
+
+        for (String phase : List.of("occupancy", "scoring", "exact_capacity", "merge_search", "meal")) {
+            assertEquals(1, registry.get("restaurant.recommend.phase")
+                    .tags("phase", phase, "party_size", "11+", "zone", "INDOOR").timer().count(), phase);
+        }
+        assertTrue(registry.get("restaurant.merge.groups.examined").counter().count() > 0);
+    }
+
+    @Test
+    void shouldListTablesNearPointClosestFirst() {
+        RecommendationService unsimulated = withoutSimulatedOccupancy(0);
+        List<TableInfo> tables = unsimulated.currentTables();
+        TableInfo moved = tables.get(0);
+        unsimulated.updateLayout(List.of(new TableLayoutUpdate(moved.id(), moved.x() + 230, moved.y() + 45)));
+        List<TableInfo> layout = unsimulated.currentTables();
+
+        for (int radius : List.of(0, 100, 190, 400, 5000)) {
+            for (TableInfo origin : layout) {
+                double x = origin.x() + 17;
+                double y = origin.y() - 31;
+                List<String> expected = IntStream.range(0, layout.size()).boxed()
+                        .filter(i -> distance(layout.get(i), x, y) <= radius)
+                        .sorted(Comparator.<Integer>comparingDouble(i -> distance(layout.get(i), x, y))
+                                .thenComparing(Comparator.naturalOrder()))
+                        .map(i -> layout.get(i).id())
+                        .toList();
+                List<String> actual = unsimulated.tablesNear(VenueCatalog.DEFAULT_VENUE, x, y, radius).stream()
+                        .map(TableInfo::id)
+                        .toList();
+                assertEquals(expected, actual, "radius=" + radius + ", near " + origin.id());
+            }
+        }
+    }
+
+    @Test
+    void shouldFindNearestFreeTableThatSeatsTheParty() {
+        RecommendationService unsimulated = withoutSimulatedOccupancy(0);
+        TableInfo target = unsimulated.currentTables().stream()
+                .filter(table -> table.seats() >= 4)
+                .findFirst()
+                .orElseThrow();
+
+        assertEquals(target.id(), unsimulated.nearestFreeTable(VenueCatalog.DEFAULT_VENUE,
+                target.x(), target.y(), FIXED_TIME, 4).id());
+
+        unsimulated.createReservation(new ReservationRequest(List.of(target.id()), FIXED_TIME, 4, "Test", null));
+        TableInfo next = unsimulated.nearestFreeTable(VenueCatalog.DEFAULT_VENUE, target.x(), target.y(), FIXED_TIME, 4);
+        double expected = unsimulated.currentTables().stream()
+                .filter(table -> !table.id().equals(target.id()) && table.seats() >= 4)
+                .mapToDouble(table -> distance(table, target.x(), target.y()))
+                .min()
+                .orElseThrow();
+        assertEquals(expected, distance(next, target.x(), target.y()), 1e-9);
+
+        ResponseStatusException error = assertThrows(ResponseStatusException.class,
+                () -> unsimulated.nearestFreeTable(VenueCatalog.DEFAULT_VENUE, 0, 0, FIXED_TIME, 100));
+        assertEquals(HttpStatus.NOT_FOUND, error.getStatusCode());
+    }
+
+    @Test
+    void shouldKeepMergedGroupsWhenTablesMoveAwayAndBack() {
+        RecommendationService unsimulated = withoutSimulatedOccupancy(0);
+        List<TableRecommendation> before = unsimulated.mergedAlternatives(VenueCatalog.DEFAULT_VENUE, FIXED_TIME,
+                12, null, false, false, false, false, 10);
+        List<TableInfo> original = unsimulated.currentTables().subList(0, 3);
+
+        for (TableInfo table : original) {
+            unsimulated.updateLayout(List.of(new TableLayoutUpdate(table.id(), table.x() + 2000, table.y() + 2000)));
+        }
+        List<TableRecommendation> apart = unsimulated.mergedAlternatives(VenueCatalog.DEFAULT_VENUE, FIXED_TIME,
+                12, null, false, false, false, false, 10);
+        assertTrue(apart.stream().noneMatch(option -> option.mergedTableIds().contains(original.get(0).id())));
+
+        unsimulated.updateLayout(original.stream()
+                .map(table -> new TableLayoutUpdate(table.id(), table.x(), table.y()))
+                .toList());
+        List<TableRecommendation> after = unsimulated.mergedAlternatives(VenueCatalog.DEFAULT_VENUE, FIXED_TIME,
+                12, null, false, false, false, false, 10);
+        assertEquals(before, after);
+    }
+
+    private static double distance(TableInfo table, double x, double y) {
+        return Math.hypot(table.x() - x, table.y() - y);
+    }
+
+    @Test
+    void shouldSimulateSameOccupancyForSameSeedWhateverTheSeasonLength() {
+        RecommendationService weekly = withSimulatedOccupancy(7, 7);
+        RecommendationService quarterly = withSimulatedOccupancy(7, 92);
+        RecommendationService otherSeed = withSimulatedOccupancy(8, 92);
+
+        boolean seedMatters = false;
+        int occupied = 0;
+        int checked = 0;
+        for (LocalDateTime time = FIXED_TIME.minusDays(10); time.isBefore(FIXED_TIME.plusDays(10)); time = time.plusMinutes(45)) {
+            List<Boolean> expected = occupancy(weekly, time);
+            assertEquals(expected, occupancy(quarterly, time), time.toString());
+            seedMatters |= !expected.equals(occupancy(otherSeed, time));
+            occupied += (int) expected.stream().filter(Boolean::booleanValue).count();
+            checked += expected.size();
+            assertTrue(expected.stream().filter(busy -> !busy).count() >= 2, time.toString());
+        }
+        assertTrue(seedMatters);
+        double load = (double) occupied / checked;
+        assertTrue(load > 0.2 && load < 0.7, "load " + load);
+    }
+
+    @Test
+    void shouldFindNextAvailableSlotsExactlyWhereAWholeVisitFits() {
+        // Weekly seasons start on Thursdays, so this horizon runs across two of them.
+        RecommendationService simulated = withSimulatedOccupancy(7, 7);
+        LocalDateTime from = LocalDateTime.of(2026, 3, 11, 20, 0);
+        NextAvailability next = simulated.nextAvailable(VenueCatalog.DEFAULT_VENUE, from, 12, 2, null,
+                false, false, false, false, 100);
+
+        List<LocalDateTime> expected = new ArrayList<>();
+        for (LocalDateTime start = from; !start.isAfter(from.plusHours(12)); start = start.plusMinutes(15)) {
+            Set<String> free = new HashSet<>(simulated.currentTables().stream().map(TableInfo::id).toList());
+            for (LocalDateTime time = start; time.isBefore(start.plusMinutes(150)); time = time.plusMinutes(15)) {
+                simulated.recommend(time, 2, null, false, false, false, false).tables().stream()
+                        .filter(table -> !table.merged() && table.occupied())
+                        .forEach(table -> free.remove(table.table().id()));
+            }
+            if (!free.isEmpty()) {
+                expected.add(start);
+            }
+        }
+        assertEquals(expected, next.slots().stream().map(AvailabilitySlot::dateTime).toList());
+        assertEquals(150, next.visitMinutes());
+    }
+
+    @Test
+    void shouldOfferNextSlotAfterBookingsEnd() {
+        RecommendationService unsimulated = withoutSimulatedOccupancy(0);
+        unsimulated.createReservation(new ReservationRequest(List.of("T9"), FIXED_TIME, 8, "Test", 150));
+        unsimulated.createReservation(new ReservationRequest(List.of("T10"), FIXED_TIME.minusHours(1), 8, "Test", 120));
+
+        NextAvailability next = unsimulated.nextAvailable(VenueCatalog.DEFAULT_VENUE, FIXED_TIME.minusMinutes(53), 6,
+                8, Zone.PRIVATE_ROOM, false, false, false, false, 3);
+
+        assertEquals(List.of(FIXED_TIME.plusHours(1), FIXED_TIME.plusHours(1).plusMinutes(15),
+                FIXED_TIME.plusHours(1).plusMinutes(30)), next.slots().stream().map(AvailabilitySlot::dateTime).toList());
+        assertTrue(next.slots().stream().allMatch(slot -> "T10".equals(slot.bestTableId()) && slot.freeTables() == 1));
+
+        NextAvailability merged = unsimulated.nextAvailable(VenueCatalog.DEFAULT_VENUE, FIXED_TIME, 1, 13, null,
+                false, false, false, false, 1);
+        assertFalse(merged.slots().getFirst().mergedTableIds().isEmpty());
+        assertNull(merged.slots().getFirst().bestTableId());
+    }
+
+    @Test
+    void shouldLearnWhichTablesAreUsuallyTakenAndHoldThemBack() {
+        RecommendationService learning = new RecommendationService(mock(MealSuggestionService.class),
+                new VenueRegistry(new VenueCatalog(new DefaultResourceLoader(), new ObjectMapper(), "classpath:venues/")),
+                RecommendationMetrics.disabled(), 0, false, 42, 92, 150, Duration.ZERO, 0.8);
+        Predicate<TableRecommendation> t1 = row -> !row.merged() && row.table().id().equals("T1");
+        SearchResponse before = learning.recommend(FIXED_TIME, 2, Zone.INDOOR, true, true, true, false);
+        assertTrue(before.tables().stream().filter(t1).findFirst().orElseThrow().recommended());
+
+        for (int week = 1; week <= 8; week++) {
+            learning.createReservation(new ReservationRequest(List.of("T1"), FIXED_TIME.minusWeeks(week), 2, "Test", 120));
+        }
+
+        OccupancyForecast forecast = learning.forecast(VenueCatalog.DEFAULT_VENUE, FIXED_TIME);
+        Map<String, TableForecast> byTable = forecast.tables().stream()
+                .collect(Collectors.toMap(TableForecast::tableId, table -> table));
+        assertEquals(0.82, byTable.get("T1").occupancyRate(), 0.01);
+        assertTrue(byTable.get("T1").held());
+        assertEquals(0.22, byTable.get("T2").occupancyRate(), 0.01);
+        assertFalse(byTable.get("T2").held());
+        assertFalse(learning.forecast(VenueCatalog.DEFAULT_VENUE, FIXED_TIME.plusDays(1)).tables().stream()
+                .anyMatch(TableForecast::held));
+
+        List<TableRecommendation> after = learning.recommend(FIXED_TIME, 2, Zone.INDOOR, true, true, true, false).tables();
+        TableRecommendation held = after.stream().filter(t1).findFirst().orElseThrow();
+        assertFalse(held.recommended());
+        assertFalse(held.occupied());
+        assertTrue(after.stream().anyMatch(row -> row.recommended() && !row.occupied()));
+        assertTrue(held.reason().endsWith("hoitakse tagavaraks"));
+        assertTrue(after.subList(after.indexOf(held) + 1, after.size()).stream().allMatch(TableRecommendation::occupied));
+    }
+
+    private static RecommendationService withSimulatedOccupancy(long seed, int seasonDays) {
+        return new RecommendationService(mock(MealSuggestionService.class),
+                new VenueRegistry(new VenueCatalog(new DefaultResourceLoader(), new ObjectMapper(), "classpath:venues/")),
+                RecommendationMetrics.disabled(), 0, true, seed, seasonDays, 150);
+    }
+
+    private static List<Boolean> occupancy(RecommendationService service, LocalDateTime time) {
+        return service.recommend(time, 2, null, false, false, false, false).tables().stream()
+                .filter(table -> !table.merged())
+                .sorted(Comparator.comparing(table -> table.table().id()))
+                .map(TableRecommendation::occupied)
+                .toList();
+    }
+
+    private static RecommendationService withoutSimulatedOccupancy(int maxGroupSize) {
+        return new RecommendationService(mock(MealSuggestionService.class),
+                new VenueRegistry(new VenueCatalog(new DefaultResourceLoader(), new ObjectMapper(), "classpath:venues/")),
+                RecommendationMetrics.disabled(), maxGroupSize, false, 150);
+    }
+
+    private boolean isOccupied(SearchResponse response, String tableId) {
+        return response.tables().stream()
+                .anyMatch(table -> !table.merged() && table.table().id().equals(tableId) && table.occupied());
+    }
+
+    private LocalDateTime findDateTimeWhenTableIsFree(String tableId) {
+        return findDateTimeMatching(response -> !isOccupied(response, tableId), 2, null);
+    }
+
     private void assertPreferenceScoring(Predicate<TableRecommendation> hasFeature,
                                          ResponseProvider withPreferenceProvider) {
         SearchResponse withoutPreference = service.recommend(FIXED_TIME, 2,
@@ -0,0 +1,197 @@
+package com.example.restaurant;
+
+import com.example.restaurant.model.Reservation;
+import com.example.restaurant.service.ReservationBook;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReservationBookConcurrencyTest {
+
+    private static final LocalDateTime OPENING = LocalDateTime.of(2026, 3, 10, 12, 0);
+    private static final int THREADS = 16;
+
+    @Test
+    void shouldGiveAContestedSlotToExactlyOneBooking() throws Exception {
+        ReservationBook book = new ReservationBook();
+
+        for (int round = 0; round < 50; round++) {
+            LocalDateTime start = OPENING.plusHours(round);
+            List<Boolean> outcomes = race(THREADS, thread -> {
+                try {
+                    book.create(List.of("HOT"), start, start.plusMinutes(60), 2, "Guest " + thread);
+                    return true;
+                } catch (ResponseStatusException e) {
+                    assertEquals(HttpStatus.CONFLICT, e.getStatusCode());
+                    return false;
+                }
+            });
+            assertEquals(1, outcomes.stream().filter(won -> won).count(), "round " + round);
+        }
+        assertEquals(50, book.all().size());
+    }
+
+    @Test
+    void shouldKeepHotTableBookingsDisjointUnderHeavyContention() throws Exception {
+        ReservationBook book = new ReservationBook();
+        AtomicInteger conflicts = new AtomicInteger();
+
+        List<Integer> booked = race(THREADS, thread -> {
+            Random random = new Random(thread);
+            int count = 0;
+            for (int attempt = 0; attempt < 500; attempt++) {
+                LocalDateTime start = OPENING.plusMinutes(15L * random.nextInt(200));
+                try {
+                    Reservation reservation = book.create(List.of("HOT"), start,
+                            start.plusMinutes(15L * (1 + random.nextInt(8))), 2, "Guest " + thread);
+                    count++;
+                    if (random.nextInt(3) == 0) {
+                        book.cancel(reservation.id());
+                        count--;
+                    }
+                } catch (ResponseStatusException e) {
+                    conflicts.incrementAndGet();
+                }
+            }
+            return count;
+        });
+
+        assertEquals(booked.stream().mapToInt(Integer::intValue).sum(), book.all().size());
+        assertTrue(conflicts.get() > 0);
+        assertDisjointPerTable(book);
+    }
+
+    @Test
+    void shouldBookMergedTablesGivenInAnyOrderWithoutDeadlock() {
+        ReservationBook book = new ReservationBook();
+        List<String> tables = List.of("T1", "T2", "T3", "T4", "T5", "T6");
+
+        assertTimeoutPreemptively(Duration.ofSeconds(30), () -> race(THREADS, thread -> {
+            Random random = new Random(thread);
+            for (int attempt = 0; attempt < 500; attempt++) {
+                List<String> group = new ArrayList<>(tables);
+                Collections.shuffle(group, random);
+                LocalDateTime start = OPENING.plusMinutes(30L * random.nextInt(40));
+                try {
+                    book.create(group.subList(0, 2 + random.nextInt(3)), start, start.plusMinutes(90), 6, "Group");
+                } catch (ResponseStatusException ignored) {
+                    // taken by another group
+                }
+            }
+            return null;
+        }));
+
+        assertFalse(book.isEmpty());
+        assertDisjointPerTable(book);
+    }
+
+    @Test
+    void shouldCancelABookingOnceWhenCancelledConcurrently() throws Exception {
+        ReservationBook book = new ReservationBook();
+        Reservation reservation = book.create(List.of("T1", "T2"), OPENING, OPENING.plusHours(2), 4, "Group");
+
+        List<Boolean> outcomes = race(THREADS, thread -> {
+            try {
+                book.cancel(reservation.id());
+                return true;
+            } catch (ResponseStatusException e) {
+                assertEquals(HttpStatus.NOT_FOUND, e.getStatusCode());
+                return false;
+            }
+        });
+
+        assertEquals(1, outcomes.stream().filter(won -> won).count());
+        assertTrue(book.isEmpty());
+        assertFalse(book.isBooked("T1", OPENING));
+        book.create(List.of("T2", "T1"), OPENING, OPENING.plusHours(2), 4, "Next");
+    }
+
+    @Test
+    void shouldBookDifferentTablesConcurrentlyWithUniqueIds() throws Exception {
+        ReservationBook book = new ReservationBook();
+
+        race(THREADS, thread -> {
+            for (int slot = 0; slot < 500; slot++) {
+                LocalDateTime start = OPENING.plusMinutes(30L * slot);
+                book.create(List.of("T" + thread), start, start.plusMinutes(30), 2, "Guest " + thread);
+            }
+            return null;
+        });
+
+        assertEquals(THREADS * 500, book.all().size());
+        assertEquals(THREADS * 500, book.all().stream().map(Reservation::id).collect(Collectors.toSet()).size());
+    }
+
+    /**
+     * Runs {@code task} on {@code threads} threads released at the same moment.
+     */
+    private static <T> List<T> race(int threads, ThreadTask<T> task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<T>> futures = new ArrayList<>();
+            for (int thread = 0; thread < threads; thread++) {
+                int index = thread;
+                Callable<T> call = () -> {
+                    start.await();
+                    return task.run(index);
+                };
+                futures.add(executor.submit(call));
+            }
+            start.countDown();
+            List<T> results = new ArrayList<>();
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void assertDisjointPerTable(ReservationBook book) {
+        Map<String, List<Reservation>> byTable = book.all().stream()
+                .flatMap(reservation -> reservation.tableIds().stream().map(id -> Map.entry(id, reservation)))
+                .collect(Collectors.groupingBy(Map.Entry::getKey,
+                        Collectors.mapping(Map.Entry::getValue, Collectors.toList())));
+        byTable.forEach((tableId, bookings) -> {
+            bookings.sort(Comparator.comparing(Reservation::start));
+            Set<Long> seen = new HashSet<>();
+            for (int i = 0; i < bookings.size(); i++) {
+                assertTrue(seen.add(bookings.get(i).id()));
+                if (i > 0) {
+                    assertFalse(bookings.get(i).start().isBefore(bookings.get(i - 1).end()),
+                            tableId + ": " + bookings.get(i - 1) + " overlaps " + bookings.get(i));
+                }
+            }
+        });
+    }
+
+    @FunctionalInterface
+    private interface ThreadTask<T> {
+        T run(int thread) throws Exception;
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.restaurant;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Cold-start benchmark: launches the packaged application in a fresh JVM and measures the time from
+ * process start to the first successful {@code /api/availability} answer. Modes are the plain jar as the
+ * default Dockerfile runs it and, when built with the {@code aot} profile, the extracted jar with Spring
+ * AOT, without and with the CDS archive. Each mode is launched {@code runs} times; min and median are
+ * reported.
+ *
+ * <p>Run with {@code ./mvnw -Paot,startup-test verify [-Dstartup.runs=5]}; without {@code aot} only the
+ * plain jar is measured.
+ */
+public final class StartupHarness {
+
+    private static final Duration GIVE_UP_AFTER = Duration.ofSeconds(60);
+
+    private StartupHarness() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path target = Path.of(args[0]);
+        String jar = args[1] + ".jar";
+        int runs = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+
+        List<Mode> modes = new ArrayList<>();
+        modes.add(new Mode("jar", target, List.of(java, "-jar", jar)));
+        Path cds = target.resolve("cds");
+        if (Files.exists(cds.resolve(jar))) {
+            modes.add(new Mode("aot", cds, List.of(java, "-Dspring.aot.enabled=true", "-jar", jar)));
+        }
+        if (Files.exists(cds.resolve("app.jsa"))) {
+            modes.add(new Mode("aot+cds", cds, List.of(java, "-XX:SharedArchiveFile=app.jsa",
+                    "-Dspring.aot.enabled=true", "-jar", jar)));
+        }
+
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofMillis(200)).build();
+        System.out.printf("%-10s %6s %12s %12s%n", "mode", "runs", "min ms", "median ms");
+        for (Mode mode : modes) {
+            long[] millis = new long[runs];
+            for (int run = 0; run < runs; run++) {
+                millis[run] = firstAvailability(client, mode);
+            }
+            Arrays.sort(millis);
+            System.out.printf("%-10s %6d %12d %12d%n", mode.name(), runs, millis[0], millis[runs / 2]);
+        }
+    }
+
+    private static long firstAvailability(HttpClient client, Mode mode) throws Exception {
+        int port = freePort();
+        List<String> command = new ArrayList<>(mode.command());
+        command.addAll(List.of(
+                "--server.port=" + port,
+                "--restaurant.storage.directory=",
+                // nothing listens there: meal suggestions fall back at once instead of waiting on the network
+                "--restaurant.meal.url=http://127.0.0.1:9/random.php",
+                "--logging.level.root=WARN"));
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + port
+                        + "/api/availability?dateTime=2026-03-13T19:00:00&partySize=4"))
+                .timeout(Duration.ofSeconds(5))
+                .build();
+
+        long started = System.nanoTime();
+        Process process = new ProcessBuilder(command)
+                .directory(mode.directory().toFile())
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        try {
+            while (System.nanoTime() - started < GIVE_UP_AFTER.toNanos()) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException(mode.name() + " exited with " + process.exitValue());
+                }
+                try {
+                    if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                        return Duration.ofNanos(System.nanoTime() - started).toMillis();
+                    }
+                } catch (ConnectException notYetListening) {
+                    // keep polling
+                }
+                Thread.sleep(5);
+            }
+            throw new IllegalStateException(mode.name() + " did not answer within " + GIVE_UP_AFTER);
+        } finally {
+            process.destroy();
+            process.waitFor();
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private record Mode(String name, Path directory, List<String> command) {
+    }
+}
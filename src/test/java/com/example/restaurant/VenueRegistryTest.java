@@ -0,0 +1,112 @@
+package com.example.restaurant;
+
+import com.example.restaurant.model.MealSuggestion;
+import com.example.restaurant.model.ReservationRequest;
+import com.example.restaurant.model.TableInfo;
+import com.example.restaurant.model.TableLayoutUpdate;
+import com.example.restaurant.service.MealSuggestionService;
+import com.example.restaurant.service.RecommendationMetrics;
+import com.example.restaurant.service.RecommendationService;
+import com.example.restaurant.service.VenueCatalog;
+import com.example.restaurant.service.VenueLayoutCompiler;
+import com.example.restaurant.service.VenueRegistry;
+import com.example.restaurant.service.VenueStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class VenueRegistryTest {
+
+    private static final LocalDateTime FIXED_TIME = LocalDateTime.of(2026, 3, 10, 19, 0);
+    private static final String VENUE = "vanalinn";
+
+    private final VenueRegistry registry;
+    private final RecommendationService service;
+
+    VenueRegistryTest() {
+        MealSuggestionService mealSuggestionService = mock(MealSuggestionService.class);
+        when(mealSuggestionService.suggestMeal())
+                .thenReturn(new MealSuggestion("Test Meal", "Test", "", "", true));
+        VenueCatalog catalog = new VenueCatalog(new DefaultResourceLoader(), new ObjectMapper(), "classpath:venues/");
+        this.registry = new VenueRegistry(catalog, VenueStore.inMemory(), Duration.ZERO, Duration.ofMillis(20));
+        this.service = new RecommendationService(mealSuggestionService, registry, RecommendationMetrics.disabled(), 4, false, 150);
+    }
+
+    @AfterEach
+    void tearDown() {
+        registry.stop();
+    }
+
+    @Test
+    void shouldKeepLayoutAndBookingsPerVenue() {
+        TableInfo table = service.currentTables(VENUE).getFirst();
+        service.updateLayout(VENUE, List.of(new TableLayoutUpdate(table.id(), table.x() + 10, table.y())));
+        service.createReservation(VENUE, new ReservationRequest(List.of(table.id()), FIXED_TIME, 2, "Test", 90));
+
+        assertEquals(2, service.layoutVersion(VENUE));
+        assertEquals(1, service.layoutVersion(VenueCatalog.DEFAULT_VENUE));
+        assertEquals(0, service.occupancyEpoch(VenueCatalog.DEFAULT_VENUE, FIXED_TIME));
+        assertEquals(List.of("T1", "T2", "T3", "T4", "T5", "T6", "T7", "T8", "T9", "T10"),
+                service.currentTables(VenueCatalog.DEFAULT_VENUE).stream().map(TableInfo::id).toList());
+    }
+
+    @Test
+    void shouldLoadAPrecompiledLayoutLikeItsJson(@TempDir Path directory) throws Exception {
+        try (InputStream json = getClass().getResourceAsStream("/venues/" + VENUE + ".json")) {
+            Files.copy(json, directory.resolve(VENUE + ".json"));
+        }
+        VenueLayoutCompiler.main(new String[]{directory.toString()});
+        Files.writeString(directory.resolve(VENUE + ".json"), "not json");
+        Files.setLastModifiedTime(directory.resolve(VENUE + ".json"),
+                Files.getLastModifiedTime(directory.resolve(VENUE + ".layout")));
+        VenueRegistry precompiled = new VenueRegistry(new VenueCatalog(new DefaultResourceLoader(),
+                new ObjectMapper(), directory.toUri() + "/"));
+
+        List<TableInfo> tables = new RecommendationService(mock(MealSuggestionService.class), precompiled,
+                RecommendationMetrics.disabled(), 4, false, 150).currentTables(VENUE);
+
+        assertEquals(service.currentTables(VENUE), tables);
+    }
+
+    @Test
+    void shouldRejectUnknownVenue() {
+        ResponseStatusException unknown = assertThrows(ResponseStatusException.class,
+                () -> service.currentTables("puudub"));
+        ResponseStatusException invalid = assertThrows(ResponseStatusException.class,
+                () -> service.currentTables("../venues"));
+
+        assertEquals(HttpStatus.NOT_FOUND, unknown.getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, invalid.getStatusCode());
+    }
+
+    @Test
+    void shouldEvictOnlyIdleVenuesWithoutState() throws InterruptedException {
+        service.currentTables(VenueCatalog.DEFAULT_VENUE);
+        service.createReservation(VENUE, new ReservationRequest(List.of("V2"), FIXED_TIME, 4, "Test", 90));
+        registry.start();
+
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (registry.loadedVenues() > 1 && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+
+        assertEquals(1, registry.loadedVenues());
+        assertEquals(1, service.findReservation(VENUE, 1).orElseThrow().id());
+    }
+}
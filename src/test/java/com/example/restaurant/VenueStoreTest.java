@@ -0,0 +1,111 @@
+package com.example.restaurant;
+
+import com.example.restaurant.model.MealSuggestion;
+import com.example.restaurant.model.Reservation;
+import com.example.restaurant.model.ReservationRequest;
+import com.example.restaurant.model.TableInfo;
+import com.example.restaurant.model.TableLayoutUpdate;
+import com.example.restaurant.service.MealSuggestionService;
+import com.example.restaurant.service.RecommendationMetrics;
+import com.example.restaurant.service.RecommendationService;
+import com.example.restaurant.service.VenueCatalog;
+import com.example.restaurant.service.VenueRegistry;
+import com.example.restaurant.service.VenueStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class VenueStoreTest {
+
+    private static final LocalDateTime FIXED_TIME = LocalDateTime.of(2026, 3, 10, 19, 0);
+    private static final String VENUE = VenueCatalog.DEFAULT_VENUE;
+
+    @TempDir
+    Path directory;
+
+    private final List<VenueRegistry> registries = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        registries.forEach(VenueRegistry::stop);
+    }
+
+    @Test
+    void shouldRecoverFromLogAfterCrashMidWrite() throws IOException {
+        RecommendationService before = start();
+        TableInfo moved = before.currentTables(VENUE).getFirst();
+        before.updateLayout(VENUE, List.of(new TableLayoutUpdate(moved.id(), moved.x() + 40, moved.y() + 20)));
+        Reservation kept = before.createReservation(VENUE, booking("T3", FIXED_TIME));
+        Reservation cancelled = before.createReservation(VENUE, booking("T4", FIXED_TIME));
+        before.cancelReservation(VENUE, cancelled.id());
+
+        // The process dies halfway through appending a record: a header promising more bytes than made it to disk.
+        Files.write(directory.resolve(VENUE).resolve("wal-0.log"),
+                ByteBuffer.allocate(12).putInt(64).putInt(0xCAFE).putInt(7).array(),
+                StandardOpenOption.APPEND);
+
+        RecommendationService after = start();
+
+        assertEquals(moved.x() + 40, after.currentTables(VENUE).getFirst().x());
+        assertEquals(2, after.layoutVersion(VENUE));
+        assertEquals(kept, after.findReservation(VENUE, kept.id()).orElseThrow());
+        assertTrue(after.findReservation(VENUE, cancelled.id()).isEmpty());
+
+        Reservation next = after.createReservation(VENUE, booking("T5", FIXED_TIME));
+        assertEquals(cancelled.id() + 1, next.id());
+        assertEquals(next, start().findReservation(VENUE, next.id()).orElseThrow());
+    }
+
+    @Test
+    void shouldStartFromSnapshotAfterShutdown() throws IOException {
+        RecommendationService before = start();
+        List<Reservation> booked = new ArrayList<>();
+        for (int day = 0; day < 50; day++) {
+            booked.add(before.createReservation(VENUE, booking("T" + (1 + day % 10), FIXED_TIME.plusDays(day))));
+        }
+        registries.getLast().stop();
+
+        Path venueDirectory = directory.resolve(VENUE);
+        assertTrue(Files.exists(venueDirectory.resolve("snapshot.bin")));
+        assertFalse(Files.exists(venueDirectory.resolve("wal-0.log")));
+
+        RecommendationService after = start();
+        for (Reservation reservation : booked) {
+            assertEquals(reservation, after.findReservation(VENUE, reservation.id()).orElseThrow());
+        }
+        assertEquals(booked.size() + 1L, after.createReservation(VENUE, booking("T1", FIXED_TIME.minusDays(1))).id());
+    }
+
+    private RecommendationService start() {
+        MealSuggestionService mealSuggestionService = mock(MealSuggestionService.class);
+        when(mealSuggestionService.suggestMeal())
+                .thenReturn(new MealSuggestion("Test Meal", "Test", "", "", true));
+        VenueRegistry registry = new VenueRegistry(
+                new VenueCatalog(new DefaultResourceLoader(), new ObjectMapper(), "classpath:venues/"),
+                new VenueStore(directory.toString(), true, 100_000), Duration.ofHours(1), Duration.ofHours(1));
+        registries.add(registry);
+        return new RecommendationService(mealSuggestionService, registry, RecommendationMetrics.disabled(), 4, false, 150);
+    }
+
+    private static ReservationRequest booking(String tableId, LocalDateTime dateTime) {
+        return new ReservationRequest(List.of(tableId), dateTime, 2, "Külaline", 90);
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.restaurant;
+
+import com.example.restaurant.model.Reservation;
+import com.example.restaurant.model.ReservationRequest;
+import com.example.restaurant.model.WaitlistEntry;
+import com.example.restaurant.model.WaitlistRequest;
+import com.example.restaurant.model.Zone;
+import com.example.restaurant.service.MealSuggestionService;
+import com.example.restaurant.service.RecommendationMetrics;
+import com.example.restaurant.service.RecommendationService;
+import com.example.restaurant.service.VenueCatalog;
+import com.example.restaurant.service.VenueRegistry;
+import com.example.restaurant.service.WaitlistService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+
+class WaitlistServiceTest {
+
+    private static final LocalDateTime FIXED_TIME = LocalDateTime.of(2026, 3, 10, 19, 0);
+    private static final String VENUE = VenueCatalog.DEFAULT_VENUE;
+
+    private final RecommendationService service = new RecommendationService(mock(MealSuggestionService.class),
+            new VenueRegistry(new VenueCatalog(new DefaultResourceLoader(), new ObjectMapper(), "classpath:venues/")),
+            RecommendationMetrics.disabled(), 0, false, 150);
+    private final WaitlistService waitlist = new WaitlistService(service,
+            Clock.fixed(FIXED_TIME.minusHours(2).atZone(ZoneId.systemDefault()).toInstant(), ZoneId.systemDefault()),
+            Runnable::run);
+
+    WaitlistServiceTest() {
+        waitlist.start();
+    }
+
+    @Test
+    void shouldOfferFreedTablesInPriorityOrder() {
+        Reservation t9 = service.createReservation(new ReservationRequest(List.of("T9"), FIXED_TIME, 8, "Test", 150));
+        Reservation t10 = service.createReservation(new ReservationRequest(List.of("T10"), FIXED_TIME, 8, "Test", 150));
+        List<Long> offered = new ArrayList<>();
+        waitlist.addListener(entry -> offered.add(entry.id()));
+
+        WaitlistEntry first = waitlist.join(VENUE, request(null));
+        WaitlistEntry urgent = waitlist.join(VENUE, request(5));
+        assertNull(first.offer());
+        assertNull(urgent.offer());
+        assertEquals(List.of(urgent.id(), first.id()), waitlist.entries(VENUE).stream().map(WaitlistEntry::id).toList());
+
+        service.cancelReservation(t10.id());
+        assertEquals("T10", waitlist.find(VENUE, urgent.id()).offer().bestTableId());
+        assertEquals(FIXED_TIME, waitlist.find(VENUE, urgent.id()).offer().dateTime());
+        assertNull(waitlist.find(VENUE, first.id()).offer());
+
+        service.cancelReservation(t9.id());
+        assertEquals("T9", waitlist.find(VENUE, first.id()).offer().bestTableId());
+        assertEquals(List.of(urgent.id(), first.id()), offered);
+    }
+
+    @Test
+    void shouldRejectInvalidWindowAndForgetLeftEntries() {
+        assertEquals(HttpStatus.BAD_REQUEST, assertThrows(ResponseStatusException.class, () -> waitlist.join(VENUE,
+                new WaitlistRequest("Test", 2, FIXED_TIME, FIXED_TIME.minusHours(1), null, false, false, false, false,
+                        null))).getStatusCode());
+
+        WaitlistEntry entry = waitlist.join(VENUE, request(null));
+        assertEquals("T9", entry.offer().bestTableId());
+        waitlist.leave(VENUE, entry.id());
+        assertEquals(HttpStatus.NOT_FOUND, assertThrows(ResponseStatusException.class,
+                () -> waitlist.find(VENUE, entry.id())).getStatusCode());
+    }
+
+    @Test
+    void shouldGiveTablesOfALeftEntryToTheHighestPriority() {
+        service.createReservation(new ReservationRequest(List.of("T10"), FIXED_TIME, 8, "Test", 150));
+        WaitlistEntry holder = waitlist.join(VENUE, request(null));
+        WaitlistEntry earlier = waitlist.join(VENUE, request(null));
+        WaitlistEntry urgent = waitlist.join(VENUE, request(5));
+        assertEquals("T9", holder.offer().bestTableId());
+        assertNull(earlier.offer());
+        assertNull(urgent.offer());
+
+        waitlist.leave(VENUE, holder.id());
+        assertEquals("T9", waitlist.find(VENUE, urgent.id()).offer().bestTableId());
+        assertNull(waitlist.find(VENUE, earlier.id()).offer());
+
+        // Offers do not hold tables: once someone books T9 the offer is withdrawn.
+        service.createReservation(new ReservationRequest(List.of("T9"), FIXED_TIME, 8, "Walk-in", 150));
+        assertNull(waitlist.find(VENUE, urgent.id()).offer());
+        assertEquals(List.of(), waitlist.entries(VENUE).stream().filter(entry -> entry.offer() != null).toList());
+    }
+
+    private static WaitlistRequest request(Integer priority) {
+        return new WaitlistRequest("Test", 8, FIXED_TIME, FIXED_TIME.plusMinutes(30), Zone.PRIVATE_ROOM,
+                false, false, false, false, priority);
+    }
+}
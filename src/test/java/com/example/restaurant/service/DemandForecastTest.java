@@ -0,0 +1,42 @@
+package com.example.restaurant.service;
+
+import com.example.restaurant.model.Reservation;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class DemandForecastTest {
+
+    private static final LocalDateTime TUESDAY_EVENING = LocalDateTime.of(2026, 3, 10, 19, 0);
+
+    @Test
+    void shouldNotLetABookingFarAheadWashOutTheHistory() {
+        DemandForecast forecast = new DemandForecast(Clock.fixed(TUESDAY_EVENING.minusDays(1).toInstant(ZoneOffset.UTC),
+                ZoneOffset.UTC));
+        for (int week = 1; week <= 8; week++) {
+            forecast.booked(booking(week, "T1", TUESDAY_EVENING.minusWeeks(week)));
+        }
+        DemandForecast.Model history = forecast.model(0);
+        assertEquals(0.82, history.rate("T1", TUESDAY_EVENING), 0.01);
+
+        Reservation farAhead = booking(100, "T2", TUESDAY_EVENING.plusWeeks(40));
+        forecast.booked(farAhead);
+        DemandForecast.Model withFarBooking = forecast.model(0);
+        assertEquals(history.rate("T1", TUESDAY_EVENING), withFarBooking.rate("T1", TUESDAY_EVENING), 0.1);
+        assertEquals(history.learnedShare(), withFarBooking.learnedShare(), 0.1);
+
+        // the cancellation takes away exactly what the booking added: T2 is back to an unbooked table's rate
+        forecast.cancelled(farAhead);
+        DemandForecast.Model cancelled = forecast.model(0);
+        assertEquals(cancelled.rate("T3", TUESDAY_EVENING), cancelled.rate("T2", TUESDAY_EVENING), 1e-6);
+    }
+
+    private static Reservation booking(long id, String tableId, LocalDateTime start) {
+        return new Reservation(id, List.of(tableId), start, start.plusHours(2), 2, "Test");
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.restaurant.service;
+
+import com.example.restaurant.model.LayoutImportResult;
+import com.example.restaurant.model.TableInfo;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of a bulk layout import end to end: parsing, validation with the collision sweep, and publishing
+ * a snapshot with fresh indexes. Imports alternate between two plans so every one changes the layout.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LayoutImportBenchmark {
+
+    @Param({"1000", "10000"})
+    public int tables;
+
+    private LayoutImportService importer;
+    private byte[][] bodies;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws JsonProcessingException {
+        ObjectMapper objectMapper = new ObjectMapper();
+        importer = new LayoutImportService(SyntheticFloorPlans.service(SyntheticFloorPlans.tables(10, 42)),
+                objectMapper, tables, 60);
+        List<TableInfo> first = SyntheticFloorPlans.tables(tables, 42);
+        List<TableInfo> second = SyntheticFloorPlans.tables(tables, 43);
+        bodies = new byte[][]{objectMapper.writeValueAsBytes(first), objectMapper.writeValueAsBytes(second)};
+    }
+
+    @Benchmark
+    public LayoutImportResult importJson() {
+        return importer.importJson(VenueCatalog.DEFAULT_VENUE, new ByteArrayInputStream(bodies[next++ & 1]));
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.restaurant.service;
+
+import com.example.restaurant.model.TableInfo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of publishing a layout in which one table moved, of a full rebuild, and of spatial queries.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LayoutSnapshotBenchmark {
+
+    @Param({"200", "1000", "5000"})
+    public int tables;
+
+    private LayoutSnapshot snapshot;
+    private List<TableInfo> layout;
+    private List<TableInfo> movedLayout;
+    private double queryX;
+    private double queryY;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        layout = SyntheticFloorPlans.tables(tables, 42);
+        snapshot = LayoutSnapshot.initial(layout);
+        movedLayout = new ArrayList<>(layout);
+        TableInfo table = layout.get(tables / 2);
+        movedLayout.set(tables / 2, new TableInfo(table.id(), table.seats(), table.zone(), table.x() + 75,
+                table.y() + 75, table.privacy(), table.window(), table.accessibility(), table.kidsArea()));
+        queryX = table.x() + 40;
+        queryY = table.y() - 20;
+    }
+
+    @Benchmark
+    public Object moveOneTable() {
+        return snapshot.next(movedLayout);
+    }
+
+    @Benchmark
+    public Object rebuild() {
+        return LayoutSnapshot.initial(layout);
+    }
+
+    @Benchmark
+    public int nearestWithEnoughSeats() {
+        return snapshot.grid().nearest(queryX, queryY, index -> snapshot.table(index).seats() >= 6);
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.restaurant.service;
+
+import com.example.restaurant.model.TableInfo;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A layout held as {@link TableInfo} records versus {@link LayoutColumns}, and sent as JSON versus
+ * {@link BinaryWireFormat}. Run with {@code -prof gc}: the allocation per operation of the two
+ * {@code holdAs} benchmarks is the heap each form keeps per layout, id strings aside since both share them.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LayoutWireBenchmark {
+
+    @Param({"1000", "10000"})
+    public int tables;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private ObjectReader layoutReader;
+    private LayoutSnapshot snapshot;
+    private LayoutColumns columns;
+    private List<TableInfo> layout;
+    private byte[] json;
+    private byte[] binary;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        layoutReader = objectMapper.readerForListOf(TableInfo.class);
+        layout = SyntheticFloorPlans.tables(tables, 42);
+        snapshot = LayoutSnapshot.initial(layout);
+        columns = snapshot.columns();
+        json = objectMapper.writeValueAsBytes(layout);
+        binary = BinaryWireFormat.writeLayout(snapshot);
+    }
+
+    @Benchmark
+    public Object holdAsRecords() {
+        TableInfo[] records = new TableInfo[tables];
+        for (int i = 0; i < tables; i++) {
+            records[i] = columns.table(i);
+        }
+        return records;
+    }
+
+    @Benchmark
+    public Object holdAsColumns() {
+        String[] ids = new String[tables];
+        int[] seats = new int[tables];
+        int[] xs = new int[tables];
+        int[] ys = new int[tables];
+        int[] features = new int[tables];
+        for (int i = 0; i < tables; i++) {
+            ids[i] = columns.id(i);
+            seats[i] = columns.seats(i);
+            xs[i] = columns.x(i);
+            ys[i] = columns.y(i);
+            features[i] = columns.features(i);
+        }
+        return new LayoutColumns(ids, seats, xs, ys, features);
+    }
+
+    @Benchmark
+    public byte[] writeJson() throws IOException {
+        return objectMapper.writeValueAsBytes(snapshot.tables());
+    }
+
+    @Benchmark
+    public byte[] writeBinary() {
+        return BinaryWireFormat.writeLayout(snapshot);
+    }
+
+    @Benchmark
+    public Object readJson() throws IOException {
+        return layoutReader.readValue(json);
+    }
+
+    @Benchmark
+    public Object readBinary() {
+        return BinaryWireFormat.readLayoutColumns(binary);
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.restaurant.service;
+
+import com.example.restaurant.model.TableInfo;
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the per-phase timers: the same search with metrics disabled and recorded into a Prometheus
+ * registry. Run with {@code ./mvnw -Pbenchmark verify -Djmh.args="RecommendationMetricsBenchmark"}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RecommendationMetricsBenchmark {
+
+    private static final LocalDateTime FRIDAY_EVENING = LocalDateTime.of(2026, 3, 13, 19, 0);
+
+    @Param({"10", "200"})
+    public int tables;
+
+    @Param({"2", "12"})
+    public int partySize;
+
+    private RecommendationService plain;
+    private RecommendationService instrumented;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<TableInfo> layout = SyntheticFloorPlans.tables(tables, 42);
+        plain = SyntheticFloorPlans.service(layout);
+        instrumented = SyntheticFloorPlans.service(layout,
+                new RecommendationMetrics(new PrometheusMeterRegistry(PrometheusConfig.DEFAULT)));
+    }
+
+    @Benchmark
+    public Object withoutMetrics() {
+        return plain.recommend(FRIDAY_EVENING, partySize, null, true, false, false, false);
+    }
+
+    @Benchmark
+    public Object withMetrics() {
+        return instrumented.recommend(FRIDAY_EVENING, partySize, null, true, false, false, false);
+    }
+}
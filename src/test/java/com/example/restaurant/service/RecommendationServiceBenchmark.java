@@ -0,0 +1,96 @@
+package com.example.restaurant.service;
+
+import com.example.restaurant.model.SearchRequest;
+import com.example.restaurant.model.TableInfo;
+import com.example.restaurant.model.Zone;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the recommendation engine across synthetic floor plans. Run with
+ * {@code ./mvnw -Pbenchmark verify}; the default arguments add the GC profiler for allocation rates.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RecommendationServiceBenchmark {
+
+    private static final LocalDateTime FRIDAY_EVENING = LocalDateTime.of(2026, 3, 13, 19, 0);
+
+    @Param({"10", "50", "200", "1000"})
+    public int tables;
+
+    @Param({"2", "6", "12"})
+    public int partySize;
+
+    @Param({"ALL", "INDOOR"})
+    public String zone;
+
+    @Param({"false", "true"})
+    public boolean preferences;
+
+    private RecommendationService service;
+    private VenueShard shard;
+    private LayoutSnapshot snapshot;
+    private SearchRequest request;
+    private Set<String> occupied;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        service = SyntheticFloorPlans.service(SyntheticFloorPlans.tables(tables, 42));
+        shard = service.venueShard(VenueCatalog.DEFAULT_VENUE);
+        snapshot = shard.layout().get();
+        Zone requestedZone = "ALL".equals(zone) ? null : Zone.valueOf(zone);
+        request = new SearchRequest(FRIDAY_EVENING, partySize, requestedZone,
+                preferences, preferences, false, preferences);
+        occupied = service.simulatedOccupancy(shard, snapshot, FRIDAY_EVENING);
+    }
+
+    @Benchmark
+    public Object recommend() {
+        return service.recommend(request.dateTime(), request.partySize(), request.zone(),
+                request.privacy(), request.window(), request.accessibility(), request.kidsArea());
+    }
+
+    @Benchmark
+    public void recommendTop10(Blackhole blackhole) {
+        service.recommendTop(VenueCatalog.DEFAULT_VENUE, request.dateTime(), request.partySize(), request.zone(),
+                request.privacy(), request.window(), request.accessibility(), request.kidsArea(), 10)
+                .forEach(blackhole::consume);
+    }
+
+    @Benchmark
+    public Object findMergedOption() {
+        return service.findMergedOption(snapshot, request, occupied);
+    }
+
+    @Benchmark
+    public Object simulatedOccupancy() {
+        return service.simulatedOccupancy(shard, snapshot, FRIDAY_EVENING);
+    }
+
+    @Benchmark
+    public void toRecommendation(Blackhole blackhole) {
+        for (TableInfo table : snapshot.tables()) {
+            blackhole.consume(service.toRecommendation(table, request, occupied.contains(table.id())));
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.restaurant.service;
+
+import com.example.restaurant.model.Reservation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Booking throughput of {@link ReservationBook} with per-table claims versus one venue-wide lock, the way
+ * writers used to be serialized. Each operation books a slot and cancels it again. Compare thread counts,
+ * e.g. {@code -Djmh.args="ReservationBookBenchmark -t 1"} and {@code -t 4}: bookings of different tables
+ * should scale with cores under {@code lock=table}, while {@code lock=venue} and the hot table stay flat.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReservationBookBenchmark {
+
+    private static final LocalDateTime SLOT = LocalDateTime.of(2026, 3, 13, 19, 0);
+
+    @Param({"table", "venue"})
+    public String lock;
+
+    private final AtomicInteger threads = new AtomicInteger();
+    private ReservationBook book;
+
+    @State(Scope.Thread)
+    public static class Table {
+        List<String> tableIds;
+
+        @Setup(Level.Trial)
+        public void setUp(ReservationBookBenchmark benchmark) {
+            tableIds = List.of("T" + benchmark.threads.incrementAndGet());
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        book = new ReservationBook();
+    }
+
+    @Benchmark
+    public Object ownTable(Table table) {
+        return bookAndCancel(table.tableIds);
+    }
+
+    @Benchmark
+    public Object hotTable() {
+        return bookAndCancel(List.of("HOT"));
+    }
+
+    private Reservation bookAndCancel(List<String> tableIds) {
+        if (lock.equals("venue")) {
+            synchronized (this) {
+                return tryBookAndCancel(tableIds);
+            }
+        }
+        return tryBookAndCancel(tableIds);
+    }
+
+    private Reservation tryBookAndCancel(List<String> tableIds) {
+        try {
+            Reservation reservation = book.create(tableIds, SLOT, SLOT.plusMinutes(120), 2, "Guest");
+            return book.cancel(reservation.id());
+        } catch (ResponseStatusException conflict) {
+            return null;
+        }
+    }
+}
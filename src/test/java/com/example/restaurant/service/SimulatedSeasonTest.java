@@ -0,0 +1,46 @@
+package com.example.restaurant.service;
+
+import com.example.restaurant.model.ReservationRequest;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+class SimulatedSeasonTest {
+
+    private static final LocalDateTime EVENING = LocalDateTime.of(2026, 3, 10, 19, 0);
+
+    @Test
+    void shouldServeTheOldSeasonUntilTheRedrawIsReady() {
+        VenueRegistry venues = new VenueRegistry(VenueCatalog.of(VenueCatalog.DEMO_TABLES));
+        RecommendationService service = new RecommendationService(mock(MealSuggestionService.class), venues,
+                RecommendationMetrics.disabled(), 0, true, 42, 92, 150, Duration.ZERO, 0.8);
+        VenueShard shard = venues.shard(VenueCatalog.DEFAULT_VENUE);
+        LayoutSnapshot snapshot = shard.layout().get();
+        service.simulatedOccupancy(shard, snapshot, EVENING);
+        OccupancySimulator.Season first = shard.simulatedSeason();
+
+        service.createReservation(new ReservationRequest(List.of("T1"), EVENING.minusWeeks(1), 2, "Test", 120));
+        Set<String> occupied = service.simulatedOccupancy(shard, snapshot, EVENING);
+
+        Set<String> fromFirst = new HashSet<>();
+        first.collectOccupied(EVENING, fromFirst);
+        assertEquals(fromFirst, occupied);
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            while (shard.simulatedSeason() == first) {
+                Thread.sleep(1);
+            }
+        });
+        assertNotSame(first, shard.simulatedSeason());
+        assertTrue(shard.simulatedSeason().simulatedWith(shard.reservationBook().demand().model(Long.MAX_VALUE)));
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.restaurant.service;
+
+import com.example.restaurant.model.MealSuggestion;
+import com.example.restaurant.model.TableInfo;
+import com.example.restaurant.model.Zone;
+import org.springframework.web.client.RestClient;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic floor plans and collaborators for benchmarks. Tables sit on a grid with 150px spacing,
+ * so each table touches its horizontal and vertical neighbours (adjacency threshold is 190px).
+ */
+final class SyntheticFloorPlans {
+
+    private static final int[] SEAT_OPTIONS = {2, 2, 4, 4, 4, 6, 8};
+
+    private SyntheticFloorPlans() {
+    }
+
+    static List<TableInfo> tables(int count, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        int columns = (int) Math.ceil(Math.sqrt(count));
+        int rows = (count + columns - 1) / columns;
+        List<TableInfo> tables = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int row = i / columns;
+            Zone zone = Zone.values()[Math.min(Zone.values().length - 1, row * Zone.values().length / rows)];
+            tables.add(new TableInfo(
+                    "T" + (i + 1),
+                    SEAT_OPTIONS[random.nextInt(SEAT_OPTIONS.length)],
+                    zone,
+                    80 + (i % columns) * 150,
+                    90 + row * 150,
+                    random.nextInt(4) == 0,
+                    random.nextInt(3) == 0,
+                    random.nextBoolean(),
+                    random.nextInt(5) == 0
+            ));
+        }
+        return tables;
+    }
+
+    static RecommendationService service(List<TableInfo> tables) {
+        return service(tables, RecommendationMetrics.disabled());
+    }
+
+    static RecommendationService service(List<TableInfo> tables, RecommendationMetrics metrics) {
+        return new RecommendationService(new FixedMealSuggestionService(), tables, metrics,
+                RecommendationService.DEFAULT_MAX_GROUP_SIZE, true, RecommendationService.DEFAULT_VISIT_MINUTES);
+    }
+
+    /**
+     * Meal service that never touches the network, so upstream latency does not leak into measurements.
+     */
+    static final class FixedMealSuggestionService extends MealSuggestionService {
+
+        private static final MealSuggestion MEAL = new MealSuggestion("Benchmark Meal", "Test", "", "", true);
+
+        FixedMealSuggestionService() {
+            super(RestClient.builder(), "http://localhost:1/unused", 1, Duration.ofHours(1), Duration.ofHours(1));
+        }
+
+        @Override
+        public MealSuggestion suggestMeal() {
+            return MEAL;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.restaurant.service;
+
+import com.example.restaurant.model.Reservation;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VenueCheckpointTest {
+
+    private static final LocalDateTime FIXED_TIME = LocalDateTime.of(2026, 3, 10, 19, 0);
+    private static final String VENUE = "vanalinn";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void shouldRecoverEveryChangeMadeWhileCheckpointsRun() throws Exception {
+        VenueStore store = new VenueStore(directory.toString(), true, 1);
+        VenueShard shard = store.open(VENUE, () -> LayoutColumns.of(VenueCatalog.DEMO_TABLES));
+        ReservationBook book = shard.reservationBook();
+        List<Reservation> kept = Collections.synchronizedList(new ArrayList<>());
+        List<Reservation> cancelled = Collections.synchronizedList(new ArrayList<>());
+        AtomicBoolean writing = new AtomicBoolean(true);
+        int checkpoints = 0;
+
+        List<Future<?>> writers = new ArrayList<>();
+        try (ExecutorService pool = Executors.newFixedThreadPool(4)) {
+            for (int writer = 1; writer <= 4; writer++) {
+                String tableId = "T" + writer;
+                writers.add(pool.submit(() -> {
+                    for (int day = 0; day < 200; day++) {
+                        LocalDateTime start = FIXED_TIME.plusDays(day);
+                        Reservation[] booked = new Reservation[1];
+                        shard.tryMutate(() -> booked[0] = book.create(List.of(tableId), start, start.plusHours(2), 2, "Test"));
+                        if (day % 5 == 0) {
+                            shard.tryMutate(() -> cancelled.add(book.cancel(booked[0].id())));
+                        } else {
+                            kept.add(booked[0]);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            pool.submit(() -> {
+                try {
+                    for (Future<?> writer : writers) {
+                        writer.get();
+                    }
+                } finally {
+                    writing.set(false);
+                }
+                return null;
+            });
+            // checkpoint as often as the log allows while the writers run
+            while (writing.get()) {
+                shard.checkpointIfDue(1);
+                checkpoints++;
+            }
+            for (Future<?> writer : writers) {
+                writer.get();
+            }
+        }
+        assertTrue(checkpoints > 1);
+
+        // no close: the next open sees exactly the snapshot and log segments the last checkpoint left
+        ReservationBook recovered = store.open(VENUE, () -> LayoutColumns.of(VenueCatalog.DEMO_TABLES)).reservationBook();
+        for (Reservation reservation : kept) {
+            assertEquals(reservation, recovered.find(reservation.id()).orElseThrow());
+        }
+        for (Reservation reservation : cancelled) {
+            assertTrue(recovered.find(reservation.id()).isEmpty());
+        }
+        assertEquals(kept.size(), recovered.all().size());
+    }
+}
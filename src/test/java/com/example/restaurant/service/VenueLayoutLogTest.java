@@ -0,0 +1,56 @@
+package com.example.restaurant.service;
+
+import com.example.restaurant.model.TableInfo;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class VenueLayoutLogTest {
+
+    private static final String VENUE = "vanalinn";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void shouldRecoverAPublishedLayoutFromTheLogAlone() {
+        VenueShard shard = open();
+        LayoutSnapshot published = shard.publishLayout(VenueLayoutLogTest::moveFirstTable);
+
+        // no checkpoint and no close: the layout can only come back from the log
+        LayoutSnapshot recovered = open().layout().get();
+        assertEquals(published.version(), recovered.version());
+        assertEquals(published.tables(), recovered.tables());
+    }
+
+    @Test
+    void shouldNotPublishALayoutTheLogRefused() {
+        VenueShard shard = open();
+        LayoutSnapshot before = shard.layout().get();
+        shard.close();
+
+        assertThrows(UncheckedIOException.class, () -> shard.publishLayout(VenueLayoutLogTest::moveFirstTable));
+        assertSame(before, shard.layout().get());
+    }
+
+    private VenueShard open() {
+        return new VenueStore(directory.toString(), true, 1_000)
+                .open(VENUE, () -> LayoutColumns.of(VenueCatalog.DEMO_TABLES));
+    }
+
+    private static LayoutSnapshot moveFirstTable(LayoutSnapshot current) {
+        List<TableInfo> tables = new ArrayList<>(current.tables());
+        TableInfo first = tables.getFirst();
+        tables.set(0, new TableInfo(first.id(), first.seats(), first.zone(), first.x() + 10, first.y(),
+                first.privacy(), first.window(), first.accessibility(), first.kidsArea()));
+        return current.next(tables);
+    }
+}